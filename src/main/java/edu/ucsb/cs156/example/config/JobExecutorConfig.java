@@ -0,0 +1,48 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.services.jobs.JobMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * The `JobExecutorConfig` class defines the executor that runs background jobs (see
+ * `JobService.runJobAsync`).
+ *
+ * <p>The executor runs at most app.jobs.executor.maxConcurrency jobs at once and holds at most
+ * app.jobs.executor.queueCapacity more; further jobs are rejected rather than queued without bound.
+ * With app.jobs.executor.threads=virtual each job runs on a virtual thread, which suits jobs that
+ * mostly wait on I/O; use platform for CPU-bound jobs.
+ */
+@Configuration
+@Slf4j
+public class JobExecutorConfig {
+
+  @Value("${app.jobs.executor.threads:virtual}")
+  private String threads;
+
+  @Value("${app.jobs.executor.maxConcurrency:8}")
+  private int maxConcurrency;
+
+  @Value("${app.jobs.executor.queueCapacity:100}")
+  private int queueCapacity;
+
+  @Bean(name = "jobExecutor")
+  public ThreadPoolTaskExecutor jobExecutor(JobMetrics jobMetrics) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("job-");
+    executor.setVirtualThreads("virtual".equalsIgnoreCase(threads));
+    executor.setCorePoolSize(maxConcurrency);
+    executor.setMaxPoolSize(maxConcurrency);
+    executor.setQueueCapacity(queueCapacity);
+    jobMetrics.registerExecutor(executor);
+    log.info(
+        "jobExecutor: threads={} maxConcurrency={} queueCapacity={}",
+        threads,
+        maxConcurrency,
+        queueCapacity);
+    return executor;
+  }
+}
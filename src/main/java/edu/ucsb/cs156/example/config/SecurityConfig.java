@@ -2,37 +2,42 @@ package edu.ucsb.cs156.example.config;
 
 import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
 
-import edu.ucsb.cs156.example.entities.User;
-import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminDirectory;
+import edu.ucsb.cs156.example.services.ApiTokenService;
+import edu.ucsb.cs156.example.services.UserProfileService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.authority.mapping.GrantedAuthoritiesMapper;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.Http403ForbiddenEntryPoint;
+import org.springframework.security.web.authentication.SavedRequestAwareAuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 import org.springframework.security.web.csrf.CsrfToken;
@@ -53,15 +58,55 @@ import org.springframework.web.filter.OncePerRequestFilter;
 @Slf4j
 public class SecurityConfig {
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<>();
+  @Autowired AdminDirectory adminDirectory;
 
-  @Autowired UserRepository userRepository;
+  @Autowired UserProfileService userProfileService;
+
+  @Autowired ApiTokenService apiTokenService;
+
+  /**
+   * The `apiTokenFilterChain` method handles the requests to /api/** that carry a bearer token (see
+   * ApiTokenService), and only when tokens are enabled. These requests are stateless: the token is
+   * verified locally and its roles are used as they are, so that no session is created or read,
+   * no CSRF token is checked or rendered, and the user is not looked up in the database. Method
+   * security (e.g. @PreAuthorize) applies to them as usual.
+   *
+   * @param http injected HttpSecurity object (injected by Spring framework)
+   */
+  @Bean
+  @Order(1)
+  public SecurityFilterChain apiTokenFilterChain(HttpSecurity http) throws Exception {
+    JwtGrantedAuthoritiesConverter authorities = new JwtGrantedAuthoritiesConverter();
+    authorities.setAuthoritiesClaimName(ApiTokenService.ROLES_CLAIM);
+    authorities.setAuthorityPrefix("");
+    JwtAuthenticationConverter authentication = new JwtAuthenticationConverter();
+    authentication.setJwtGrantedAuthoritiesConverter(authorities);
+
+    http.securityMatcher(
+            request ->
+                apiTokenService.isEnabled()
+                    && antMatcher("/api/**").matches(request)
+                    && StringUtils.startsWithIgnoreCase(
+                        request.getHeader(HttpHeaders.AUTHORIZATION), "Bearer "))
+        .sessionManagement(
+            session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+        .csrf(csrf -> csrf.disable())
+        .requestCache(cache -> cache.disable())
+        .oauth2ResourceServer(
+            resourceServer ->
+                resourceServer.jwt(
+                    jwt ->
+                        jwt.decoder(apiTokenService::decode)
+                            .jwtAuthenticationConverter(authentication)))
+        .authorizeHttpRequests(auth -> auth.anyRequest().permitAll());
+    return http.build();
+  }
 
   /**
    * The `filterChain` method in this Java code configures various security settings for an HTTP
    * request, including authorization, exception handling, OAuth2 login, CSRF protection, and logout
-   * behavior.
+   * behavior. The actuator endpoints other than health (metrics, prometheus, mappings) are for
+   * admins only.
    *
    * @param http injected HttpSecurity object (injected by Spring framework) //
    */
@@ -72,14 +117,23 @@ public class SecurityConfig {
             handling -> handling.authenticationEntryPoint(new Http403ForbiddenEntryPoint()))
         .oauth2Login(
             oauth2 ->
-                oauth2.userInfoEndpoint(
-                    userInfo -> userInfo.userAuthoritiesMapper(this.userAuthoritiesMapper())))
+                oauth2
+                    .userInfoEndpoint(
+                        userInfo -> userInfo.userAuthoritiesMapper(this.userAuthoritiesMapper()))
+                    .successHandler(this.loginSuccessHandler()))
         .csrf(
             csrf ->
                 csrf.csrfTokenRepository(CookieCsrfTokenRepository.withHttpOnlyFalse())
                     .csrfTokenRequestHandler(new SpaCsrfTokenRequestHandler()))
         .addFilterAfter(new CsrfCookieFilter(), BasicAuthenticationFilter.class)
-        .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+        .authorizeHttpRequests(
+            auth ->
+                auth.requestMatchers(antMatcher("/actuator/health/**"))
+                    .permitAll()
+                    .requestMatchers(antMatcher("/actuator/**"))
+                    .hasRole("ADMIN")
+                    .anyRequest()
+                    .permitAll())
         .logout(
             logout ->
                 logout
@@ -97,6 +151,19 @@ public class SecurityConfig {
     return web -> web.ignoring().requestMatchers(antMatcher("/h2-console/**"));
   }
 
+  /**
+   * The `loginSuccessHandler` method saves the profile of a user who has just logged in (see
+   * UserProfileService), and then redirects as Spring would by default. Profiles are saved only
+   * here, so that requests after the login only read the users table.
+   */
+  private AuthenticationSuccessHandler loginSuccessHandler() {
+    AuthenticationSuccessHandler redirect = new SavedRequestAwareAuthenticationSuccessHandler();
+    return (request, response, authentication) -> {
+      userProfileService.upsert(((OAuth2AuthenticationToken) authentication).getPrincipal());
+      redirect.onAuthenticationSuccess(request, response, authentication);
+    };
+  }
+
   private GrantedAuthoritiesMapper userAuthoritiesMapper() {
     return (authorities) -> {
       Set<GrantedAuthority> mappedAuthorities = new HashSet<>();
@@ -128,18 +195,14 @@ public class SecurityConfig {
   }
 
   /**
-   * This method checks if the given email belongs to an admin user either from a predefined list or
-   * by querying the user repository.
+   * This method checks if the given email belongs to an admin user, either from a predefined list
+   * or from the admins in the database (see AdminDirectory).
    *
    * @param email email address of the user
    * @return whether the user with the given email is an admin
    */
   public boolean getAdmin(String email) {
-    if (adminEmails.contains(email)) {
-      return true;
-    }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
+    return adminDirectory.isAdmin(email);
   }
 
   @Bean
@@ -0,0 +1,135 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializationFailedException;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+import org.springframework.session.config.SessionRepositoryCustomizer;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.session.jdbc.config.annotation.web.http.EnableJdbcHttpSession;
+
+/**
+ * The `SessionConfig` class keeps HTTP sessions in the database (the SPRING_SESSION tables, see
+ * SpringSession.json) rather than in the memory of one instance of the app, so that any instance
+ * can serve any request and a restart does not log anyone out.
+ *
+ * <p>Session attributes are stored with Java serialization, gzipped when they are at least
+ * app.session.compressMinBytes long (e.g. the security context with the OAuth2 user). Last access
+ * times are written in batches (see TouchBatchingSessionRepository), and expired sessions are
+ * deleted on the app.session.cleanupCron schedule.
+ */
+@Configuration
+@EnableJdbcHttpSession(cleanupCron = Scheduled.CRON_DISABLED)
+public class SessionConfig {
+
+  @Value("${server.servlet.session.timeout:30m}")
+  private Duration timeout;
+
+  @Value("${app.session.compressMinBytes:256}")
+  private int compressMinBytes;
+
+  @Autowired private ObjectProvider<JdbcIndexedSessionRepository> jdbcSessionRepository;
+
+  @Autowired private ObjectProvider<TouchBatchingSessionRepository<Session>> sessionRepository;
+
+  @Bean
+  public SessionRepositoryCustomizer<JdbcIndexedSessionRepository> jdbcSessionTimeout() {
+    return repository -> repository.setDefaultMaxInactiveInterval(timeout);
+  }
+
+  /** The conversion service that JdbcIndexedSessionRepository uses to store session attributes. */
+  @Bean(name = "springSessionConversionService")
+  public ConversionService springSessionConversionService() {
+    ClassLoader classLoader = SessionConfig.class.getClassLoader();
+    GenericConversionService conversionService = new GenericConversionService();
+    conversionService.addConverter(
+        Object.class, byte[].class, attribute -> serialize(attribute, compressMinBytes));
+    conversionService.addConverter(
+        byte[].class, Object.class, bytes -> deserialize(bytes, classLoader));
+    return conversionService;
+  }
+
+  /** The session repository used by the session filter, which saves through the JDBC one. */
+  @Bean
+  @Primary
+  @SuppressWarnings("unchecked")
+  public TouchBatchingSessionRepository<Session> touchBatchingSessionRepository(
+      JdbcIndexedSessionRepository jdbcSessionRepository, JdbcTemplate jdbcTemplate) {
+    // the JDBC sessions are of a package-private type; only the sessions it creates are saved to it
+    SessionRepository<Session> delegate =
+        (SessionRepository<Session>) (SessionRepository<?>) jdbcSessionRepository;
+    return new TouchBatchingSessionRepository<>(delegate, jdbcTemplate);
+  }
+
+  /** This method writes the last access times of the sessions touched since it last ran. */
+  @Scheduled(fixedDelayString = "${app.session.touchFlushIntervalMs:10000}")
+  public void flushSessionTouches() {
+    sessionRepository.getObject().flushTouches();
+  }
+
+  /** This method deletes the expired sessions, after writing the latest access times. */
+  @Scheduled(cron = "${app.session.cleanupCron:0 * * * * *}")
+  public void cleanUpExpiredSessions() {
+    sessionRepository.getObject().flushTouches();
+    jdbcSessionRepository.getObject().cleanUpExpiredSessions();
+  }
+
+  /**
+   * This method serializes a session attribute, and gzips it if it is long enough for that to
+   * help.
+   *
+   * @param attribute the session attribute
+   * @param compressMinBytes the shortest serialized attribute to gzip
+   * @return the bytes to store
+   */
+  static byte[] serialize(Object attribute, int compressMinBytes) {
+    byte[] serialized = new SerializingConverter().convert(attribute);
+    if (serialized.length < compressMinBytes) {
+      return serialized;
+    }
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(serialized.length);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(serialized);
+    } catch (IOException e) {
+      throw new SerializationFailedException("Cannot compress session attribute", e);
+    }
+    return compressed.size() < serialized.length ? compressed.toByteArray() : serialized;
+  }
+
+  /**
+   * This method reads back a session attribute stored by serialize.
+   *
+   * @param bytes the stored bytes
+   * @param classLoader the class loader of the classes of the attribute
+   * @return the session attribute
+   */
+  static Object deserialize(byte[] bytes, ClassLoader classLoader) {
+    // gzip streams start with 1f 8b, Java serialization streams with ac ed
+    int magic = bytes.length >= 2 ? (bytes[0] & 0xff) | (bytes[1] & 0xff) << 8 : 0;
+    if (magic == GZIPInputStream.GZIP_MAGIC) {
+      try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+        bytes = gzip.readAllBytes();
+      } catch (IOException e) {
+        throw new SerializationFailedException("Cannot decompress session attribute", e);
+      }
+    }
+    return new DeserializingConverter(classLoader).convert(bytes);
+  }
+}
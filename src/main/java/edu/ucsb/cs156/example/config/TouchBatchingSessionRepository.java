@@ -0,0 +1,240 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+
+/**
+ * This is a session repository that saves sessions through another one (the JDBC one, see
+ * SessionConfig), except for requests that only touch the session.
+ *
+ * <p>Every request that uses a session updates its last access time, which would otherwise cost an
+ * UPDATE per request. Here a session that was only touched is not saved; its last access time is
+ * kept in memory instead, and written with those of all the other touched sessions in one JDBC
+ * batch by flushTouches (every app.session.touchFlushIntervalMs). Sessions whose attributes
+ * changed are saved at once, as before.
+ *
+ * <p>As a result the last access times in the database may lag by up to one flush interval, so an
+ * idle session may expire up to that much early.
+ *
+ * @param <S> the type of the sessions of the other repository
+ */
+@Slf4j
+public class TouchBatchingSessionRepository<S extends Session>
+    implements SessionRepository<TouchBatchingSessionRepository.TouchedSession<S>> {
+
+  static final String UPDATE_LAST_ACCESS_TIME_QUERY =
+      "UPDATE "
+          + JdbcIndexedSessionRepository.DEFAULT_TABLE_NAME
+          + " SET LAST_ACCESS_TIME = ?, EXPIRY_TIME = ?"
+          + " WHERE SESSION_ID = ? AND LAST_ACCESS_TIME < ?";
+
+  private final SessionRepository<S> delegate;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /** Last access times not yet written, by session id. */
+  private final Map<String, Touch> touches = new ConcurrentHashMap<>();
+
+  /**
+   * A last access time to be written.
+   *
+   * @param lastAccessedTime the last access time
+   * @param maxInactiveInterval the idle timeout of the session
+   */
+  record Touch(Instant lastAccessedTime, Duration maxInactiveInterval) {
+
+    /** Value of EXPIRY_TIME, as written by JdbcIndexedSessionRepository. */
+    long expiryTime() {
+      return maxInactiveInterval.isNegative()
+          ? Long.MAX_VALUE
+          : lastAccessedTime.plus(maxInactiveInterval).toEpochMilli();
+    }
+
+    Touch later(Touch other) {
+      return other.lastAccessedTime.isAfter(lastAccessedTime) ? other : this;
+    }
+  }
+
+  /**
+   * Creates a repository that saves sessions through another one.
+   *
+   * @param delegate the repository that saves the sessions
+   * @param jdbcTemplate used to write the last access times to the table of the delegate
+   */
+  public TouchBatchingSessionRepository(SessionRepository<S> delegate, JdbcTemplate jdbcTemplate) {
+    this.delegate = delegate;
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public TouchedSession<S> createSession() {
+    TouchedSession<S> session = new TouchedSession<>(delegate.createSession());
+    session.changed = true;
+    return session;
+  }
+
+  @Override
+  public void save(TouchedSession<S> session) {
+    if (session.changed) {
+      session.delegate.setLastAccessedTime(session.lastAccessedTime);
+      delegate.save(session.delegate);
+      session.changed = false;
+      touches.remove(session.getId());
+    } else if (session.lastAccessedTime.isAfter(session.delegate.getLastAccessedTime())) {
+      touches.merge(
+          session.getId(),
+          new Touch(session.lastAccessedTime, session.getMaxInactiveInterval()),
+          Touch::later);
+    }
+  }
+
+  @Override
+  public TouchedSession<S> findById(String id) {
+    S found = delegate.findById(id);
+    if (found == null) {
+      return null;
+    }
+    TouchedSession<S> session = new TouchedSession<>(found);
+    Touch touch = touches.get(id);
+    if (touch != null && touch.lastAccessedTime.isAfter(session.lastAccessedTime)) {
+      session.lastAccessedTime = touch.lastAccessedTime;
+    }
+    return session;
+  }
+
+  @Override
+  public void deleteById(String id) {
+    touches.remove(id);
+    delegate.deleteById(id);
+  }
+
+  /**
+   * This method writes the last access times of the sessions touched since it last ran, in one
+   * batch. A time is not written over a later one (e.g. written by another instance of the app).
+   * If the batch fails, its times are kept to be written by the next flush.
+   *
+   * @return the number of sessions whose last access time was written
+   * @throws DataAccessException if the batch fails
+   */
+  public int flushTouches() {
+    Map<String, Touch> flushed = new HashMap<>();
+    List<Object[]> batch = new ArrayList<>();
+    for (String id : Set.copyOf(touches.keySet())) {
+      Touch touch = touches.remove(id);
+      if (touch != null) {
+        flushed.put(id, touch);
+        long lastAccessTime = touch.lastAccessedTime.toEpochMilli();
+        batch.add(new Object[] {lastAccessTime, touch.expiryTime(), id, lastAccessTime});
+      }
+    }
+    if (!batch.isEmpty()) {
+      try {
+        jdbcTemplate.batchUpdate(UPDATE_LAST_ACCESS_TIME_QUERY, batch);
+      } catch (DataAccessException e) {
+        // the sessions may have been touched again meanwhile; keep the later time
+        flushed.forEach((id, touch) -> touches.merge(id, touch, Touch::later));
+        throw e;
+      }
+      log.debug("wrote the last access times of {} session(s)", batch.size());
+    }
+    return batch.size();
+  }
+
+  /**
+   * A session of the other repository, whose last access time is kept apart from it so that
+   * touching it does not count as a change.
+   *
+   * @param <S> the type of the session
+   */
+  public static class TouchedSession<S extends Session> implements Session {
+    private final S delegate;
+
+    private Instant lastAccessedTime;
+
+    /** Whether the session must be saved: it is new, or more than its access time changed. */
+    private boolean changed;
+
+    TouchedSession(S delegate) {
+      this.delegate = delegate;
+      this.lastAccessedTime = delegate.getLastAccessedTime();
+    }
+
+    @Override
+    public String getId() {
+      return delegate.getId();
+    }
+
+    @Override
+    public String changeSessionId() {
+      changed = true;
+      return delegate.changeSessionId();
+    }
+
+    @Override
+    public <T> T getAttribute(String attributeName) {
+      return delegate.getAttribute(attributeName);
+    }
+
+    @Override
+    public Set<String> getAttributeNames() {
+      return delegate.getAttributeNames();
+    }
+
+    @Override
+    public void setAttribute(String attributeName, Object attributeValue) {
+      changed = true;
+      delegate.setAttribute(attributeName, attributeValue);
+    }
+
+    @Override
+    public void removeAttribute(String attributeName) {
+      changed = true;
+      delegate.removeAttribute(attributeName);
+    }
+
+    @Override
+    public Instant getCreationTime() {
+      return delegate.getCreationTime();
+    }
+
+    @Override
+    public void setLastAccessedTime(Instant lastAccessedTime) {
+      this.lastAccessedTime = lastAccessedTime;
+    }
+
+    @Override
+    public Instant getLastAccessedTime() {
+      return lastAccessedTime;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(Duration interval) {
+      changed = true;
+      delegate.setMaxInactiveInterval(interval);
+    }
+
+    @Override
+    public Duration getMaxInactiveInterval() {
+      return delegate.getMaxInactiveInterval();
+    }
+
+    @Override
+    public boolean isExpired() {
+      Duration maxInactiveInterval = getMaxInactiveInterval();
+      return !maxInactiveInterval.isNegative()
+          && !Instant.now().minus(maxInactiveInterval).isBefore(lastAccessedTime);
+    }
+  }
+}
@@ -1,20 +1,64 @@
 package edu.ucsb.cs156.example.controllers;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.ListingPage;
+import edu.ucsb.cs156.example.repositories.ListingRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.util.Streamable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.server.ResponseStatusException;
 
 /** This is an abstract class that provides common functionality for all API controllers. */
 @Slf4j
 public abstract class ApiController {
   @Autowired private CurrentUserService currentUserService;
 
+  @Autowired private ObjectMapper objectMapper;
+
+  @Value("${app.listing.maxPageSize:500}")
+  private int listingMaxPageSize;
+
+  @Value("${app.listing.allMaxRows:10000}")
+  private int listingAllMaxRows;
+
+  @Value("${app.crud.maxBatchSize:100000}")
+  private int crudMaxBatchSize;
+
+  @Value("${app.listing.cacheMaxBytes:8388608}")
+  private int listingCacheMaxBytes;
+
+  @Value("${app.listing.cacheTtlMs:5000}")
+  private long listingCacheTtlMs;
+
+  private final ListingResponseCache listingCache = new ListingResponseCache();
+
   /**
    * This method returns the current user.
    *
@@ -34,6 +78,151 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method returns the entities for an /all endpoint: every entity, but no more than
+   * app.listing.allMaxRows of them (0 for no limit). Clients that need more should use the
+   * endpoint's /page counterpart.
+   *
+   * @param <T> the entity type
+   * @param repository the repository of the entities
+   * @return the entities, as a page that has a next page if the listing was cut off
+   */
+  protected <T> Page<T> listAll(ListingRepository<T, ?> repository) {
+    if (listingAllMaxRows <= 0) {
+      return new PageImpl<>(Streamable.of(repository.findAll()).toList());
+    }
+    Page<T> page = repository.findAll(PageRequest.of(0, listingAllMaxRows));
+    if (page.hasNext()) {
+      log.warn(
+          "Listing truncated to {} of {} rows; use the /page endpoint",
+          listingAllMaxRows,
+          page.getTotalElements());
+    }
+    return page;
+  }
+
+  /**
+   * This method returns the response for an /all endpoint: the JSON of listAll, kept serialized
+   * (and gzipped) between requests until invalidateListing is called or app.listing.cacheTtlMs
+   * has passed, with an ETag so that clients polling with If-None-Match get 304 Not Modified
+   * while nothing has changed. A listing cut off at app.listing.allMaxRows rows carries an
+   * X-Result-Truncated: true header.
+   *
+   * @param <T> the entity type
+   * @param repository the repository of the entities
+   * @param request headers of the request, for Accept-Encoding and If-None-Match
+   * @return the response
+   * @throws IOException if the entities cannot be serialized
+   */
+  protected <T> ResponseEntity<byte[]> listAllCached(
+      ListingRepository<T, ?> repository, HttpHeaders request) throws IOException {
+    ListingResponseCache.Entry entry = listingCache.get(listingCacheTtlMs);
+    if (entry == null) {
+      long readAt = listingCache.generation();
+      Page<T> rows = listAll(repository);
+      byte[] json = objectMapper.writeValueAsBytes(rows.getContent());
+      entry = listingCache.store(readAt, json, rows.hasNext(), listingCacheMaxBytes);
+    }
+    return entry.toResponse(request);
+  }
+
+  /**
+   * This method drops the cached /all response (see listAllCached); write endpoints call it once
+   * their change is saved.
+   */
+  protected void invalidateListing() {
+    listingCache.invalidate();
+  }
+
+  /**
+   * This method saves the entities for a /post/batch endpoint, in one transaction. The inserts
+   * are sent to the database in JDBC batches (see hibernate.jdbc.batch_size), which is why the
+   * entities take their ids from sequences rather than identity columns.
+   *
+   * @param <T> the entity type
+   * @param repository the repository of the entities
+   * @param entities new entities, without ids
+   * @return the saved entities, with their ids
+   */
+  protected <T> Iterable<T> saveBatch(ListingRepository<T, ?> repository, List<T> entities) {
+    if (entities.size() > crudMaxBatchSize) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST,
+          "At most %d rows may be created at once".formatted(crudMaxBatchSize));
+    }
+    Iterable<T> saved = repository.saveAll(entities);
+    invalidateListing();
+    return saved;
+  }
+
+  /**
+   * This method returns one page of entities for a /page endpoint. Paging is by keyset: the cursor
+   * records the sort key and id of the last entity on the previous page, and the next page starts
+   * right after it, so a page deep into a large table costs no more than the first one.
+   *
+   * @param <T> the entity type
+   * @param repository the repository of the entities
+   * @param type the entity class
+   * @param sortable the properties the entities may be sorted by
+   * @param sort the property to sort by
+   * @param direction the sort direction
+   * @param cursor nextCursor from the previous page, or null for the first page
+   * @param size requested page size; at most app.listing.maxPageSize entities are returned
+   * @return the page
+   * @throws ResponseStatusException (400) if the sort property or the cursor is not valid
+   */
+  protected <T> ListingPage<T> listPage(
+      ListingRepository<T, ?> repository,
+      Class<T> type,
+      Set<String> sortable,
+      String sort,
+      Sort.Direction direction,
+      String cursor,
+      int size) {
+    if (!sortable.contains(sort)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot sort by " + sort);
+    }
+    int pageSize = Math.max(1, Math.min(size, listingMaxPageSize));
+    KeysetScrollPosition position =
+        cursor == null ? ScrollPosition.keyset() : decodeCursor(cursor, type, sort);
+
+    Window<T> window = repository.findBy(position, Sort.by(direction, sort), Limit.of(pageSize));
+    String nextCursor =
+        window.hasNext() ? encodeCursor(window.positionAt(window.size() - 1)) : null;
+    return ListingPage.<T>builder().items(window.getContent()).nextCursor(nextCursor).build();
+  }
+
+  private String encodeCursor(ScrollPosition position) {
+    Map<String, Object> keys = ((KeysetScrollPosition) position).getKeys();
+    String json = objectMapper.valueToTree(keys).toString();
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private KeysetScrollPosition decodeCursor(String cursor, Class<?> type, String sort) {
+    try {
+      Map<String, Object> keys =
+          objectMapper.readValue(
+              Base64.getUrlDecoder().decode(cursor), new TypeReference<Map<String, Object>>() {});
+      if (!keys.containsKey(sort)) {
+        throw new IllegalArgumentException("cursor is for another sort order");
+      }
+      // JSON loses the types of the keys (dates become strings), so restore them from the entity
+      Map<String, Object> typedKeys = new LinkedHashMap<>();
+      for (Map.Entry<String, Object> key : keys.entrySet()) {
+        Field field = ReflectionUtils.findField(type, key.getKey());
+        if (field == null) {
+          throw new IllegalArgumentException("unknown key " + key.getKey());
+        }
+        typedKeys.put(key.getKey(), objectMapper.convertValue(key.getValue(), field.getType()));
+      }
+      return ScrollPosition.forward(typedKeys);
+    } catch (IOException | IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor", e);
+    }
+  }
+
   /**
    * This method handles the EntityNotFoundException.
    *
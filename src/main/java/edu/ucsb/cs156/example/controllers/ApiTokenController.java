@@ -0,0 +1,54 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.models.ApiToken;
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.services.ApiTokenService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * This is a REST controller that issues bearer tokens, for machine clients of the API (see
+ * ApiTokenService).
+ */
+@Tag(name = "API Tokens")
+@RequestMapping("/api/tokens")
+@RestController
+public class ApiTokenController extends ApiController {
+
+  @Autowired ApiTokenService apiTokenService;
+
+  /**
+   * This method issues a token for the current user, with their current roles. It must be called
+   * from a logged-in session: a token cannot be used to get another one, so that every token
+   * expires.
+   *
+   * @return the token
+   */
+  @Operation(summary = "Get a bearer token for the current user")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @PostMapping("")
+  public ApiToken issueToken() {
+    if (!apiTokenService.isEnabled()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "API tokens are not enabled");
+    }
+    if (SecurityContextHolder.getContext().getAuthentication()
+        instanceof JwtAuthenticationToken) {
+      throw new ResponseStatusException(
+          HttpStatus.FORBIDDEN, "A token cannot be used to get another token");
+    }
+    CurrentUser currentUser = getCurrentUser();
+    return ApiToken.builder()
+        .token(apiTokenService.issue(currentUser.getUser(), currentUser.getRoles()))
+        .expiresInSeconds(apiTokenService.getTtlSeconds())
+        .build();
+  }
+}
@@ -3,24 +3,34 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.Article;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /* This is a REST controller for Articles */
 
@@ -32,6 +42,10 @@ public class ArticlesController extends ApiController {
 
   @Autowired ArticleRepository articleRepository;
 
+  @Autowired EntityExporter entityExporter;
+
+  private static final Set<String> SORTABLE = Set.of("id", "title", "dateAdded");
+
   /**
    * List all Articles
    *
@@ -40,9 +54,49 @@ public class ArticlesController extends ApiController {
   @Operation(summary = "List all articles")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<Article> allArticles() {
-    Iterable<Article> articles = articleRepository.findAll();
-    return articles;
+  public ResponseEntity<byte[]> allArticles(
+      @Parameter(hidden = true) @RequestHeader HttpHeaders headers) throws IOException {
+    return listAllCached(articleRepository, headers);
+  }
+
+  /**
+   * This method returns articles a page at a time.
+   *
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @param cursor nextCursor from the previous page, or null for the first page
+   * @param size number of articles per page
+   * @return a page of articles
+   */
+  @Operation(summary = "List articles a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public ListingPage<Article> pageArticles(
+      @Parameter(name = "sort", description = "one of id, title, dateAdded")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction") @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+      @Parameter(name = "cursor", description = "nextCursor from the previous page")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(name = "size") @RequestParam(defaultValue = "50") int size) {
+    return listPage(articleRepository, Article.class, SORTABLE, sort, direction, cursor, size);
+  }
+
+  /**
+   * This method streams all the articles as a JSON array, or as one JSON object per line (NDJSON),
+   * without loading them all into memory first.
+   *
+   * @param format JSON or NDJSON
+   * @return a response that writes the articles as they are read
+   */
+  @Operation(summary = "Export all articles")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportArticles(
+      @Parameter(name = "format") @RequestParam(defaultValue = "JSON")
+          EntityExporter.Format format) {
+    return entityExporter.export(articleRepository::streamAll, format);
   }
 
   /**
@@ -82,9 +136,24 @@ public class ArticlesController extends ApiController {
 
     Article savedArticle = articleRepository.save(article);
 
+    invalidateListing();
     return savedArticle;
   }
 
+  /**
+   * Create many articles at once, with batched inserts
+   *
+   * @param articles the new articles; any ids given are ignored
+   * @return the saved articles
+   */
+  @Operation(summary = "Create many articles at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/post/batch")
+  public Iterable<Article> postArticlesBatch(@RequestBody List<Article> articles) {
+    articles.forEach(article -> article.setId(0));
+    return saveBatch(articleRepository, articles);
+  }
+
   /**
    * Get a single article by id
    *
@@ -129,6 +198,7 @@ public class ArticlesController extends ApiController {
 
     articleRepository.save(article);
 
+    invalidateListing();
     return article;
   }
 
@@ -148,6 +218,7 @@ public class ArticlesController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(Article.class, id));
 
     articleRepository.delete(article);
+    invalidateListing();
     return genericMessage("Article with id %s deleted".formatted(id));
   }
 }
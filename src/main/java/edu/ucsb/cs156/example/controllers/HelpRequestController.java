@@ -3,24 +3,34 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for HelpRequest */
 @Tag(name = "HelpRequests")
@@ -31,6 +41,10 @@ public class HelpRequestController extends ApiController {
 
   @Autowired HelpRequestRepository helpRequestRepository;
 
+  @Autowired EntityExporter entityExporter;
+
+  private static final Set<String> SORTABLE = Set.of("id", "requestTime", "requesterEmail");
+
   /**
    * List all HelpRequests
    *
@@ -39,9 +53,50 @@ public class HelpRequestController extends ApiController {
   @Operation(summary = "List all ucsb help requests")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<HelpRequest> allHelpRequests() {
-    Iterable<HelpRequest> helprequests = helpRequestRepository.findAll();
-    return helprequests;
+  public ResponseEntity<byte[]> allHelpRequests(
+      @Parameter(hidden = true) @RequestHeader HttpHeaders headers) throws IOException {
+    return listAllCached(helpRequestRepository, headers);
+  }
+
+  /**
+   * This method returns help requests a page at a time.
+   *
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @param cursor nextCursor from the previous page, or null for the first page
+   * @param size number of help requests per page
+   * @return a page of help requests
+   */
+  @Operation(summary = "List help requests a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public ListingPage<HelpRequest> pageHelpRequests(
+      @Parameter(name = "sort", description = "one of id, requestTime, requesterEmail")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction") @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+      @Parameter(name = "cursor", description = "nextCursor from the previous page")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(name = "size") @RequestParam(defaultValue = "50") int size) {
+    return listPage(
+        helpRequestRepository, HelpRequest.class, SORTABLE, sort, direction, cursor, size);
+  }
+
+  /**
+   * This method streams all the help requests as a JSON array, or as one JSON object per line
+   * (NDJSON), without loading them all into memory first.
+   *
+   * @param format JSON or NDJSON
+   * @return a response that writes the help requests as they are read
+   */
+  @Operation(summary = "Export all help requests")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportHelpRequests(
+      @Parameter(name = "format") @RequestParam(defaultValue = "JSON")
+          EntityExporter.Format format) {
+    return entityExporter.export(helpRequestRepository::streamAll, format);
   }
 
   /**
@@ -105,9 +160,24 @@ public class HelpRequestController extends ApiController {
     helpRequest.setSolved(solved);
     HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
 
+    invalidateListing();
     return savedHelpRequest;
   }
 
+  /**
+   * Create many help requests at once, with batched inserts
+   *
+   * @param helpRequests the new help requests; any ids given are ignored
+   * @return the saved help requests
+   */
+  @Operation(summary = "Create many help requests at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/post/batch")
+  public Iterable<HelpRequest> postHelpRequestsBatch(@RequestBody List<HelpRequest> helpRequests) {
+    helpRequests.forEach(helpRequest -> helpRequest.setId(0));
+    return saveBatch(helpRequestRepository, helpRequests);
+  }
+
   /**
    * Update a single helprequest
    *
@@ -126,6 +196,7 @@ public class HelpRequestController extends ApiController {
     }
 
     helpRequestRepository.save(incoming);
+    invalidateListing();
     return incoming;
   }
 
@@ -145,6 +216,7 @@ public class HelpRequestController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
 
     helpRequestRepository.delete(helpRequest);
+    invalidateListing();
     return genericMessage("HelpRequest with id %s deleted".formatted(id));
   }
 }
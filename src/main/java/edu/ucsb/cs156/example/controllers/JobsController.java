@@ -5,22 +5,41 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobLogChunk;
+import edu.ucsb.cs156.example.models.JobSpec;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.JobSummaryPage;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import edu.ucsb.cs156.example.services.jobs.JobPriority;
 import edu.ucsb.cs156.example.services.jobs.JobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Tag(name = "Jobs")
 @RequestMapping("/api/jobs")
@@ -33,6 +52,19 @@ public class JobsController extends ApiController {
 
   @Autowired ObjectMapper mapper;
 
+  @Value("${app.jobs.list.maxPageSize:500}")
+  private int maxPageSize;
+
+  @Value("${app.jobs.launch.maxBatchSize:1000}")
+  private int maxBatchSize;
+
+  /** Length of the jobs.idempotency_key column. */
+  private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+  /** Jobs that may be launched through /launch/batch, by the type name used in requests. */
+  private static final Map<String, Class<? extends JobContextConsumer>> LAUNCHABLE_JOBS =
+      Map.of("testjob", TestJob.class);
+
   @Operation(summary = "List all jobs")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/all")
@@ -41,6 +73,39 @@ public class JobsController extends ApiController {
     return jobs;
   }
 
+  @Operation(summary = "List jobs a page at a time, newest first, without their logs")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/page")
+  public JobSummaryPage pageJobs(
+      @Parameter(name = "status", description = "only jobs with this status, e.g. running")
+          @RequestParam(required = false)
+          String status,
+      @Parameter(
+              name = "createdAfter",
+              description = "only jobs created at or after this time (ISO 8601, with offset)")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdAfter,
+      @Parameter(name = "createdBefore", description = "only jobs created before this time")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdBefore,
+      @Parameter(
+              name = "beforeId",
+              description = "pass nextBeforeId from the previous page; omit for the first page")
+          @RequestParam(required = false)
+          Long beforeId,
+      @Parameter(name = "size", description = "jobs per page") @RequestParam(defaultValue = "50")
+          int size) {
+
+    int pageSize = Math.max(1, Math.min(size, maxPageSize));
+    List<JobSummary> jobs =
+        jobsRepository.findSummaries(
+            status, createdAfter, createdBefore, beforeId, PageRequest.of(0, pageSize));
+    Long nextBeforeId = jobs.size() < pageSize ? null : jobs.get(jobs.size() - 1).getId();
+    return JobSummaryPage.builder().jobs(jobs).nextBeforeId(nextBeforeId).build();
+  }
+
   @Operation(summary = "Delete all job records")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("/all")
@@ -73,15 +138,97 @@ public class JobsController extends ApiController {
     return Map.of("message", String.format("Job with id %d deleted", id));
   }
 
+  @Operation(summary = "Cancel a queued or running job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/cancel")
+  public Map<String, String> cancelJob(
+      @Parameter(name = "id", description = "ID of the job") @RequestParam Long id) {
+    return Map.of("message", jobService.cancelJob(id));
+  }
+
   @Operation(summary = "Launch Test Job (click fail if you want to test exception handling)")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/launch/testjob")
   public Job launchTestJob(
       @Parameter(name = "fail") @RequestParam Boolean fail,
-      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs) {
+      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs,
+      @Parameter(name = "priority", description = "BULK, NORMAL or INTERACTIVE")
+          @RequestParam(defaultValue = "NORMAL")
+          JobPriority priority,
+      @Parameter(
+              name = "Idempotency-Key",
+              in = ParameterIn.HEADER,
+              description = "retries with the same key return the job started by the first request")
+          @RequestHeader(name = "Idempotency-Key", required = false)
+          String idempotencyKeyHeader,
+      @Parameter(name = "idempotencyKey", description = "same as the Idempotency-Key header")
+          @RequestParam(required = false)
+          String idempotencyKey) {
 
+    String key = idempotencyKeyHeader != null ? idempotencyKeyHeader : idempotencyKey;
+    if (key != null && key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST,
+          "Idempotency key longer than %d characters".formatted(MAX_IDEMPOTENCY_KEY_LENGTH));
+    }
     TestJob testJob = TestJob.builder().fail(fail).sleepMs(sleepMs).build();
-    return jobService.runAsJob(testJob);
+    return jobService.runAsJob(testJob, priority, key);
+  }
+
+  @Operation(
+      summary = "Launch many jobs in one request, e.g. [{type: testjob, params: {...}}]",
+      description =
+          "A job may be given a name, and dependsOn, a list of names of jobs earlier in the"
+              + " request; it then starts once those have all completed, and is skipped if one"
+              + " of them fails.")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/launch/batch")
+  public List<Job> launchJobs(
+      @Parameter(name = "priority", description = "BULK, NORMAL or INTERACTIVE")
+          @RequestParam(defaultValue = "NORMAL")
+          JobPriority priority,
+      @RequestBody List<JobSpec> specs) {
+
+    if (specs.size() > maxBatchSize) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST,
+          "At most %d jobs may be launched at once".formatted(maxBatchSize));
+    }
+    List<JobContextConsumer> jobs = new ArrayList<>();
+    Map<String, Integer> indexByName = new HashMap<>();
+    Map<Integer, List<Integer>> dependsOn = new HashMap<>();
+    for (JobSpec spec : specs) {
+      if (spec.getDependsOn() != null) {
+        List<Integer> parents = new ArrayList<>();
+        for (String parent : spec.getDependsOn()) {
+          Integer index = indexByName.get(parent);
+          if (index == null) {
+            throw new ResponseStatusException(
+                HttpStatus.BAD_REQUEST,
+                "Job %s must follow the job %s it depends on".formatted(spec.getName(), parent));
+          }
+          parents.add(index);
+        }
+        dependsOn.put(jobs.size(), parents);
+      }
+      if (spec.getName() != null && indexByName.putIfAbsent(spec.getName(), jobs.size()) != null) {
+        throw new ResponseStatusException(
+            HttpStatus.BAD_REQUEST, "Duplicate job name: " + spec.getName());
+      }
+      Class<? extends JobContextConsumer> type = LAUNCHABLE_JOBS.get(spec.getType());
+      if (type == null) {
+        throw new ResponseStatusException(
+            HttpStatus.BAD_REQUEST, "Unknown job type: " + spec.getType());
+      }
+      Map<String, Object> params = spec.getParams() != null ? spec.getParams() : Map.of();
+      try {
+        jobs.add(mapper.convertValue(params, type));
+      } catch (IllegalArgumentException e) {
+        throw new ResponseStatusException(
+            HttpStatus.BAD_REQUEST, "Invalid params for " + spec.getType(), e);
+      }
+    }
+    return jobService.runAsJobs(jobs, dependsOn, priority);
   }
 
   @Operation(summary = "Get long job logs")
@@ -91,4 +238,34 @@ public class JobsController extends ApiController {
 
     return jobService.getJobLogs(id);
   }
+
+  @Operation(summary = "Get the job log lines written since a given line (for polling clients)")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/logs/{id}/lines")
+  public JobLogChunk getJobLogLines(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(
+              name = "fromLine",
+              description = "first line to return; pass nextLine from the last response")
+          @RequestParam(defaultValue = "0")
+          int fromLine) {
+
+    return jobService.getJobLogLines(id, fromLine);
+  }
+
+  @Operation(summary = "Stream job log lines as Server-Sent Events until the job finishes")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/logs/{id}/stream")
+  public SseEmitter streamJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "fromLine", description = "first line to send")
+          @RequestParam(defaultValue = "0")
+          int fromLine,
+      @Parameter(hidden = true) @RequestHeader(name = "Last-Event-ID", required = false)
+          Integer lastEventId) {
+
+    // a reconnecting EventSource resumes after the last line it received
+    int start = lastEventId != null ? lastEventId + 1 : fromLine;
+    return jobService.streamJobLogs(id, start);
+  }
 }
@@ -0,0 +1,163 @@
+package edu.ucsb.cs156.example.controllers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+/**
+ * This class keeps the serialized body of one controller's /all response, so that repeated
+ * requests cost neither a query nor serialization until one of the controller's write endpoints
+ * invalidates it.
+ *
+ * <p>The body is kept both as it is and gzipped, each with a strong ETag; a request whose
+ * If-None-Match names the ETag is answered with 304 Not Modified and no body.
+ *
+ * <p>Invalidation only reaches the cache of this instance, so a body is also dropped once it is
+ * older than a TTL; other instances behind the same database serve a stale listing for no longer
+ * than that.
+ */
+final class ListingResponseCache {
+
+  /** Header set to "true" on a response that lists only the first app.listing.allMaxRows rows. */
+  static final String TRUNCATED_HEADER = "X-Result-Truncated";
+
+  /**
+   * The serialized body of a response and its gzipped variant.
+   *
+   * @param truncated whether the body lists only some of the rows
+   */
+  record Entry(byte[] json, String etag, byte[] gzip, String gzipEtag, boolean truncated) {
+
+    /**
+     * This method builds the response for a request, choosing the variant by Accept-Encoding.
+     *
+     * @param request headers of the request
+     * @return the response
+     */
+    ResponseEntity<byte[]> toResponse(HttpHeaders request) {
+      boolean gzipped = gzip != null && acceptsGzip(request);
+      String tag = gzipped ? gzipEtag : etag;
+      boolean notModified = matches(request, tag);
+      ResponseEntity.BodyBuilder response =
+          ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+              .eTag(tag)
+              .cacheControl(CacheControl.noCache().cachePrivate())
+              .varyBy(HttpHeaders.ACCEPT_ENCODING);
+      if (truncated) {
+        response.header(TRUNCATED_HEADER, "true");
+      }
+      if (notModified) {
+        return response.build();
+      }
+      if (gzipped) {
+        response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+      }
+      return response.contentType(MediaType.APPLICATION_JSON).body(gzipped ? gzip : json);
+    }
+  }
+
+  /** A cached entry and when it was stored, in System.nanoTime() terms. */
+  private record Cached(Entry entry, long storedAt) {}
+
+  private volatile Cached cached;
+
+  private volatile long generation;
+
+  /**
+   * This method returns the cached entry, unless it has been cached for ttlMs or longer.
+   *
+   * @param ttlMs how long an entry is served for
+   * @return the cached entry, or null if there is none
+   */
+  Entry get(long ttlMs) {
+    Cached current = cached;
+    if (current == null || System.nanoTime() - current.storedAt() >= ttlMs * 1_000_000) {
+      return null;
+    }
+    return current.entry();
+  }
+
+  /**
+   * This method returns the generation to pass to store for a body that is about to be built.
+   *
+   * @return the current generation
+   */
+  long generation() {
+    return generation;
+  }
+
+  /**
+   * This method caches a body, unless the cache was invalidated after generation() was read (the
+   * body may then predate the write) or the body is larger than maxBytes.
+   *
+   * @param readAt what generation() returned before the body was read from the database
+   * @param json the serialized body
+   * @param truncated whether the body lists only some of the rows
+   * @param maxBytes largest body that is cached
+   * @return an entry for the body, whether it was cached or not
+   * @throws IOException if the body cannot be gzipped
+   */
+  Entry store(long readAt, byte[] json, boolean truncated, int maxBytes) throws IOException {
+    Entry built = build(json, truncated);
+    if (json.length <= maxBytes) {
+      // checked under the lock that invalidate holds, so no invalidation can slip in between
+      synchronized (this) {
+        if (generation == readAt) {
+          cached = new Cached(built, System.nanoTime());
+        }
+      }
+    }
+    return built;
+  }
+
+  /** This method drops the cached body; it is called after every write to the listed entity. */
+  synchronized void invalidate() {
+    generation++;
+    cached = null;
+  }
+
+  static Entry build(byte[] json, boolean truncated) throws IOException {
+    ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+      out.write(json);
+    }
+    // md5 is enough to tell bodies apart; the ETag of each variant must differ (RFC 9110 8.8.3)
+    String digest = DigestUtils.md5DigestAsHex(json);
+    return gzip.size() < json.length
+        ? new Entry(
+            json,
+            "\"" + digest + "\"",
+            gzip.toByteArray(),
+            "\"" + digest + "-gzip\"",
+            truncated)
+        : new Entry(json, "\"" + digest + "\"", null, null, truncated);
+  }
+
+  static boolean acceptsGzip(HttpHeaders request) {
+    for (String header : request.getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+      for (String coding : header.split(",")) {
+        String[] parts = coding.trim().split(";");
+        if (parts[0].trim().equalsIgnoreCase("gzip")
+            && !(parts.length > 1 && parts[1].replace(" ", "").matches("q=0(\\.0*)?"))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  static boolean matches(HttpHeaders request, String etag) {
+    for (String tag : request.getIfNoneMatch()) {
+      if (tag.equals("*") || tag.replaceFirst("^W/", "").equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -3,24 +3,34 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for MenuItemReviw */
 @Tag(name = "MenuItemReview")
@@ -31,6 +41,10 @@ public class MenuItemReviewController extends ApiController {
 
   @Autowired MenuItemReviewRepository menuItemReviewRepository;
 
+  @Autowired EntityExporter entityExporter;
+
+  private static final Set<String> SORTABLE = Set.of("id", "itemId", "stars", "dateReviewed");
+
   /**
    * List all MenuItemReviews
    *
@@ -39,9 +53,50 @@ public class MenuItemReviewController extends ApiController {
   @Operation(summary = "List all menu item reviews")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<MenuItemReview> allMenuItemReviews() {
-    Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
-    return reviews;
+  public ResponseEntity<byte[]> allMenuItemReviews(
+      @Parameter(hidden = true) @RequestHeader HttpHeaders headers) throws IOException {
+    return listAllCached(menuItemReviewRepository, headers);
+  }
+
+  /**
+   * This method returns menu item reviews a page at a time.
+   *
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @param cursor nextCursor from the previous page, or null for the first page
+   * @param size number of menu item reviews per page
+   * @return a page of menu item reviews
+   */
+  @Operation(summary = "List menu item reviews a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public ListingPage<MenuItemReview> pageMenuItemReviews(
+      @Parameter(name = "sort", description = "one of id, itemId, stars, dateReviewed")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction") @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+      @Parameter(name = "cursor", description = "nextCursor from the previous page")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(name = "size") @RequestParam(defaultValue = "50") int size) {
+    return listPage(
+        menuItemReviewRepository, MenuItemReview.class, SORTABLE, sort, direction, cursor, size);
+  }
+
+  /**
+   * This method streams all the menu item reviews as a JSON array, or as one JSON object per line
+   * (NDJSON), without loading them all into memory first.
+   *
+   * @param format JSON or NDJSON
+   * @return a response that writes the menu item reviews as they are read
+   */
+  @Operation(summary = "Export all menu item reviews")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportMenuItemReviews(
+      @Parameter(name = "format") @RequestParam(defaultValue = "JSON")
+          EntityExporter.Format format) {
+    return entityExporter.export(menuItemReviewRepository::streamAll, format);
   }
 
   /**
@@ -85,9 +140,25 @@ public class MenuItemReviewController extends ApiController {
 
     MenuItemReview savedMenuItemReview = menuItemReviewRepository.save(menuItemReview);
 
+    invalidateListing();
     return savedMenuItemReview;
   }
 
+  /**
+   * Create many menu item reviews at once, with batched inserts
+   *
+   * @param reviews the new menu item reviews; any ids given are ignored
+   * @return the saved menu item reviews
+   */
+  @Operation(summary = "Create many menu item reviews at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/post/batch")
+  public Iterable<MenuItemReview> postMenuItemReviewsBatch(
+      @RequestBody List<MenuItemReview> reviews) {
+    reviews.forEach(review -> review.setId(0));
+    return saveBatch(menuItemReviewRepository, reviews);
+  }
+
   /**
    * Get a single menu item review by id
    *
@@ -132,6 +203,7 @@ public class MenuItemReviewController extends ApiController {
 
     menuItemReviewRepository.save(menuItemReview);
 
+    invalidateListing();
     return menuItemReview;
   }
 
@@ -151,6 +223,7 @@ public class MenuItemReviewController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
     menuItemReviewRepository.delete(menuItemReview);
+    invalidateListing();
     return genericMessage("MenuItemReview with id %s deleted".formatted(id));
   }
 }
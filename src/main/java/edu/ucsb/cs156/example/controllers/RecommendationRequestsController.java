@@ -3,24 +3,34 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for RecommendationRequests */
 @Tag(name = "RecommendationRequests")
@@ -31,6 +41,10 @@ public class RecommendationRequestsController extends ApiController {
 
   @Autowired RecommendationRequestRepository recommendationRequestRepository;
 
+  @Autowired EntityExporter entityExporter;
+
+  private static final Set<String> SORTABLE = Set.of("id", "dateRequested", "dateNeeded");
+
   /**
    * List all RecommendationRequests
    *
@@ -39,9 +53,56 @@ public class RecommendationRequestsController extends ApiController {
   @Operation(summary = "List all recommendation requests")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<RecommendationRequest> allRecommendationRequests() {
-    Iterable<RecommendationRequest> requests = recommendationRequestRepository.findAll();
-    return requests;
+  public ResponseEntity<byte[]> allRecommendationRequests(
+      @Parameter(hidden = true) @RequestHeader HttpHeaders headers) throws IOException {
+    return listAllCached(recommendationRequestRepository, headers);
+  }
+
+  /**
+   * This method returns recommendation requests a page at a time.
+   *
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @param cursor nextCursor from the previous page, or null for the first page
+   * @param size number of recommendation requests per page
+   * @return a page of recommendation requests
+   */
+  @Operation(summary = "List recommendation requests a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public ListingPage<RecommendationRequest> pageRecommendationRequests(
+      @Parameter(name = "sort", description = "one of id, dateRequested, dateNeeded")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction") @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+      @Parameter(name = "cursor", description = "nextCursor from the previous page")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(name = "size") @RequestParam(defaultValue = "50") int size) {
+    return listPage(
+        recommendationRequestRepository,
+        RecommendationRequest.class,
+        SORTABLE,
+        sort,
+        direction,
+        cursor,
+        size);
+  }
+
+  /**
+   * This method streams all the recommendation requests as a JSON array, or as one JSON object per
+   * line (NDJSON), without loading them all into memory first.
+   *
+   * @param format JSON or NDJSON
+   * @return a response that writes the recommendation requests as they are read
+   */
+  @Operation(summary = "Export all recommendation requests")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportRecommendationRequests(
+      @Parameter(name = "format") @RequestParam(defaultValue = "JSON")
+          EntityExporter.Format format) {
+    return entityExporter.export(recommendationRequestRepository::streamAll, format);
   }
 
   /**
@@ -98,9 +159,25 @@ public class RecommendationRequestsController extends ApiController {
     RecommendationRequest savedRecommendationRequest =
         recommendationRequestRepository.save(recommendationRequest);
 
+    invalidateListing();
     return savedRecommendationRequest;
   }
 
+  /**
+   * Create many recommendation requests at once, with batched inserts
+   *
+   * @param requests the new recommendation requests; any ids given are ignored
+   * @return the saved recommendation requests
+   */
+  @Operation(summary = "Create many recommendation requests at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/post/batch")
+  public Iterable<RecommendationRequest> postRecommendationRequestsBatch(
+      @RequestBody List<RecommendationRequest> requests) {
+    requests.forEach(request -> request.setId(0));
+    return saveBatch(recommendationRequestRepository, requests);
+  }
+
   /**
    * Get a single recommendation request by id
    *
@@ -147,6 +224,7 @@ public class RecommendationRequestsController extends ApiController {
 
     recommendationRequestRepository.save(recommendationRequest);
 
+    invalidateListing();
     return recommendationRequest;
   }
 
@@ -166,6 +244,7 @@ public class RecommendationRequestsController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
 
     recommendationRequestRepository.delete(recommendationRequest);
+    invalidateListing();
     return genericMessage("RecommendationRequest with id %s deleted".formatted(id));
   }
 }
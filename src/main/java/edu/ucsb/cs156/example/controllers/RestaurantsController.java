@@ -2,21 +2,31 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for Restaurants */
 @Tag(name = "Restaurants")
@@ -26,6 +36,10 @@ public class RestaurantsController extends ApiController {
 
   @Autowired RestaurantRepository restaurantRepository;
 
+  @Autowired EntityExporter entityExporter;
+
+  private static final Set<String> SORTABLE = Set.of("id", "name");
+
   /**
    * This method returns a list of all restaurants.
    *
@@ -34,9 +48,50 @@ public class RestaurantsController extends ApiController {
   @Operation(summary = "List all restaurants")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<Restaurant> allRestaurants() {
-    Iterable<Restaurant> restaurants = restaurantRepository.findAll();
-    return restaurants;
+  public ResponseEntity<byte[]> allRestaurants(
+      @Parameter(hidden = true) @RequestHeader HttpHeaders headers) throws IOException {
+    return listAllCached(restaurantRepository, headers);
+  }
+
+  /**
+   * This method returns restaurants a page at a time.
+   *
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @param cursor nextCursor from the previous page, or null for the first page
+   * @param size number of restaurants per page
+   * @return a page of restaurants
+   */
+  @Operation(summary = "List restaurants a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public ListingPage<Restaurant> pageRestaurants(
+      @Parameter(name = "sort", description = "one of id, name")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction") @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+      @Parameter(name = "cursor", description = "nextCursor from the previous page")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(name = "size") @RequestParam(defaultValue = "50") int size) {
+    return listPage(
+        restaurantRepository, Restaurant.class, SORTABLE, sort, direction, cursor, size);
+  }
+
+  /**
+   * This method streams all the restaurants as a JSON array, or as one JSON object per line
+   * (NDJSON), without loading them all into memory first.
+   *
+   * @param format JSON or NDJSON
+   * @return a response that writes the restaurants as they are read
+   */
+  @Operation(summary = "Export all restaurants")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportRestaurants(
+      @Parameter(name = "format") @RequestParam(defaultValue = "JSON")
+          EntityExporter.Format format) {
+    return entityExporter.export(restaurantRepository::streamAll, format);
   }
 
   /**
@@ -76,9 +131,24 @@ public class RestaurantsController extends ApiController {
     restaurant.setDescription(description);
 
     Restaurant savedrestaurant = restaurantRepository.save(restaurant);
+    invalidateListing();
     return savedrestaurant;
   }
 
+  /**
+   * Create many restaurants at once, with batched inserts
+   *
+   * @param restaurants the new restaurants; any ids given are ignored
+   * @return the saved restaurants
+   */
+  @Operation(summary = "Create many restaurants at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/post/batch")
+  public Iterable<Restaurant> postRestaurantsBatch(@RequestBody List<Restaurant> restaurants) {
+    restaurants.forEach(restaurant -> restaurant.setId(0));
+    return saveBatch(restaurantRepository, restaurants);
+  }
+
   /**
    * Deletes a restaurant. Accessible only to users with the role "ROLE_ADMIN".
    *
@@ -95,6 +165,7 @@ public class RestaurantsController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
 
     restaurantRepository.delete(restaurant);
+    invalidateListing();
     return genericMessage("Restaurant with id %s deleted".formatted(id));
   }
 
@@ -121,6 +192,7 @@ public class RestaurantsController extends ApiController {
 
     restaurantRepository.save(restaurant);
 
+    invalidateListing();
     return restaurant;
   }
 }
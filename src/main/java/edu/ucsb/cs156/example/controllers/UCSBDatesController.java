@@ -3,24 +3,35 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for UCSBDates */
 @Tag(name = "UCSBDates")
@@ -31,6 +42,10 @@ public class UCSBDatesController extends ApiController {
 
   @Autowired UCSBDateRepository ucsbDateRepository;
 
+  @Autowired EntityExporter entityExporter;
+
+  private static final Set<String> SORTABLE = Set.of("id", "quarterYYYYQ", "localDateTime");
+
   /**
    * List all UCSB dates
    *
@@ -39,9 +54,49 @@ public class UCSBDatesController extends ApiController {
   @Operation(summary = "List all ucsb dates")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDate> allUCSBDates() {
-    Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-    return dates;
+  public ResponseEntity<byte[]> allUCSBDates(
+      @Parameter(hidden = true) @RequestHeader HttpHeaders headers) throws IOException {
+    return listAllCached(ucsbDateRepository, headers);
+  }
+
+  /**
+   * This method returns ucsb dates a page at a time.
+   *
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @param cursor nextCursor from the previous page, or null for the first page
+   * @param size number of ucsb dates per page
+   * @return a page of ucsb dates
+   */
+  @Operation(summary = "List ucsb dates a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public ListingPage<UCSBDate> pageUCSBDates(
+      @Parameter(name = "sort", description = "one of id, quarterYYYYQ, localDateTime")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction") @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+      @Parameter(name = "cursor", description = "nextCursor from the previous page")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(name = "size") @RequestParam(defaultValue = "50") int size) {
+    return listPage(ucsbDateRepository, UCSBDate.class, SORTABLE, sort, direction, cursor, size);
+  }
+
+  /**
+   * This method streams all the ucsb dates as a JSON array, or as one JSON object per line
+   * (NDJSON), without loading them all into memory first.
+   *
+   * @param format JSON or NDJSON
+   * @return a response that writes the ucsb dates as they are read
+   */
+  @Operation(summary = "Export all ucsb dates")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportUCSBDates(
+      @Parameter(name = "format") @RequestParam(defaultValue = "JSON")
+          EntityExporter.Format format) {
+    return entityExporter.export(ucsbDateRepository::streamAll, format);
   }
 
   /**
@@ -73,6 +128,7 @@ public class UCSBDatesController extends ApiController {
   @Operation(summary = "Create a new date")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/post")
+  @CacheEvict(cacheNames = UCSBDateRepository.CACHE, allEntries = true)
   public UCSBDate postUCSBDate(
       @Parameter(name = "quarterYYYYQ") @RequestParam String quarterYYYYQ,
       @Parameter(name = "name") @RequestParam String name,
@@ -97,9 +153,25 @@ public class UCSBDatesController extends ApiController {
 
     UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
 
+    invalidateListing();
     return savedUcsbDate;
   }
 
+  /**
+   * Create many dates at once, with batched inserts
+   *
+   * @param dates the new dates; any ids given are ignored
+   * @return the saved dates
+   */
+  @Operation(summary = "Create many dates at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/post/batch")
+  @CacheEvict(cacheNames = UCSBDateRepository.CACHE, allEntries = true)
+  public Iterable<UCSBDate> postUCSBDatesBatch(@RequestBody List<UCSBDate> dates) {
+    dates.forEach(date -> date.setId(0));
+    return saveBatch(ucsbDateRepository, dates);
+  }
+
   /**
    * Delete a UCSBDate
    *
@@ -109,6 +181,7 @@ public class UCSBDatesController extends ApiController {
   @Operation(summary = "Delete a UCSBDate")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
+  @CacheEvict(cacheNames = UCSBDateRepository.CACHE, allEntries = true)
   public Object deleteUCSBDate(@Parameter(name = "id") @RequestParam Long id) {
     UCSBDate ucsbDate =
         ucsbDateRepository
@@ -116,6 +189,7 @@ public class UCSBDatesController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
     ucsbDateRepository.delete(ucsbDate);
+    invalidateListing();
     return genericMessage("UCSBDate with id %s deleted".formatted(id));
   }
 
@@ -129,13 +203,18 @@ public class UCSBDatesController extends ApiController {
   @Operation(summary = "Update a single date")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PutMapping("")
+  @CacheEvict(cacheNames = UCSBDateRepository.CACHE, allEntries = true)
   public UCSBDate updateUCSBDate(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid UCSBDate incoming) {
 
+    // findById may return the instance held in the cache, so the update is made on a copy; a
+    // failed save then leaves the cached row as it is in the database
     UCSBDate ucsbDate =
         ucsbDateRepository
             .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+            .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id))
+            .toBuilder()
+            .build();
 
     ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
     ucsbDate.setName(incoming.getName());
@@ -143,6 +222,7 @@ public class UCSBDatesController extends ApiController {
 
     ucsbDateRepository.save(ucsbDate);
 
+    invalidateListing();
     return ucsbDate;
   }
 }
@@ -2,22 +2,32 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for UCSBDiningCommons */
 @Tag(name = "UCSBDiningCommons")
@@ -28,6 +38,10 @@ public class UCSBDiningCommonsController extends ApiController {
 
   @Autowired UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+  @Autowired EntityExporter entityExporter;
+
+  private static final Set<String> SORTABLE = Set.of("code", "name");
+
   /**
    * THis method returns a list of all ucsbdiningcommons.
    *
@@ -36,9 +50,56 @@ public class UCSBDiningCommonsController extends ApiController {
   @Operation(summary = "List all ucsb dining commons")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDiningCommons> allCommonss() {
-    Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-    return commons;
+  public ResponseEntity<byte[]> allCommonss(
+      @Parameter(hidden = true) @RequestHeader HttpHeaders headers) throws IOException {
+    return listAllCached(ucsbDiningCommonsRepository, headers);
+  }
+
+  /**
+   * This method returns ucsb dining commons a page at a time.
+   *
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @param cursor nextCursor from the previous page, or null for the first page
+   * @param size number of ucsb dining commons per page
+   * @return a page of ucsb dining commons
+   */
+  @Operation(summary = "List ucsb dining commons a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public ListingPage<UCSBDiningCommons> pageCommons(
+      @Parameter(name = "sort", description = "one of code, name")
+          @RequestParam(defaultValue = "code")
+          String sort,
+      @Parameter(name = "direction") @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+      @Parameter(name = "cursor", description = "nextCursor from the previous page")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(name = "size") @RequestParam(defaultValue = "50") int size) {
+    return listPage(
+        ucsbDiningCommonsRepository,
+        UCSBDiningCommons.class,
+        SORTABLE,
+        sort,
+        direction,
+        cursor,
+        size);
+  }
+
+  /**
+   * This method streams all the ucsb dining commons as a JSON array, or as one JSON object per line
+   * (NDJSON), without loading them all into memory first.
+   *
+   * @param format JSON or NDJSON
+   * @return a response that writes the ucsb dining commons as they are read
+   */
+  @Operation(summary = "Export all ucsb dining commons")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportCommons(
+      @Parameter(name = "format") @RequestParam(defaultValue = "JSON")
+          EntityExporter.Format format) {
+    return entityExporter.export(ucsbDiningCommonsRepository::streamAll, format);
   }
 
   /**
@@ -74,6 +135,7 @@ public class UCSBDiningCommonsController extends ApiController {
   @Operation(summary = "Create a new commons")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/post")
+  @CacheEvict(cacheNames = UCSBDiningCommonsRepository.CACHE, allEntries = true)
   public UCSBDiningCommons postCommons(
       @Parameter(name = "code") @RequestParam String code,
       @Parameter(name = "name") @RequestParam String name,
@@ -94,6 +156,7 @@ public class UCSBDiningCommonsController extends ApiController {
 
     UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
 
+    invalidateListing();
     return savedCommons;
   }
 
@@ -106,6 +169,7 @@ public class UCSBDiningCommonsController extends ApiController {
   @Operation(summary = "Delete a UCSBDiningCommons")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
+  @CacheEvict(cacheNames = UCSBDiningCommonsRepository.CACHE, allEntries = true)
   public Object deleteCommons(@Parameter(name = "code") @RequestParam String code) {
     UCSBDiningCommons commons =
         ucsbDiningCommonsRepository
@@ -113,6 +177,7 @@ public class UCSBDiningCommonsController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
     ucsbDiningCommonsRepository.delete(commons);
+    invalidateListing();
     return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
   }
 
@@ -126,14 +191,18 @@ public class UCSBDiningCommonsController extends ApiController {
   @Operation(summary = "Update a single commons")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PutMapping("")
+  @CacheEvict(cacheNames = UCSBDiningCommonsRepository.CACHE, allEntries = true)
   public UCSBDiningCommons updateCommons(
       @Parameter(name = "code") @RequestParam String code,
       @RequestBody @Valid UCSBDiningCommons incoming) {
 
+    // a copy, so that a failed save does not change the commons held in the cache
     UCSBDiningCommons commons =
         ucsbDiningCommonsRepository
             .findById(code)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code))
+            .toBuilder()
+            .build();
 
     commons.setName(incoming.getName());
     commons.setHasSackMeal(incoming.getHasSackMeal());
@@ -144,6 +213,7 @@ public class UCSBDiningCommonsController extends ApiController {
 
     ucsbDiningCommonsRepository.save(commons);
 
+    invalidateListing();
     return commons;
   }
 }
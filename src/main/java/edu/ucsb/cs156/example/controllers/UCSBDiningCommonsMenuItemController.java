@@ -3,22 +3,32 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "UCSBDiningCommonsMenuItem")
 @RequestMapping("/api/ucsbdiningcommonsmenuitem")
@@ -27,6 +37,10 @@ import org.springframework.web.bind.annotation.RestController;
 public class UCSBDiningCommonsMenuItemController extends ApiController {
   @Autowired UCSBDiningCommonsMenuItemRepository UCSBDiningCommonsMenuItemRepository;
 
+  @Autowired EntityExporter entityExporter;
+
+  private static final Set<String> SORTABLE = Set.of("id", "diningCommonsCode", "name");
+
   /**
    * List all UCSB Menu Items
    *
@@ -35,9 +49,56 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
   @Operation(summary = "List all dining commons items")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItems() {
-    Iterable<UCSBDiningCommonsMenuItem> menuItems = UCSBDiningCommonsMenuItemRepository.findAll();
-    return menuItems;
+  public ResponseEntity<byte[]> allUCSBDiningCommonsMenuItems(
+      @Parameter(hidden = true) @RequestHeader HttpHeaders headers) throws IOException {
+    return listAllCached(UCSBDiningCommonsMenuItemRepository, headers);
+  }
+
+  /**
+   * This method returns dining commons items a page at a time.
+   *
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @param cursor nextCursor from the previous page, or null for the first page
+   * @param size number of dining commons items per page
+   * @return a page of dining commons items
+   */
+  @Operation(summary = "List dining commons items a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public ListingPage<UCSBDiningCommonsMenuItem> pageUCSBDiningCommonsMenuItems(
+      @Parameter(name = "sort", description = "one of id, diningCommonsCode, name")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction") @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+      @Parameter(name = "cursor", description = "nextCursor from the previous page")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(name = "size") @RequestParam(defaultValue = "50") int size) {
+    return listPage(
+        UCSBDiningCommonsMenuItemRepository,
+        UCSBDiningCommonsMenuItem.class,
+        SORTABLE,
+        sort,
+        direction,
+        cursor,
+        size);
+  }
+
+  /**
+   * This method streams all the dining commons items as a JSON array, or as one JSON object per
+   * line (NDJSON), without loading them all into memory first.
+   *
+   * @param format JSON or NDJSON
+   * @return a response that writes the dining commons items as they are read
+   */
+  @Operation(summary = "Export all dining commons items")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportUCSBDiningCommonsMenuItems(
+      @Parameter(name = "format") @RequestParam(defaultValue = "JSON")
+          EntityExporter.Format format) {
+    return entityExporter.export(UCSBDiningCommonsMenuItemRepository::streamAll, format);
   }
 
   /**
@@ -68,9 +129,25 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     UCSBDiningCommonsMenuItem savedUCSBDiningCommonsMenuItem =
         UCSBDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItem);
 
+    invalidateListing();
     return savedUCSBDiningCommonsMenuItem;
   }
 
+  /**
+   * Create many items at once, with batched inserts
+   *
+   * @param items the new items; any ids given are ignored
+   * @return the saved items
+   */
+  @Operation(summary = "Create many items at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/post/batch")
+  public Iterable<UCSBDiningCommonsMenuItem> postUCSBDiningCommonsMenuItemsBatch(
+      @RequestBody List<UCSBDiningCommonsMenuItem> items) {
+    items.forEach(item -> item.setId(null));
+    return saveBatch(UCSBDiningCommonsMenuItemRepository, items);
+  }
+
   @Operation(summary = "Get a single item by id")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
@@ -97,6 +174,7 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     menuItem.setName(incoming.getName());
     menuItem.setStation(incoming.getStation());
     UCSBDiningCommonsMenuItemRepository.save(menuItem);
+    invalidateListing();
     return menuItem;
   }
 
@@ -109,6 +187,7 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
 
     UCSBDiningCommonsMenuItemRepository.delete(menuItem);
+    invalidateListing();
     return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
   }
 }
@@ -2,22 +2,32 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "UCSBOrganization")
 @RequestMapping("/api/ucsborganization")
@@ -27,6 +37,10 @@ public class UCSBOrganizationController extends ApiController {
 
   @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
 
+  @Autowired EntityExporter entityExporter;
+
+  private static final Set<String> SORTABLE = Set.of("orgCode", "orgTranslationShort");
+
   /**
    * This method returns a list of all ucsborganizations.
    *
@@ -35,9 +49,56 @@ public class UCSBOrganizationController extends ApiController {
   @Operation(summary = "List all ucsb organizations")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBOrganization> allOrganizations() {
-    Iterable<UCSBOrganization> organizations = ucsbOrganizationRepository.findAll();
-    return organizations;
+  public ResponseEntity<byte[]> allOrganizations(
+      @Parameter(hidden = true) @RequestHeader HttpHeaders headers) throws IOException {
+    return listAllCached(ucsbOrganizationRepository, headers);
+  }
+
+  /**
+   * This method returns ucsb organizations a page at a time.
+   *
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @param cursor nextCursor from the previous page, or null for the first page
+   * @param size number of ucsb organizations per page
+   * @return a page of ucsb organizations
+   */
+  @Operation(summary = "List ucsb organizations a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public ListingPage<UCSBOrganization> pageOrganizations(
+      @Parameter(name = "sort", description = "one of orgCode, orgTranslationShort")
+          @RequestParam(defaultValue = "orgCode")
+          String sort,
+      @Parameter(name = "direction") @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+      @Parameter(name = "cursor", description = "nextCursor from the previous page")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(name = "size") @RequestParam(defaultValue = "50") int size) {
+    return listPage(
+        ucsbOrganizationRepository,
+        UCSBOrganization.class,
+        SORTABLE,
+        sort,
+        direction,
+        cursor,
+        size);
+  }
+
+  /**
+   * This method streams all the ucsb organizations as a JSON array, or as one JSON object per line
+   * (NDJSON), without loading them all into memory first.
+   *
+   * @param format JSON or NDJSON
+   * @return a response that writes the ucsb organizations as they are read
+   */
+  @Operation(summary = "Export all ucsb organizations")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportOrganizations(
+      @Parameter(name = "format") @RequestParam(defaultValue = "JSON")
+          EntityExporter.Format format) {
+    return entityExporter.export(ucsbOrganizationRepository::streamAll, format);
   }
 
   /**
@@ -61,6 +122,7 @@ public class UCSBOrganizationController extends ApiController {
   @Operation(summary = "Create a new organization")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/post")
+  @CacheEvict(cacheNames = UCSBOrganizationRepository.CACHE, allEntries = true)
   public UCSBOrganization postOrganization(
       @Parameter(name = "orgCode") @RequestParam String orgCode,
       @Parameter(name = "orgTranslationShort") @RequestParam String orgTranslationShort,
@@ -75,6 +137,7 @@ public class UCSBOrganizationController extends ApiController {
 
     UCSBOrganization savedOrganization = ucsbOrganizationRepository.save(organization);
 
+    invalidateListing();
     return savedOrganization;
   }
 
@@ -87,6 +150,7 @@ public class UCSBOrganizationController extends ApiController {
   @Operation(summary = "Delete a UCSBOrganization")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
+  @CacheEvict(cacheNames = UCSBOrganizationRepository.CACHE, allEntries = true)
   public Object deleteOrganization(@Parameter(name = "orgCode") @RequestParam String orgCode) {
     UCSBOrganization organization =
         ucsbOrganizationRepository
@@ -94,6 +158,7 @@ public class UCSBOrganizationController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
 
     ucsbOrganizationRepository.delete(organization);
+    invalidateListing();
     return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
   }
 
@@ -107,14 +172,18 @@ public class UCSBOrganizationController extends ApiController {
   @Operation(summary = "Update a single organization")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PutMapping("")
+  @CacheEvict(cacheNames = UCSBOrganizationRepository.CACHE, allEntries = true)
   public UCSBOrganization updateOrganization(
       @Parameter(name = "orgCode") @RequestParam String orgCode,
       @RequestBody @Valid UCSBOrganization incoming) {
 
+    // updated on a copy, not on the cached instance (see UCSBDatesController.updateUCSBDate)
     UCSBOrganization organization =
         ucsbOrganizationRepository
             .findById(orgCode)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
+            .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode))
+            .toBuilder()
+            .build();
 
     organization.setOrgCode(incoming.getOrgCode());
     organization.setOrgTranslationShort(incoming.getOrgTranslationShort());
@@ -123,6 +192,7 @@ public class UCSBOrganizationController extends ApiController {
 
     ucsbOrganizationRepository.save(organization);
 
+    invalidateListing();
     return organization;
   }
 }
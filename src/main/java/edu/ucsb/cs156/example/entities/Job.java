@@ -41,10 +41,25 @@ public class Job {
 
   private String status;
 
-  // 1048576 is 2^20, which is the max size of a mediumtext in MySQL
-  @Column(
-      columnDefinition = "TEXT",
-      length = 1048576) // needed for long strings, i.e. log entries longer than 255
-  // characters
-  private String log;
+  private ZonedDateTime enqueuedAt; // when the job was submitted
+  private ZonedDateTime startedAt; // when its latest attempt began running
+  private ZonedDateTime finishedAt;
+
+  // class name and JSON form of the JobContextConsumer, so that any node can (re)run the job
+  private String jobType;
+
+  @Column(columnDefinition = "TEXT")
+  private String params;
+
+  private String lockedBy; // worker currently holding the lease, if any
+  private ZonedDateTime leaseExpiresAt; // the job is considered abandoned after this time
+  private int attempts;
+  private int priority; // see JobPriority; higher runs first
+  private boolean cancelRequested; // set by a cancel request handled on another instance
+
+  // key chosen by the client for the launch request; a user's retries with it get this job back
+  private String idempotencyKey;
+
+  // Output goes to job_log_lines; logs of older jobs are kept in job_logs (see JobLog). The
+  // jobs.log column only holds logs that JobLogMigration has not moved yet.
 }
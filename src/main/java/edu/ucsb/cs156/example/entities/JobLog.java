@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that holds the single-text log of a {@link Job}, as written before log lines
+ * were stored separately. It lives in its own table so that loading a Job never loads its log, and
+ * large logs are stored deflate-compressed (see JobLogCodec). The lines of finished jobs are
+ * compacted into it too (see JobLogCompaction).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "job_logs")
+public class JobLog {
+  @Id private long jobId;
+
+  private String encoding; // "plain" (UTF-8) or "deflate"
+  private int originalLength; // characters in the decoded log
+  private int storedLength; // bytes in data
+  private byte[] data;
+
+  /**
+   * Where the lines compacted from job_log_lines lie in the log, so that they keep their line
+   * numbers even when a message spans several lines of text: the number of the first line, a colon,
+   * then the length of each line in turn, comma separated and empty for a missing line number (e.g.
+   * "0:5,12,,3"). The lines end the log; any text before them, up to a newline, was written before
+   * log lines were stored separately. Null if there are no such lines.
+   */
+  @Column(columnDefinition = "TEXT")
+  private String lineIndex;
+}
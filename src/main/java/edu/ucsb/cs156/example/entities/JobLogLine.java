@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import java.time.ZonedDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents a single line of output written by a running {@link Job}.
+ *
+ * <p>Lines are only ever appended, so logging a message costs one small insert rather than a
+ * rewrite of the whole log.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "job_log_lines")
+public class JobLogLine {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private long id;
+
+  private long jobId;
+  private int lineNumber; // position of the line within the job's log, starting at 0
+  private ZonedDateTime loggedAt;
+  private String logLevel;
+
+  @Column(columnDefinition = "TEXT")
+  private String message;
+}
@@ -2,9 +2,16 @@ package edu.ucsb.cs156.example.jobs;
 
 import edu.ucsb.cs156.example.services.jobs.JobContext;
 import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
 
+// getters and the no-arg constructor let JobService store the job as JSON and restore it
 @Builder
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
 public class TestJob implements JobContextConsumer {
 
   private boolean fail;
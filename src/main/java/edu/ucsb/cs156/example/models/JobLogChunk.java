@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class for one page of a job's log, as returned to clients that tail the log.
+ *
+ * <p>Clients pass {@code nextLine} back as {@code fromLine} on their next request to receive only
+ * lines written since.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobLogChunk {
+  private long jobId;
+  private String status;
+  private List<JobLogLine> lines;
+  private int nextLine; // line number to ask for next time
+  private boolean complete; // true once the job has finished and no more lines will be written
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class for one job in a batch launch request: the kind of job (e.g. "testjob")
+ * and the properties of the job, as they would be given to the single-job launch endpoint.
+ * Optionally the job has a name, and lists the names of jobs earlier in the same request that must
+ * complete before it starts.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobSpec {
+  private String type;
+  private Map<String, Object> params;
+  private String name;
+  private List<String> dependsOn;
+}
@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class for one row of the job listing: the columns of a job that fit on the
+ * admin jobs page, without the job's log or parameters.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobSummary {
+  private long id;
+  private String status;
+  private ZonedDateTime createdAt;
+  private ZonedDateTime updatedAt;
+  private Long createdById;
+  private String createdByEmail;
+  // characters in the job's log, old single-text part (see JobLog) and lines, with a line break
+  // after each; 0 if the job has written nothing
+  private long logLength;
+}
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class for one page of the job listing, newest jobs first.
+ *
+ * <p>Clients pass {@code nextBeforeId} back as {@code beforeId} to get the following page; it is
+ * null on the last page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobSummaryPage {
+  private List<JobSummary> jobs;
+  private Long nextBeforeId;
+}
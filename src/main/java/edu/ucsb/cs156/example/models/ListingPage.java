@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class for one page of a listing endpoint: the items on the page, and the cursor
+ * to pass to get the next page (null on the last page).
+ *
+ * @param <T> the type of the items
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ListingPage<T> {
+  private List<T> items;
+  private String nextCursor;
+}
@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobDependency;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/** The JobDependenciesRepository is a repository for JobDependency entities. */
+@Repository
+public interface JobDependenciesRepository extends CrudRepository<JobDependency, Long> {
+  /**
+   * This method returns the ids of the jobs that depend on any of some jobs.
+   *
+   * @param parentIds ids of the parent jobs
+   * @return ids of their direct dependents
+   */
+  @Query("SELECT DISTINCT d.jobId FROM job_dependencies d WHERE d.parentId IN :parentIds")
+  List<Long> findJobIdsByParentIdIn(@Param("parentIds") Collection<Long> parentIds);
+}
@@ -0,0 +1,69 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** The JobLogLinesRepository is a repository for JobLogLine entities. */
+@Repository
+public interface JobLogLinesRepository extends CrudRepository<JobLogLine, Long> {
+  /**
+   * This method returns all log lines written by a job, in the order they were written.
+   *
+   * @param jobId id of the job
+   * @return the log lines of the job, ordered by line number
+   */
+  List<JobLogLine> findByJobIdOrderByLineNumberAsc(long jobId);
+
+  /**
+   * This method returns the log lines of a job starting at a given line number. It is served by
+   * the unique (job_id, line_number) index, so its cost depends on the lines returned rather than
+   * the size of the whole log.
+   *
+   * @param jobId id of the job
+   * @param fromLine first line number to return
+   * @param limit maximum number of lines to return
+   * @return the log lines, ordered by line number
+   */
+  List<JobLogLine> findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+      long jobId, int fromLine, Limit limit);
+
+  /**
+   * This method returns the last log line written by a job.
+   *
+   * @param jobId id of the job
+   * @return the line with the highest line number, if any
+   */
+  Optional<JobLogLine> findFirstByJobIdOrderByLineNumberDesc(long jobId);
+
+  /**
+   * This method returns the total size of the log lines of some jobs, as stored by the database.
+   *
+   * @param jobIds ids of the jobs
+   * @return total number of bytes (OCTET_LENGTH, not characters)
+   */
+  @Query(
+      "SELECT COALESCE(SUM(OCTET_LENGTH(l.message)), 0) FROM job_log_lines l"
+          + " WHERE l.jobId IN :jobIds")
+  long sumMessageBytes(@Param("jobIds") Collection<Long> jobIds);
+
+  /**
+   * This method deletes the log lines of a job in a single statement, once they have been
+   * compacted into its single-text log (see JobLogCompaction).
+   *
+   * @param jobId id of the job
+   * @return number of lines deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM job_log_lines l WHERE l.jobId = :jobId")
+  int deleteByJobId(@Param("jobId") long jobId);
+}
@@ -0,0 +1,21 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLog;
+import java.util.Collection;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/** The JobLogsRepository is a repository for JobLog entities. */
+@Repository
+public interface JobLogsRepository extends CrudRepository<JobLog, Long> {
+  /**
+   * This method returns the total stored size of the logs of some jobs.
+   *
+   * @param jobIds ids of the jobs
+   * @return total number of bytes
+   */
+  @Query("SELECT COALESCE(SUM(l.storedLength), 0) FROM job_logs l WHERE l.jobId IN :jobIds")
+  long sumStoredLength(@Param("jobIds") Collection<Long> jobIds);
+}
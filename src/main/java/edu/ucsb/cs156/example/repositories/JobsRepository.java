@@ -1,8 +1,366 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.JobSummary;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * The JobsRepository is a repository for Job entities.
+ *
+ * <p>The jobs table doubles as a work queue shared by every running instance of the app: a job
+ * waits with status "queued" until a worker claims it, and a worker holds a lease on each job it
+ * runs. A job whose lease runs out (because its worker died) may be claimed again.
+ */
 @Repository
-public interface JobsRepository extends CrudRepository<Job, Long> {}
+public interface JobsRepository extends CrudRepository<Job, Long> {
+
+  /**
+   * This method returns summaries of jobs, newest first, without reading their logs. Paging is by
+   * keyset: pass the smallest id of the previous page as beforeId. Every filter is optional.
+   *
+   * <p>The log length adds up the job's single-text log (see JobLog) and its job_log_lines, with a
+   * line break after each; the lines are summed with a subquery served by the unique (job_id,
+   * line_number) index.
+   *
+   * @param status only jobs with this status, or null for all
+   * @param createdAfter only jobs created at or after this time, or null
+   * @param createdBefore only jobs created before this time, or null
+   * @param beforeId only jobs with an id less than this, or null for the first page
+   * @param pageable how many jobs to return
+   * @return job summaries ordered by descending id
+   */
+  @Query(
+      "SELECT new edu.ucsb.cs156.example.models.JobSummary(j.id, j.status, j.createdAt,"
+          + " j.updatedAt, u.id, u.email, COALESCE(l.originalLength + 1, 0)"
+          + " + (SELECT COALESCE(SUM(LENGTH(m.message) + 1), 0) FROM job_log_lines m"
+          + " WHERE m.jobId = j.id)) FROM jobs j LEFT JOIN j.createdBy u"
+          + " LEFT JOIN job_logs l ON l.jobId = j.id"
+          + " WHERE (:status IS NULL OR j.status = :status)"
+          + " AND (:createdAfter IS NULL OR j.createdAt >= :createdAfter)"
+          + " AND (:createdBefore IS NULL OR j.createdAt < :createdBefore)"
+          + " AND (:beforeId IS NULL OR j.id < :beforeId) ORDER BY j.id DESC")
+  List<JobSummary> findSummaries(
+      @Param("status") String status,
+      @Param("createdAfter") ZonedDateTime createdAfter,
+      @Param("createdBefore") ZonedDateTime createdBefore,
+      @Param("beforeId") Long beforeId,
+      Pageable pageable);
+
+  /**
+   * This method returns ids of jobs that may be claimed, in fair order: jobs of a higher priority
+   * first and, within a priority, one job per submitting user in turn (each user's oldest job,
+   * then each user's second oldest, and so on), so that a user with many queued jobs does not hold
+   * up everyone else. Portable, but does not lock anything; callers must claim each id with {@link
+   * #claim} and skip ids another worker won.
+   *
+   * @param now the current time
+   * @param maxAttempts jobs that have already been started this many times are not retried
+   * @param max how many ids to return
+   * @return ids of claimable jobs
+   */
+  @Query(
+      value =
+          "SELECT id FROM (SELECT id, priority, ROW_NUMBER() OVER"
+              + " (PARTITION BY priority, created_by_id ORDER BY id) AS turn FROM jobs"
+              + " WHERE status = 'queued' OR (status = 'running'"
+              + " AND (lease_expires_at IS NULL OR lease_expires_at < :now)"
+              + " AND attempts < :maxAttempts)) claimable"
+              + " ORDER BY priority DESC, turn, id LIMIT :max",
+      nativeQuery = true)
+  List<Long> findClaimableIds(
+      @Param("now") ZonedDateTime now,
+      @Param("maxAttempts") int maxAttempts,
+      @Param("max") int max);
+
+  /**
+   * Same as {@link #findClaimableIds}, but locks the returned rows and skips rows locked by other
+   * workers, so concurrent workers never contend for the same job. Requires a database that
+   * supports SELECT ... FOR UPDATE SKIP LOCKED, such as Postgres, and must run in a transaction.
+   * Fewer than max ids are returned when some of the chosen rows are locked.
+   *
+   * @param now the current time
+   * @param maxAttempts jobs that have already been started this many times are not retried
+   * @param max how many ids to return
+   * @return ids of claimable jobs
+   */
+  @Query(
+      value =
+          "SELECT id FROM jobs WHERE id IN (SELECT id FROM (SELECT id, priority, ROW_NUMBER()"
+              + " OVER (PARTITION BY priority, created_by_id ORDER BY id) AS turn FROM jobs"
+              + " WHERE status = 'queued' OR (status = 'running'"
+              + " AND (lease_expires_at IS NULL OR lease_expires_at < :now)"
+              + " AND attempts < :maxAttempts)) claimable"
+              + " ORDER BY priority DESC, turn, id LIMIT :max)"
+              + " FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<Long> findClaimableIdsSkipLocked(
+      @Param("now") ZonedDateTime now,
+      @Param("maxAttempts") int maxAttempts,
+      @Param("max") int max);
+
+  /**
+   * This method claims a job for a worker if it is still claimable.
+   *
+   * @param id id of the job
+   * @param workerId id of the claiming worker
+   * @param lease time the worker's lease expires unless extended
+   * @param now the current time
+   * @return 1 if the job was claimed, 0 if another worker got it first
+   */
+  @Transactional
+  @Modifying(clearAutomatically = true)
+  @Query(
+      "UPDATE jobs j SET j.status = 'running', j.lockedBy = :workerId, j.leaseExpiresAt = :lease,"
+          + " j.attempts = j.attempts + 1, j.updatedAt = :now WHERE j.id = :id"
+          + " AND (j.status = 'queued' OR (j.status = 'running'"
+          + " AND (j.leaseExpiresAt IS NULL OR j.leaseExpiresAt < :now)))")
+  int claim(
+      @Param("id") long id,
+      @Param("workerId") String workerId,
+      @Param("lease") ZonedDateTime lease,
+      @Param("now") ZonedDateTime now);
+
+  /**
+   * This method extends the leases a worker holds (its heartbeat).
+   *
+   * @param ids ids of the jobs the worker is running
+   * @param workerId id of the worker
+   * @param lease new lease expiry time
+   * @return number of leases extended
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.leaseExpiresAt = :lease WHERE j.id IN :ids AND j.lockedBy = :workerId")
+  int extendLeases(
+      @Param("ids") Collection<Long> ids,
+      @Param("workerId") String workerId,
+      @Param("lease") ZonedDateTime lease);
+
+  /**
+   * This method records the final status of a job and releases its lease, provided the worker
+   * still holds the lease.
+   *
+   * @param id id of the job
+   * @param workerId id of the worker
+   * @param status final status
+   * @param startedAt time the job's final attempt started, or null if it never ran
+   * @param now the current time
+   * @return 1 if the job was updated, 0 if the lease had passed to another worker
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.status = :status, j.lockedBy = NULL, j.leaseExpiresAt = NULL,"
+          + " j.startedAt = :startedAt, j.finishedAt = :now, j.updatedAt = :now"
+          + " WHERE j.id = :id AND j.lockedBy = :workerId")
+  int finish(
+      @Param("id") long id,
+      @Param("workerId") String workerId,
+      @Param("status") String status,
+      @Param("startedAt") ZonedDateTime startedAt,
+      @Param("now") ZonedDateTime now);
+
+  /**
+   * This method gives up on abandoned jobs that have already been started maxAttempts times.
+   *
+   * @param now the current time
+   * @param maxAttempts number of attempts after which a job is not retried
+   * @return number of jobs marked as failed
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.status = 'error', j.lockedBy = NULL, j.leaseExpiresAt = NULL"
+          + " WHERE j.status = 'running' AND j.leaseExpiresAt < :now"
+          + " AND j.attempts >= :maxAttempts")
+  int failAbandoned(@Param("now") ZonedDateTime now, @Param("maxAttempts") int maxAttempts);
+
+  /**
+   * This method returns ids of jobs with a given status created before a cutoff, oldest first.
+   * It is served by the (status, created_at) index.
+   *
+   * @param status status of the jobs
+   * @param cutoff only jobs created before this time are returned
+   * @param pageable how many ids to return
+   * @return ids of the jobs
+   */
+  @Query(
+      "SELECT j.id FROM jobs j WHERE j.status = :status AND j.createdAt < :cutoff ORDER BY j.id")
+  List<Long> findIdsByStatusCreatedBefore(
+      @Param("status") String status, @Param("cutoff") ZonedDateTime cutoff, Pageable pageable);
+
+  /**
+   * This method returns ids of jobs created before a cutoff whose status is not one of the given
+   * statuses, oldest first.
+   *
+   * @param statuses statuses to leave out; must not be empty
+   * @param cutoff only jobs created before this time are returned
+   * @param pageable how many ids to return
+   * @return ids of the jobs
+   */
+  @Query(
+      "SELECT j.id FROM jobs j WHERE j.status NOT IN :statuses AND j.createdAt < :cutoff"
+          + " ORDER BY j.id")
+  List<Long> findIdsByStatusNotInCreatedBefore(
+      @Param("statuses") Collection<String> statuses,
+      @Param("cutoff") ZonedDateTime cutoff,
+      Pageable pageable);
+
+  /**
+   * This method returns ids of finished jobs that still have log lines, for their lines to be
+   * compacted into a single-text log (see JobLogCompaction), in id order. Paging is by keyset:
+   * pass the largest id of the previous page as afterId.
+   *
+   * @param finishedBefore only jobs that finished before this time are returned
+   * @param afterId only jobs with an id greater than this are returned
+   * @param pageable how many ids to return
+   * @return ids of the jobs
+   */
+  @Query(
+      "SELECT j.id FROM jobs j WHERE j.finishedAt < :finishedBefore AND j.id > :afterId"
+          + " AND j.status NOT IN ('waiting', 'queued', 'running')"
+          + " AND EXISTS (SELECT m.id FROM job_log_lines m WHERE m.jobId = j.id) ORDER BY j.id")
+  List<Long> findIdsToCompact(
+      @Param("finishedBefore") ZonedDateTime finishedBefore,
+      @Param("afterId") long afterId,
+      Pageable pageable);
+
+  /**
+   * This method returns logs still stored in the old jobs.log column, which is no longer mapped
+   * on Job, so that they can be moved to job_logs.
+   *
+   * @param max how many logs to return
+   * @return rows of (id, log)
+   */
+  @Query(
+      value = "SELECT id, log FROM jobs WHERE log IS NOT NULL ORDER BY id LIMIT :max",
+      nativeQuery = true)
+  List<Object[]> findUnmigratedLogs(@Param("max") int max);
+
+  /**
+   * This method empties the old jobs.log column of jobs whose logs have been moved to job_logs.
+   *
+   * @param ids ids of the jobs
+   * @return number of jobs updated
+   */
+  @Transactional
+  @Modifying
+  @Query(value = "UPDATE jobs SET log = NULL WHERE id IN :ids", nativeQuery = true)
+  int clearUnmigratedLogs(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method deletes jobs in a single statement. Their log lines are removed by the database
+   * (ON DELETE CASCADE), so nothing is loaded into memory.
+   *
+   * @param ids ids of the jobs
+   * @return number of jobs deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM jobs j WHERE j.id IN :ids")
+  int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method cancels a job that has not started yet.
+   *
+   * @param id id of the job
+   * @param now the current time
+   * @return 1 if the job was cancelled, 0 if it was not queued or waiting
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.status = 'cancelled', j.updatedAt = :now"
+          + " WHERE j.id = :id AND j.status IN ('queued', 'waiting')")
+  int cancelQueued(@Param("id") long id, @Param("now") ZonedDateTime now);
+
+  /**
+   * This method queues those of some waiting jobs whose parents (see JobDependency) have all
+   * completed.
+   *
+   * @param ids ids of the jobs
+   * @param now the current time
+   * @return number of jobs queued
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.status = 'queued', j.updatedAt = :now"
+          + " WHERE j.id IN :ids AND j.status = 'waiting' AND NOT EXISTS (SELECT d.id"
+          + " FROM job_dependencies d, jobs p WHERE d.jobId = j.id AND p.id = d.parentId"
+          + " AND p.status <> 'complete')")
+  int releaseReady(@Param("ids") Collection<Long> ids, @Param("now") ZonedDateTime now);
+
+  /**
+   * This method skips those of some waiting jobs that have a parent which finished without
+   * completing, so they will never run.
+   *
+   * @param ids ids of the jobs
+   * @param now the current time
+   * @return number of jobs skipped
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.status = 'skipped', j.finishedAt = :now, j.updatedAt = :now"
+          + " WHERE j.id IN :ids AND j.status = 'waiting' AND EXISTS (SELECT d.id"
+          + " FROM job_dependencies d, jobs p WHERE d.jobId = j.id AND p.id = d.parentId"
+          + " AND p.status NOT IN ('waiting', 'queued', 'running', 'complete'))")
+  int skipBlocked(@Param("ids") Collection<Long> ids, @Param("now") ZonedDateTime now);
+
+  /**
+   * Same as {@link #skipBlocked}, for every waiting job.
+   *
+   * @param now the current time
+   * @return number of jobs skipped
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.status = 'skipped', j.finishedAt = :now, j.updatedAt = :now"
+          + " WHERE j.status = 'waiting' AND EXISTS (SELECT d.id"
+          + " FROM job_dependencies d, jobs p WHERE d.jobId = j.id AND p.id = d.parentId"
+          + " AND p.status NOT IN ('waiting', 'queued', 'running', 'complete'))")
+  int skipAllBlocked(@Param("now") ZonedDateTime now);
+
+  /**
+   * This method flags a running job for cancellation by whichever worker holds its lease.
+   *
+   * @param id id of the job
+   * @return 1 if the job was flagged, 0 if it was not running
+   */
+  @Transactional
+  @Modifying
+  @Query("UPDATE jobs j SET j.cancelRequested = true WHERE j.id = :id AND j.status = 'running'")
+  int requestCancel(@Param("id") long id);
+
+  /**
+   * This method returns which of some jobs have been flagged for cancellation.
+   *
+   * @param ids ids of the jobs
+   * @return ids of the flagged jobs
+   */
+  @Query("SELECT j.id FROM jobs j WHERE j.id IN :ids AND j.cancelRequested = true")
+  List<Long> findCancelRequestedIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method finds the job a user launched with a given idempotency key.
+   *
+   * @param createdBy the user who launched the job
+   * @param idempotencyKey the key sent with the launch request
+   * @return the job, if there is one
+   */
+  Optional<Job> findByCreatedByAndIdempotencyKey(User createdBy, String idempotencyKey);
+}
@@ -0,0 +1,54 @@
+package edu.ucsb.cs156.example.repositories;
+
+import jakarta.persistence.QueryHint;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+/**
+ * The ListingRepository is the base of the repositories whose entities are listed through /all,
+ * /page and /export endpoints (see ApiController and EntityExporter).
+ *
+ * @param <T> the entity type
+ * @param <ID> the type of the entity's id
+ */
+@NoRepositoryBean
+public interface ListingRepository<T, ID>
+    extends CrudRepository<T, ID>, PagingAndSortingRepository<T, ID> {
+  /** Rows fetched per round trip by streamAll. */
+  String FETCH_SIZE = "500";
+
+  /**
+   * This method returns entities a window at a time. With a keyset position, each window starts
+   * right after the last entity of the previous one (WHERE (sort key, id) &gt; (last values)), so
+   * every window costs about the same however deep into the table it is.
+   *
+   * @param position where the window starts
+   * @param sort sort order; the id is appended to it so the order is total
+   * @param limit size of the window
+   * @return the window
+   */
+  Window<T> findBy(ScrollPosition position, Sort sort, Limit limit);
+
+  /**
+   * This method returns every entity as a stream that is read from the database as it is consumed,
+   * FETCH_SIZE rows at a time. It must be called, and the stream consumed, inside a transaction;
+   * see EntityExporter.
+   *
+   * @return the entities
+   */
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = FETCH_SIZE),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query("SELECT e FROM #{#entityName} e")
+  Stream<T> streamAll();
+}
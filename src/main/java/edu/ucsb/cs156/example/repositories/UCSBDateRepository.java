@@ -1,12 +1,33 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
-import org.springframework.data.repository.CrudRepository;
+import java.util.Optional;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
 /** The UCSBDateRepository is a repository for UCSBDate entities. */
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+public interface UCSBDateRepository extends ListingRepository<UCSBDate, Long> {
+  /**
+   * Name of the cache of dates read by findById and findAll, which hold few rows and are read far
+   * more often than written. UCSBDatesController clears it whenever it changes a row.
+   */
+  String CACHE = "ucsbDates";
+
+  @Override
+  @Cacheable(CACHE)
+  Optional<UCSBDate> findById(Long id);
+
+  @Override
+  @Cacheable(CACHE)
+  Iterable<UCSBDate> findAll();
+
+  @Override
+  @Cacheable(CACHE)
+  Page<UCSBDate> findAll(Pageable pageable);
+
   /**
    * This method returns all UCSBDate entities with a given quarterYYYYQ.
    *
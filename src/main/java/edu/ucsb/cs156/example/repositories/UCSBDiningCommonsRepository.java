@@ -1,9 +1,31 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
-import org.springframework.data.repository.CrudRepository;
+import java.util.Optional;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
 /** The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities */
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {}
+public interface UCSBDiningCommonsRepository extends ListingRepository<UCSBDiningCommons, String> {
+  /**
+   * Name of the cache of dining commons read by findById and findAll, which hold few rows and are
+   * read far more often than written. UCSBDiningCommonsController clears it whenever it changes a
+   * row.
+   */
+  String CACHE = "ucsbDiningCommons";
+
+  @Override
+  @Cacheable(CACHE)
+  Optional<UCSBDiningCommons> findById(String code);
+
+  @Override
+  @Cacheable(CACHE)
+  Iterable<UCSBDiningCommons> findAll();
+
+  @Override
+  @Cacheable(CACHE)
+  Page<UCSBDiningCommons> findAll(Pageable pageable);
+}
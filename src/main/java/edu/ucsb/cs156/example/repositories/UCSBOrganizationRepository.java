@@ -1,9 +1,31 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
-import org.springframework.data.repository.CrudRepository;
+import java.util.Optional;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
-/** The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities */
+/** The UCSBOrganizationRepository is a repository for UCSBOrganization entities */
 @Repository
-public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {}
+public interface UCSBOrganizationRepository extends ListingRepository<UCSBOrganization, String> {
+  /**
+   * Name of the cache of organizations read by findById and findAll, which hold few rows and are
+   * read far more often than written. UCSBOrganizationController clears it whenever it changes a
+   * row.
+   */
+  String CACHE = "ucsbOrganizations";
+
+  @Override
+  @Cacheable(CACHE)
+  Optional<UCSBOrganization> findById(String orgCode);
+
+  @Override
+  @Cacheable(CACHE)
+  Iterable<UCSBOrganization> findAll();
+
+  @Override
+  @Cacheable(CACHE)
+  Page<UCSBOrganization> findAll(Pageable pageable);
+}
@@ -1,9 +1,14 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The UserRepository is a repository for User entities. */
 @Repository
@@ -15,4 +20,85 @@ public interface UserRepository extends CrudRepository<User, Long> {
    * @return Optional of User (empty if not found)
    */
   Optional<User> findByEmail(String email);
+
+  /**
+   * This method returns the emails of the users marked as admins.
+   *
+   * @return emails of the admins
+   */
+  @Query("SELECT u.email FROM users u WHERE u.admin = true")
+  List<String> findAdminEmails();
+
+  /**
+   * This method inserts a user, or updates the profile of the user with the same email, in a
+   * single standard MERGE statement (H2, Postgres 15 and later). Nothing is written when the
+   * user's profileHash is unchanged, and an admin is never demoted.
+   *
+   * @param u the user's profile, as given by the OAuth provider
+   * @return number of rows written: 0 if the profile was unchanged, otherwise 1
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      value =
+          "MERGE INTO users u USING (SELECT CAST(:#{#u.email} AS VARCHAR(255)) AS email,"
+              + " CAST(:#{#u.googleSub} AS VARCHAR(255)) AS google_sub,"
+              + " CAST(:#{#u.pictureUrl} AS VARCHAR(255)) AS picture_url,"
+              + " CAST(:#{#u.fullName} AS VARCHAR(255)) AS full_name,"
+              + " CAST(:#{#u.givenName} AS VARCHAR(255)) AS given_name,"
+              + " CAST(:#{#u.familyName} AS VARCHAR(255)) AS family_name,"
+              + " CAST(:#{#u.emailVerified} AS BOOLEAN) AS email_verified,"
+              + " CAST(:#{#u.locale} AS VARCHAR(255)) AS locale,"
+              + " CAST(:#{#u.hostedDomain} AS VARCHAR(255)) AS hosted_domain,"
+              + " CAST(:#{#u.admin} AS BOOLEAN) AS admin,"
+              + " CAST(:#{#u.profileHash} AS VARCHAR(64)) AS profile_hash) p"
+              + " ON u.email = p.email"
+              + " WHEN MATCHED AND u.profile_hash IS DISTINCT FROM p.profile_hash THEN UPDATE SET"
+              + " google_sub = p.google_sub, picture_url = p.picture_url, full_name = p.full_name,"
+              + " given_name = p.given_name, family_name = p.family_name,"
+              + " email_verified = p.email_verified, locale = p.locale,"
+              + " hosted_domain = p.hosted_domain, admin = u.admin OR p.admin,"
+              + " profile_hash = p.profile_hash"
+              + " WHEN NOT MATCHED THEN INSERT (email, google_sub, picture_url, full_name,"
+              + " given_name, family_name, email_verified, locale, hosted_domain, admin,"
+              + " profile_hash) VALUES (p.email, p.google_sub, p.picture_url, p.full_name,"
+              + " p.given_name, p.family_name, p.email_verified, p.locale, p.hosted_domain,"
+              + " p.admin, p.profile_hash)",
+      nativeQuery = true)
+  int mergeProfile(@Param("u") User u);
+
+  /**
+   * Same as {@link #mergeProfile}, but with INSERT ... ON CONFLICT, which Postgres (9.5 and later)
+   * runs atomically even when the same user logs in twice at once. Requires the unique index on
+   * users.email.
+   *
+   * @param u the user's profile, as given by the OAuth provider
+   * @return number of rows written: 0 if the profile was unchanged, otherwise 1
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO users (email, google_sub, picture_url, full_name, given_name, family_name,"
+              + " email_verified, locale, hosted_domain, admin, profile_hash)"
+              + " VALUES (CAST(:#{#u.email} AS VARCHAR(255)),"
+              + " CAST(:#{#u.googleSub} AS VARCHAR(255)),"
+              + " CAST(:#{#u.pictureUrl} AS VARCHAR(255)),"
+              + " CAST(:#{#u.fullName} AS VARCHAR(255)),"
+              + " CAST(:#{#u.givenName} AS VARCHAR(255)),"
+              + " CAST(:#{#u.familyName} AS VARCHAR(255)),"
+              + " CAST(:#{#u.emailVerified} AS BOOLEAN),"
+              + " CAST(:#{#u.locale} AS VARCHAR(255)),"
+              + " CAST(:#{#u.hostedDomain} AS VARCHAR(255)),"
+              + " CAST(:#{#u.admin} AS BOOLEAN),"
+              + " CAST(:#{#u.profileHash} AS VARCHAR(64)))"
+              + " ON CONFLICT (email) DO UPDATE SET google_sub = EXCLUDED.google_sub,"
+              + " picture_url = EXCLUDED.picture_url, full_name = EXCLUDED.full_name,"
+              + " given_name = EXCLUDED.given_name, family_name = EXCLUDED.family_name,"
+              + " email_verified = EXCLUDED.email_verified, locale = EXCLUDED.locale,"
+              + " hosted_domain = EXCLUDED.hosted_domain, admin = users.admin OR EXCLUDED.admin,"
+              + " profile_hash = EXCLUDED.profile_hash"
+              + " WHERE users.profile_hash IS DISTINCT FROM EXCLUDED.profile_hash",
+      nativeQuery = true)
+  int upsertProfileOnConflict(@Param("u") User u);
 }
@@ -0,0 +1,89 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that answers whether an email belongs to an admin.
+ *
+ * <p>Admins are the emails listed in app.admin.emails plus the users marked as admins in the
+ * database. The database admins are read once and kept in memory, so a burst of logins does not
+ * cost a query each. They are read again every app.admin.refreshIntervalMs, and right away when
+ * invalidate is called after a change to a user's admin flag.
+ */
+@Service
+public class AdminDirectory {
+
+  @Value("${app.admin.emails}")
+  private Set<String> configuredAdmins;
+
+  @Autowired private UserRepository userRepository;
+
+  private volatile Set<String> databaseAdmins;
+
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * This method returns whether an email is listed in app.admin.emails.
+   *
+   * @param email email address of the user
+   * @return whether the email is a configured admin
+   */
+  public boolean isConfiguredAdmin(String email) {
+    return configuredAdmins.contains(email);
+  }
+
+  /**
+   * This method returns whether an email belongs to an admin, either configured or in the
+   * database.
+   *
+   * @param email email address of the user
+   * @return whether the user with the given email is an admin
+   */
+  public boolean isAdmin(String email) {
+    return isConfiguredAdmin(email) || databaseAdmins().contains(email);
+  }
+
+  /**
+   * This method reads the admins from the database again, and drops the users cached by
+   * CurrentUserServiceImpl; call it after changing an admin flag.
+   */
+  public void invalidate() {
+    generation.incrementAndGet();
+    refresh();
+  }
+
+  /**
+   * This method returns a number that changes whenever invalidate is called, so that caches of
+   * users can tell whether their admin flags may be out of date.
+   *
+   * @return the current generation
+   */
+  public long generation() {
+    return generation.get();
+  }
+
+  /**
+   * This method reads the admins from the database again. Reads are serialized, so the set kept is
+   * always from the last read started.
+   */
+  @Scheduled(fixedDelayString = "${app.admin.refreshIntervalMs:60000}")
+  public synchronized void refresh() {
+    databaseAdmins = new HashSet<>(userRepository.findAdminEmails());
+  }
+
+  private Set<String> databaseAdmins() {
+    Set<String> admins = databaseAdmins;
+    if (admins == null) {
+      refresh();
+      admins = databaseAdmins;
+    }
+    return admins;
+  }
+}
@@ -0,0 +1,146 @@
+package edu.ucsb.cs156.example.services;
+
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import edu.ucsb.cs156.example.entities.User;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that issues and verifies the bearer tokens used by machine clients of the
+ * API.
+ *
+ * <p>Tokens are JWTs signed with HMAC-SHA256 using app.api.tokens.secret, and carry the id, email
+ * and roles of the user they were issued to. They are verified locally, so that a request with a
+ * token needs neither a session nor a database lookup (see SecurityConfig.apiTokenFilterChain).
+ * Tokens cannot be revoked; they expire after app.api.tokens.ttlSeconds.
+ *
+ * <p>Leave the secret empty to disable tokens. Otherwise it must be at least 32 bytes long.
+ */
+@Service
+public class ApiTokenService {
+
+  /** Name of the claim that holds the roles of the user. */
+  public static final String ROLES_CLAIM = "roles";
+
+  /** Name of the claim that holds the email of the user. */
+  public static final String EMAIL_CLAIM = "email";
+
+  /** Shortest secret that HMAC-SHA256 accepts, in bytes. */
+  private static final int MIN_SECRET_BYTES = 32;
+
+  @Value("${app.api.tokens.secret:}")
+  private String secret;
+
+  @Value("${app.api.tokens.ttlSeconds:3600}")
+  private long ttlSeconds;
+
+  private JwtEncoder encoder;
+
+  private JwtDecoder decoder;
+
+  /** This method builds the encoder and decoder, if tokens are enabled. */
+  @PostConstruct
+  void init() {
+    if (!isEnabled()) {
+      return;
+    }
+    byte[] bytes = secret.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length < MIN_SECRET_BYTES) {
+      throw new IllegalStateException(
+          "app.api.tokens.secret must be at least " + MIN_SECRET_BYTES + " bytes long");
+    }
+    SecretKey key = new SecretKeySpec(bytes, "HmacSHA256");
+    encoder = new NimbusJwtEncoder(new ImmutableSecret<>(key));
+    decoder = NimbusJwtDecoder.withSecretKey(key).macAlgorithm(MacAlgorithm.HS256).build();
+  }
+
+  /**
+   * This method returns whether bearer tokens are enabled.
+   *
+   * @return whether app.api.tokens.secret is set
+   */
+  public boolean isEnabled() {
+    return !secret.isEmpty();
+  }
+
+  /**
+   * This method returns how long the tokens issued now stay valid.
+   *
+   * @return lifetime of a token, in seconds
+   */
+  public long getTtlSeconds() {
+    return ttlSeconds;
+  }
+
+  /**
+   * This method issues a token for a user.
+   *
+   * @param user the user
+   * @param authorities the authorities of the user; only the roles are put in the token
+   * @return the signed token
+   */
+  public String issue(User user, Collection<? extends GrantedAuthority> authorities) {
+    List<String> roles =
+        authorities.stream()
+            .map(GrantedAuthority::getAuthority)
+            .filter(authority -> authority.startsWith("ROLE_"))
+            .sorted()
+            .toList();
+    Instant now = Instant.now();
+    JwtClaimsSet claims =
+        JwtClaimsSet.builder()
+            .subject(Long.toString(user.getId()))
+            .claim(EMAIL_CLAIM, user.getEmail())
+            .claim(ROLES_CLAIM, roles)
+            .issuedAt(now)
+            .expiresAt(now.plusSeconds(ttlSeconds))
+            .build();
+    JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).build();
+    return encoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+  }
+
+  /**
+   * This method verifies a token, including its expiry.
+   *
+   * @param token the token
+   * @return the verified token
+   * @throws JwtException if the token is invalid or has expired
+   */
+  public Jwt decode(String token) throws JwtException {
+    return decoder.decode(token);
+  }
+
+  /**
+   * This method returns the user that a verified token was issued to, without a database lookup.
+   * Only the id, email and admin fields are set.
+   *
+   * @param jwt the verified token
+   * @return the user
+   */
+  public static User toUser(Jwt jwt) {
+    List<String> roles = jwt.getClaimAsStringList(ROLES_CLAIM);
+    return User.builder()
+        .id(Long.parseLong(jwt.getSubject()))
+        .email(jwt.getClaimAsString(EMAIL_CLAIM))
+        .admin(roles != null && roles.contains("ROLE_ADMIN"))
+        .build();
+  }
+}
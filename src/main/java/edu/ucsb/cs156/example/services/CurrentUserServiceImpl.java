@@ -3,9 +3,12 @@ package edu.ucsb.cs156.example.services;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
-import java.util.ArrayList;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import java.io.Serializable;
+import java.time.Instant;
 import java.util.Collection;
-import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,12 +20,22 @@ import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 /**
  * This is a service that provides information about the current user.
  *
  * <p>This is the version of the service used in production.
+ *
+ * <p>The user is looked up once per request and then kept in a request attribute, and also in
+ * the HTTP session (if there is one) for up to app.currentUser.sessionCacheSeconds. Cached users
+ * are dropped whenever the admin status of a user changes (see AdminDirectory.invalidate).
+ *
+ * <p>Requests authenticated with a bearer token are not looked up at all: the user is read from
+ * the token (see ApiTokenService).
  */
 @Slf4j
 @Service("currentUser")
@@ -32,8 +45,24 @@ public class CurrentUserServiceImpl extends CurrentUserService {
 
   @Autowired GrantedAuthoritiesService grantedAuthoritiesService;
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<String>();
+  @Autowired private AdminDirectory adminDirectory;
+
+  @Autowired private UserProfileService userProfileService;
+
+  @Value("${app.currentUser.sessionCacheSeconds:300}")
+  private long sessionCacheSeconds;
+
+  /** Name of the request and session attribute that holds the cached user. */
+  static final String USER_ATTRIBUTE = CurrentUserServiceImpl.class.getName() + ".user";
+
+  /**
+   * A user as looked up for the current request.
+   *
+   * @param user the user
+   * @param generation value of AdminDirectory.generation when the user was looked up
+   * @param resolvedAt when the user was looked up
+   */
+  record CachedUser(User user, long generation, Instant resolvedAt) implements Serializable {}
 
   /**
    * This method returns the current user as a User object.
@@ -50,8 +79,8 @@ public class CurrentUserServiceImpl extends CurrentUserService {
    * This method obtains the current user that is logged in with OAuth2, if any. The parameters are
    * automatically injected by Spring.
    *
-   * <p>This method also has a side effect of storing the user in the database if they are not
-   * already there.
+   * <p>The user is saved to the database when they log in (see UserProfileService), so this
+   * method only reads it, except for users whose session predates that.
    *
    * @param securityContext the security context (provided by Spring)
    * @param authentication the authentication token (provided by Spring)
@@ -61,45 +90,64 @@ public class CurrentUserServiceImpl extends CurrentUserService {
       SecurityContext securityContext, Authentication authentication) {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
     String email = oAuthUser.getAttribute("email");
-    String googleSub = oAuthUser.getAttribute("sub");
-    String pictureUrl = oAuthUser.getAttribute("picture");
-    String fullName = oAuthUser.getAttribute("name");
-    String givenName = oAuthUser.getAttribute("given_name");
-    String familyName = oAuthUser.getAttribute("family_name");
-    boolean emailVerified = oAuthUser.getAttribute("email_verified");
-    String locale = oAuthUser.getAttribute("locale");
-    String hostedDomain = oAuthUser.getAttribute("hd");
-
-    java.util.Map<java.lang.String, java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}", attrs);
-
+    User cached = cachedUser(email);
+    if (cached != null) {
+      return cached;
+    }
+    long generation = adminDirectory.generation();
     Optional<User> ou = userRepository.findByEmail(email);
-    if (ou.isPresent()) {
-      User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
-        u.setAdmin(true);
-        userRepository.save(u);
-      }
-      return u;
+    if (ou.isEmpty()) {
+      // the user logged in before profiles were saved at login time
+      userProfileService.upsert(oAuthUser);
+      ou = userRepository.findByEmail(email);
+    }
+    return cacheUser(ou.orElseThrow(), generation);
+  }
+
+  private User cachedUser(String email) {
+    HttpServletRequest request = currentRequest();
+    if (request == null) {
+      return null;
+    }
+    if (request.getAttribute(USER_ATTRIBUTE) instanceof CachedUser cached
+        && isCurrent(cached, email)) {
+      return cached.user();
+    }
+    HttpSession session = request.getSession(false);
+    if (session != null
+        && session.getAttribute(USER_ATTRIBUTE) instanceof CachedUser cached
+        && isCurrent(cached, email)
+        && cached.resolvedAt().plusSeconds(sessionCacheSeconds).isAfter(Instant.now())) {
+      request.setAttribute(USER_ATTRIBUTE, cached);
+      return cached.user();
     }
+    return null;
+  }
 
-    User u =
-        User.builder()
-            .googleSub(googleSub)
-            .email(email)
-            .pictureUrl(pictureUrl)
-            .fullName(fullName)
-            .givenName(givenName)
-            .familyName(familyName)
-            .emailVerified(emailVerified)
-            .locale(locale)
-            .hostedDomain(hostedDomain)
-            .admin(adminEmails.contains(email))
-            .build();
-    userRepository.save(u);
+  private boolean isCurrent(CachedUser cached, String email) {
+    return Objects.equals(cached.user().getEmail(), email)
+        && cached.generation() == adminDirectory.generation();
+  }
+
+  private User cacheUser(User u, long generation) {
+    HttpServletRequest request = currentRequest();
+    if (request != null) {
+      CachedUser cached = new CachedUser(u, generation, Instant.now());
+      request.setAttribute(USER_ATTRIBUTE, cached);
+      HttpSession session = request.getSession(false);
+      if (session != null) {
+        session.setAttribute(USER_ATTRIBUTE, cached);
+      }
+    }
     return u;
   }
 
+  private static HttpServletRequest currentRequest() {
+    return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes a
+        ? a.getRequest()
+        : null;
+  }
+
   /**
    * This method returns the current user as a User object.
    *
@@ -112,6 +160,9 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     if (authentication instanceof OAuth2AuthenticationToken) {
       return getOAuth2AuthenticatedUser(securityContext, authentication);
     }
+    if (authentication instanceof JwtAuthenticationToken token) {
+      return ApiTokenService.toUser(token.getToken());
+    }
     return null;
   }
 
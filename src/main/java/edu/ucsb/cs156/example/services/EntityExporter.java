@@ -0,0 +1,109 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * This is a service for /export endpoints, which write every row of a table to the response.
+ *
+ * <p>Rows are read from a database cursor (see ListingRepository.streamAll), written to the
+ * response one at a time and then detached from the persistence context, so the memory used does
+ * not grow with the size of the table.
+ */
+@Service
+public class EntityExporter {
+
+  /** The formats an export can be written in. */
+  public enum Format {
+    /** a single JSON array */
+    JSON(MediaType.APPLICATION_JSON),
+    /** one JSON object per line */
+    NDJSON(MediaType.APPLICATION_NDJSON);
+
+    private final MediaType mediaType;
+
+    Format(MediaType mediaType) {
+      this.mediaType = mediaType;
+    }
+  }
+
+  @Autowired private EntityManager entityManager;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  /**
+   * This method returns a response that streams the rows to the client.
+   *
+   * <p>The rows are read when the response is written, after the controller method has returned,
+   * so they are read in a read-only transaction of their own. The response is written as an async
+   * request, so it must be done within spring.mvc.async.request-timeout.
+   *
+   * @param <T> the entity type
+   * @param rows opens the stream of rows, e.g. repository::streamAll
+   * @param format the format to write the rows in
+   * @return the response
+   */
+  public <T> ResponseEntity<StreamingResponseBody> export(
+      Supplier<Stream<T>> rows, Format format) {
+    StreamingResponseBody body =
+        out -> {
+          TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+          transaction.setReadOnly(true);
+          try {
+            transaction.executeWithoutResult(status -> write(rows, format, out));
+          } catch (UncheckedIOException e) {
+            throw e.getCause();
+          }
+        };
+    return ResponseEntity.ok().contentType(format.mediaType).body(body);
+  }
+
+  /**
+   * This method writes the rows to out, detaching each one once it has been written.
+   *
+   * @param <T> the entity type
+   * @param rows opens the stream of rows
+   * @param format the format to write the rows in
+   * @param out where to write the rows; it is left open
+   */
+  <T> void write(Supplier<Stream<T>> rows, Format format, OutputStream out) {
+    ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    boolean ndjson = format == Format.NDJSON;
+    try (Stream<T> stream = rows.get();
+        SequenceWriter sequence =
+            ndjson
+                ? writer.withRootValueSeparator("\n").writeValues(out)
+                : writer.writeValuesAsArray(out)) {
+      Iterator<T> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        T row = iterator.next();
+        sequence.write(row);
+        entityManager.detach(row);
+        if (ndjson && !iterator.hasNext()) {
+          sequence.flush();
+          out.write('\n');
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+/**
+ * This is a service that saves the profile of a user who has just logged in.
+ *
+ * <p>It runs once per login (see SecurityConfig), so that later requests only read the users
+ * table. The profile is written in a single upsert statement, and not at all when it has not
+ * changed since the last login: each row keeps a hash of the profile it was written from.
+ *
+ * <p>On Postgres set app.users.upsertOnConflict=true so that the upsert uses INSERT ... ON
+ * CONFLICT. Otherwise (e.g. on H2) it uses a standard MERGE statement.
+ */
+@Slf4j
+@Service
+public class UserProfileService {
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private AdminDirectory adminDirectory;
+
+  @Value("${app.users.upsertOnConflict:false}")
+  private boolean upsertOnConflict;
+
+  /**
+   * This method inserts the user, or updates their profile if it changed since the last login.
+   *
+   * @param oAuthUser the user as given by the OAuth provider
+   * @return whether a row was written
+   */
+  public boolean upsert(OAuth2User oAuthUser) {
+    String email = oAuthUser.getAttribute("email");
+    Boolean emailVerified = oAuthUser.getAttribute("email_verified");
+    User profile =
+        User.builder()
+            .email(email)
+            .googleSub(oAuthUser.getAttribute("sub"))
+            .pictureUrl(oAuthUser.getAttribute("picture"))
+            .fullName(oAuthUser.getAttribute("name"))
+            .givenName(oAuthUser.getAttribute("given_name"))
+            .familyName(oAuthUser.getAttribute("family_name"))
+            .emailVerified(Boolean.TRUE.equals(emailVerified))
+            .locale(oAuthUser.getAttribute("locale"))
+            .hostedDomain(oAuthUser.getAttribute("hd"))
+            .admin(adminDirectory.isConfiguredAdmin(email))
+            .build();
+    profile.setProfileHash(profileHash(profile));
+
+    int written =
+        upsertOnConflict
+            ? userRepository.upsertProfileOnConflict(profile)
+            : userRepository.mergeProfile(profile);
+    log.info("login of {} wrote {} row(s)", email, written);
+    if (written > 0 && profile.getAdmin()) {
+      adminDirectory.invalidate();
+    }
+    return written > 0;
+  }
+
+  /**
+   * This method returns a hash of the fields of a profile that the upsert writes.
+   *
+   * @param profile the profile
+   * @return md5 of the fields, as hex
+   */
+  static String profileHash(User profile) {
+    String fields =
+        Stream.of(
+                profile.getEmail(),
+                profile.getGoogleSub(),
+                profile.getPictureUrl(),
+                profile.getFullName(),
+                profile.getGivenName(),
+                profile.getFamilyName(),
+                profile.getEmailVerified(),
+                profile.getLocale(),
+                profile.getHostedDomain(),
+                profile.getAdmin())
+            .map(String::valueOf)
+            .collect(Collectors.joining("\u0000"));
+    return DigestUtils.md5DigestAsHex(fields.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,12 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+/**
+ * Thrown by {@link JobContext#log(String)} once the job has been cancelled or has run out of time,
+ * so that a job stops at its next log line even if it never checks {@link
+ * JobContext#isCancelled()} itself.
+ */
+public class JobCancelledException extends RuntimeException {
+  public JobCancelledException(String status) {
+    super("Job stopped: " + status);
+  }
+}
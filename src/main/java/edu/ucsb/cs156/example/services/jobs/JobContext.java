@@ -1,20 +1,196 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import edu.ucsb.cs156.example.entities.Job;
-import edu.ucsb.cs156.example.repositories.JobsRepository;
-import lombok.AllArgsConstructor;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 
-@AllArgsConstructor
+/**
+ * The context handed to a running job. Each call to {@link #log(String)} produces one row in the
+ * job_log_lines table; the Job row itself is not rewritten.
+ *
+ * <p>Lines are held in memory and written together once {@code flushMaxLines} lines are pending or
+ * {@code flushIntervalMs} milliseconds have passed since the last write. With the defaults of the
+ * two-argument constructor every line is written immediately. Each written batch is also handed to
+ * the {@link JobLogBroadcaster}, if any, for clients streaming the log.
+ *
+ * <p>A running job can be stopped with {@link #cancel(String)}: the thread running it is
+ * interrupted, {@link #isCancelled()} becomes true, and further calls to {@link #log(String)} throw
+ * {@link JobCancelledException}. Long-running jobs should check {@link #isCancelled()} between
+ * units of work.
+ */
 @Slf4j
 public class JobContext {
-  private JobsRepository jobsRepository;
+  public static final String INFO = "INFO";
+  public static final String ERROR = "ERROR";
+
+  // final statuses of jobs stopped with cancel()
+  public static final String CANCELLED = "cancelled";
+  public static final String TIMED_OUT = "timed_out";
+
+  private JobLogLinesRepository jobLogLinesRepository;
   private Job job;
+  private int flushMaxLines;
+  private long flushIntervalMs;
+  private JobMetrics jobMetrics;
+  private JobLogBroadcaster jobLogBroadcaster;
+
+  private final List<JobLogLine> pending = new ArrayList<>();
+  private int nextLineNumber;
+  private long lastFlushMillis = System.currentTimeMillis();
+
+  private Thread runner; // thread running the job, while it runs
+  private volatile long deadlineMillis = Long.MAX_VALUE;
+  private volatile String stopStatus; // CANCELLED or TIMED_OUT once cancel() has been called
+
+  public JobContext(JobLogLinesRepository jobLogLinesRepository, Job job) {
+    this(jobLogLinesRepository, job, 0, 1, 0, null, null);
+  }
+
+  @Builder
+  public JobContext(
+      JobLogLinesRepository jobLogLinesRepository,
+      Job job,
+      int firstLineNumber,
+      int flushMaxLines,
+      long flushIntervalMs,
+      JobMetrics jobMetrics,
+      JobLogBroadcaster jobLogBroadcaster) {
+    this.jobLogLinesRepository = jobLogLinesRepository;
+    this.job = job;
+    this.nextLineNumber = firstLineNumber;
+    this.flushMaxLines = flushMaxLines;
+    this.flushIntervalMs = flushIntervalMs;
+    this.jobMetrics = jobMetrics;
+    this.jobLogBroadcaster = jobLogBroadcaster;
+  }
 
   public void log(String message) {
+    if (stopStatus != null) {
+      throw new JobCancelledException(stopStatus);
+    }
+    append(INFO, message);
+  }
+
+  public void error(String message) {
+    append(ERROR, message);
+  }
+
+  /**
+   * Returns whether the job has been asked to stop.
+   *
+   * @return true once {@link #cancel(String)} has been called
+   */
+  public boolean isCancelled() {
+    return stopStatus != null;
+  }
+
+  /**
+   * Returns the status the job should end with because it was stopped.
+   *
+   * @return {@link #CANCELLED} or {@link #TIMED_OUT}, or null if the job was not stopped
+   */
+  public String getStopStatus() {
+    return stopStatus;
+  }
+
+  /**
+   * Asks the job to stop, interrupting it if it is running. Only the first call has any effect.
+   *
+   * @param status the status the job should end with, {@link #CANCELLED} or {@link #TIMED_OUT}
+   */
+  public synchronized void cancel(String status) {
+    if (stopStatus != null) {
+      return;
+    }
+    stopStatus = status;
+    if (runner != null) {
+      runner.interrupt();
+    }
+  }
+
+  /**
+   * Marks the calling thread as the one running the job, so that {@link #cancel(String)} can
+   * interrupt it.
+   *
+   * @param timeoutMs how long the job may run before {@link #isOverdue(long)} is true; 0 for ever
+   */
+  synchronized void started(long timeoutMs) {
+    runner = Thread.currentThread();
+    if (timeoutMs > 0) {
+      deadlineMillis = System.currentTimeMillis() + timeoutMs;
+    }
+  }
+
+  /** Detaches the job from its thread and clears any interrupt meant for the job. */
+  synchronized void stopped() {
+    runner = null;
+    Thread.interrupted();
+  }
+
+  /**
+   * Returns whether the job has been running for longer than its timeout.
+   *
+   * @param nowMillis the current time
+   * @return true if the job's deadline has passed
+   */
+  boolean isOverdue(long nowMillis) {
+    return nowMillis > deadlineMillis;
+  }
+
+  private synchronized void append(String level, String message) {
     log.info("Job %s: %s".formatted(job.getId(), message));
-    String previousLog = job.getLog() == null ? "" : (job.getLog() + "\n");
-    job.setLog(previousLog + message);
-    if (jobsRepository != null) jobsRepository.save(job);
+    pending.add(
+        JobLogLine.builder()
+            .jobId(job.getId())
+            .lineNumber(nextLineNumber++)
+            .loggedAt(ZonedDateTime.now())
+            .logLevel(level)
+            .message(message)
+            .build());
+    if (pending.size() >= flushMaxLines) {
+      flush();
+    } else {
+      flushIfStale();
+    }
+  }
+
+  /** Writes pending lines if at least flushIntervalMs have passed since the last write. */
+  public synchronized void flushIfStale() {
+    if (System.currentTimeMillis() - lastFlushMillis >= flushIntervalMs) {
+      flush();
+    }
+  }
+
+  /**
+   * Writes all pending lines in a single saveAll call. If the write fails the lines stay pending,
+   * and are written by the next flush.
+   *
+   * @throws DataAccessException if the lines cannot be written
+   */
+  public synchronized void flush() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    lastFlushMillis = System.currentTimeMillis();
+    List<JobLogLine> batch = new ArrayList<>(pending);
+    long start = System.nanoTime();
+    if (jobLogLinesRepository != null) {
+      try {
+        jobLogLinesRepository.saveAll(batch);
+      } catch (DataAccessException e) {
+        // the rolled back inserts may have set ids; the lines must be inserted again, not merged
+        batch.forEach(line -> line.setId(0));
+        throw e;
+      }
+    }
+    pending.clear();
+    if (jobMetrics != null) jobMetrics.recordLogFlush(batch.size(), System.nanoTime() - start);
+    if (jobLogBroadcaster != null) jobLogBroadcaster.publish(job.getId(), batch);
   }
 }
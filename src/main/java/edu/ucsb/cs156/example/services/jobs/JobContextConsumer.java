@@ -3,4 +3,13 @@ package edu.ucsb.cs156.example.services.jobs;
 @FunctionalInterface
 public interface JobContextConsumer {
   void accept(JobContext c) throws Exception;
+
+  /**
+   * How long the job may run before it is stopped with status "timed_out".
+   *
+   * @return the timeout in milliseconds, or 0 to use app.jobs.timeoutMs
+   */
+  default long timeoutMs() {
+    return 0;
+  }
 }
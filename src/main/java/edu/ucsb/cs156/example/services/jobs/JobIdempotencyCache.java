@@ -0,0 +1,62 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers, for a short while, the job each recent idempotency key was answered with, so that a
+ * burst of client retries is answered from memory instead of the database. The database's unique
+ * index on (created_by_id, idempotency_key) is what guarantees a key starts at most one job; this
+ * cache only saves lookups, and a retry it answers may see the job's status as of the first
+ * request.
+ */
+@Component
+public class JobIdempotencyCache {
+  @Value("${app.jobs.idempotency.cacheTtlMs:10000}")
+  private long ttlMs;
+
+  @Value("${app.jobs.idempotency.cacheMaxEntries:10000}")
+  private int maxEntries;
+
+  private record Entry(Job job, long expiresAt) {}
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the job remembered for a key.
+   *
+   * @param key the user id and idempotency key
+   * @return the job, or null if none is remembered or it has expired
+   */
+  public Job get(String key) {
+    Entry entry = entries.get(key);
+    return entry != null && entry.expiresAt() > System.currentTimeMillis() ? entry.job() : null;
+  }
+
+  /**
+   * Remembers the job for a key, unless the cache is full.
+   *
+   * @param key the user id and idempotency key
+   * @param job the job the key belongs to
+   */
+  public void put(String key, Job job) {
+    if (entries.size() < maxEntries) {
+      entries.put(key, new Entry(job, System.currentTimeMillis() + ttlMs));
+    }
+  }
+
+  /** Forgets expired entries. */
+  @Scheduled(fixedDelayString = "${app.jobs.idempotency.cacheTtlMs:10000}")
+  public void evictExpired() {
+    long now = System.currentTimeMillis();
+    entries.values().removeIf(entry -> entry.expiresAt() <= now);
+  }
+
+  int size() {
+    return entries.size();
+  }
+}
@@ -0,0 +1,302 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Fans newly written job log lines out to clients that are streaming a job's log as Server-Sent
+ * Events. Each event carries one {@link JobLogLine} and uses its line number as the event id, so a
+ * client that reconnects can resume from where it left off.
+ *
+ * <p>Lines are only published by the process running the job. Streams of jobs running elsewhere are
+ * fed from the database instead, see {@link JobService#pollJobLogStreams()}.
+ *
+ * <p>{@link #publish} and {@link #complete} only queue the events; they are sent to each client in
+ * order on a thread of the broadcaster's own, so a slow client never holds up the job that is
+ * logging. A client that falls more than app.jobs.log.streamMaxQueuedBatches batches behind has its
+ * stream closed, and can reconnect to resume from the database.
+ */
+@Slf4j
+@Component
+public class JobLogBroadcaster {
+
+  private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+  private Executor executor = streamExecutor();
+
+  @Value("${app.jobs.log.streamMaxQueuedBatches:100}")
+  private int maxQueuedBatches;
+
+  private static Executor streamExecutor() {
+    // a stalled client blocks the virtual thread sending to it, and nothing else
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("job-log-stream-");
+    executor.setVirtualThreads(true);
+    return executor;
+  }
+
+  /**
+   * Registers an emitter to receive lines of a job starting at a given line number.
+   *
+   * @param jobId id of the job
+   * @param emitter the emitter connected to the client
+   * @param fromLine first line number the client wants
+   * @return the subscriber, which holds back published lines until it has been sent the lines read
+   *     from the database with {@link Subscriber#replay(List)}
+   */
+  public Subscriber subscribe(long jobId, SseEmitter emitter, int fromLine) {
+    Subscriber subscriber = new Subscriber(emitter, fromLine, executor, maxQueuedBatches);
+    subscribers.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>()).add(subscriber);
+    Runnable unsubscribe = () -> unsubscribe(jobId, subscriber);
+    emitter.onCompletion(unsubscribe);
+    emitter.onTimeout(unsubscribe);
+    emitter.onError(e -> unsubscribe.run());
+    return subscriber;
+  }
+
+  /**
+   * Queues freshly written lines for everyone streaming the job.
+   *
+   * @param jobId id of the job
+   * @param lines lines just written, in order
+   */
+  public void publish(long jobId, List<JobLogLine> lines) {
+    List<Subscriber> current = subscribers.get(jobId);
+    if (current != null) {
+      current.forEach(s -> s.send(lines));
+    }
+  }
+
+  /**
+   * Tells everyone streaming the job that it has finished, and closes their streams, once the lines
+   * queued for them have been sent.
+   *
+   * @param jobId id of the job
+   * @param status final status of the job
+   */
+  public void complete(long jobId, String status) {
+    List<Subscriber> current = subscribers.remove(jobId);
+    if (current != null) {
+      current.forEach(s -> s.complete(status));
+    }
+  }
+
+  /**
+   * Returns the ids of the jobs someone is streaming.
+   *
+   * @return ids of the jobs with subscribers
+   */
+  public Set<Long> getSubscribedJobIds() {
+    return Set.copyOf(subscribers.keySet());
+  }
+
+  /**
+   * Returns the first line number that some subscriber of the job has not been sent yet.
+   *
+   * @param jobId id of the job
+   * @return the lowest next line of the job's subscribers, or empty if there are none
+   */
+  public OptionalInt getNextLine(long jobId) {
+    List<Subscriber> current = subscribers.get(jobId);
+    return current == null
+        ? OptionalInt.empty()
+        : current.stream().mapToInt(Subscriber::getNextLine).min();
+  }
+
+  private void unsubscribe(long jobId, Subscriber subscriber) {
+    subscribers.computeIfPresent(
+        jobId,
+        (id, list) -> {
+          list.remove(subscriber);
+          return list.isEmpty() ? null : list;
+        });
+  }
+
+  /**
+   * One connected client; remembers the next line it expects so no line is sent twice.
+   *
+   * <p>A subscriber starts out replaying: lines published and a completion announced before the
+   * lines read from the database have been passed to {@link #replay(List)} are held back, and sent
+   * after them. Otherwise a flush between subscribing and reading the database would move the
+   * client past lines it has not been sent yet.
+   */
+  public static class Subscriber {
+    private final SseEmitter emitter;
+    private final Executor executor;
+    private final int maxQueued;
+    private int nextLine;
+
+    /** Sends and completions not yet run, in order; guards draining too. */
+    private final Queue<Runnable> outbox = new ArrayDeque<>();
+
+    /** Whether a task on the executor is running the outbox. */
+    private boolean draining;
+
+    /** Lines published while replaying, or null once the replay is done. */
+    private List<JobLogLine> pending = new ArrayList<>();
+
+    /** Final status announced while replaying. */
+    private String pendingStatus;
+
+    private boolean closed;
+
+    Subscriber(SseEmitter emitter, int nextLine, Executor executor, int maxQueued) {
+      this.emitter = emitter;
+      this.nextLine = nextLine;
+      this.executor = executor;
+      this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Returns the first line number the client has not been sent yet.
+     *
+     * @return the next line number
+     */
+    public synchronized int getNextLine() {
+      return nextLine;
+    }
+
+    /**
+     * Sends the lines read from the database, then those published meanwhile, and from then on
+     * sends published lines as they come.
+     *
+     * @param lines lines read from the database, ordered by line number
+     */
+    public synchronized void replay(List<JobLogLine> lines) {
+      List<JobLogLine> published = pending;
+      pending = null;
+      emit(lines);
+      emit(published);
+      if (pendingStatus != null) {
+        completeNow(pendingStatus);
+      }
+    }
+
+    /**
+     * Queues lines to be sent; those the client has not seen yet are sent, or held back during the
+     * replay.
+     *
+     * @param lines lines ordered by line number
+     */
+    public void send(List<JobLogLine> lines) {
+      enqueue(() -> sendNow(lines));
+    }
+
+    /**
+     * Queues the final status of the job, to be sent after the lines queued before it; the stream
+     * is then closed. During the replay it is sent once the replay is done. Only the first
+     * completion has an effect.
+     *
+     * @param status final status of the job
+     */
+    public void complete(String status) {
+      enqueue(() -> completeNow(status));
+    }
+
+    private void enqueue(Runnable task) {
+      synchronized (outbox) {
+        if (outbox.size() >= maxQueued) {
+          // the client is not keeping up; drop what it has not been sent and close its stream
+          outbox.clear();
+          outbox.add(this::drop);
+        } else {
+          outbox.add(task);
+        }
+        if (draining) {
+          return;
+        }
+        draining = true;
+      }
+      try {
+        executor.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        log.warn("Cannot send to a job log stream: {}", e.getMessage());
+        synchronized (outbox) {
+          outbox.clear();
+          draining = false;
+        }
+      }
+    }
+
+    private void drain() {
+      while (true) {
+        Runnable task;
+        synchronized (outbox) {
+          task = outbox.poll();
+          if (task == null) {
+            draining = false;
+            return;
+          }
+        }
+        task.run();
+      }
+    }
+
+    private synchronized void drop() {
+      if (!closed) {
+        log.info("Dropping job log stream of a client that is not keeping up");
+        closed = true;
+        emitter.complete();
+      }
+    }
+
+    private synchronized void sendNow(List<JobLogLine> lines) {
+      if (pending != null) {
+        pending.addAll(lines);
+      } else {
+        emit(lines);
+      }
+    }
+
+    private void emit(List<JobLogLine> lines) {
+      try {
+        for (JobLogLine line : lines) {
+          if (!closed && line.getLineNumber() >= nextLine) {
+            emitter.send(
+                SseEmitter.event()
+                    .name("log")
+                    .id(Integer.toString(line.getLineNumber()))
+                    .data(line));
+            nextLine = line.getLineNumber() + 1;
+          }
+        }
+      } catch (IOException | IllegalStateException e) {
+        log.info("Dropping job log stream: {}", e.getMessage());
+        closed = true;
+        emitter.completeWithError(e);
+      }
+    }
+
+    private synchronized void completeNow(String status) {
+      if (pending != null) {
+        pendingStatus = status;
+        return;
+      }
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        emitter.send(SseEmitter.event().name("complete").data(status));
+        emitter.complete();
+      } catch (IOException | IllegalStateException e) {
+        emitter.completeWithError(e);
+      }
+    }
+  }
+}
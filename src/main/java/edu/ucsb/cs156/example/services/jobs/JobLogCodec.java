@@ -0,0 +1,185 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLog;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Converts job logs to and from their stored form. Logs of at least a threshold size are compressed
+ * with deflate (the algorithm behind gzip, in its lighter zlib framing); smaller ones are stored as
+ * plain UTF-8, since compression only adds overhead there.
+ *
+ * <p>Log lines compacted into a log are joined with newlines, and located by the log's line index
+ * (see {@link JobLog#getLineIndex()}), built by {@link #index(List)} and read by {@link #split}.
+ */
+public final class JobLogCodec {
+  public static final String PLAIN = "plain";
+  public static final String DEFLATE = "deflate";
+
+  private JobLogCodec() {}
+
+  /**
+   * A log split into the text written before log lines were stored separately and the lines
+   * compacted into it.
+   *
+   * @param prefix the earlier text, or null if there is none
+   * @param lines the compacted lines, ordered by line number
+   */
+  public record Lines(String prefix, List<JobLogLine> lines) {}
+
+  /**
+   * Joins a prefix and lines into the text of a log, one message per line.
+   *
+   * @param prefix text written before log lines were stored separately, or null
+   * @param lines the lines, ordered by line number
+   * @return the text
+   */
+  public static String join(String prefix, List<JobLogLine> lines) {
+    List<String> parts = new ArrayList<>();
+    if (prefix != null) {
+      parts.add(prefix);
+    }
+    lines.forEach(line -> parts.add(String.valueOf(line.getMessage())));
+    return String.join("\n", parts);
+  }
+
+  /**
+   * Builds the line index of lines joined by {@link #join}.
+   *
+   * @param lines the lines, ordered by line number
+   * @return the line index, or null if there are no lines
+   */
+  public static String index(List<JobLogLine> lines) {
+    if (lines.isEmpty()) {
+      return null;
+    }
+    int first = lines.get(0).getLineNumber();
+    List<String> lengths = new ArrayList<>();
+    for (JobLogLine line : lines) {
+      while (first + lengths.size() < line.getLineNumber()) {
+        lengths.add("");
+      }
+      lengths.add(Integer.toString(String.valueOf(line.getMessage()).length()));
+    }
+    return first + ":" + String.join(",", lengths);
+  }
+
+  /**
+   * Splits the text of a log by its line index.
+   *
+   * @param jobId id of the job
+   * @param text the decoded log
+   * @param index its line index, or null
+   * @return the text before the lines, and the lines
+   * @throws IllegalStateException if the index does not fit the text
+   */
+  public static Lines split(long jobId, String text, String index) {
+    if (index == null) {
+      return new Lines(text, List.of());
+    }
+    try {
+      int colon = index.indexOf(':');
+      int lineNumber = Integer.parseInt(index.substring(0, colon));
+      String[] lengths = index.substring(colon + 1).split(",", -1);
+      int length = -1; // of the lines with the newlines between them
+      for (String lineLength : lengths) {
+        if (!lineLength.isEmpty()) {
+          length += Integer.parseInt(lineLength) + 1;
+        }
+      }
+      int start = text.length() - length;
+      String prefix = start > 0 ? text.substring(0, start - 1) : null;
+      List<JobLogLine> lines = new ArrayList<>();
+      for (String lineLength : lengths) {
+        if (!lineLength.isEmpty()) {
+          int end = start + Integer.parseInt(lineLength);
+          lines.add(
+              JobLogLine.builder()
+                  .jobId(jobId)
+                  .lineNumber(lineNumber)
+                  .message(text.substring(start, end))
+                  .build());
+          start = end + 1;
+        }
+        lineNumber++;
+      }
+      return new Lines(prefix, lines);
+    } catch (IndexOutOfBoundsException | NumberFormatException e) {
+      throw new IllegalStateException("Corrupt line index of log of job " + jobId, e);
+    }
+  }
+
+  /**
+   * Encodes a job's log for storage.
+   *
+   * @param jobId id of the job
+   * @param text the log
+   * @param compressMinBytes logs of at least this many UTF-8 bytes are compressed
+   * @return the stored form of the log
+   */
+  public static JobLog encode(long jobId, String text, int compressMinBytes) {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    String encoding = PLAIN;
+    if (bytes.length >= compressMinBytes) {
+      Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+      deflater.setInput(bytes);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      deflater.end();
+      bytes = out.toByteArray();
+      encoding = DEFLATE;
+    }
+    return JobLog.builder()
+        .jobId(jobId)
+        .encoding(encoding)
+        .originalLength(text.length())
+        .storedLength(bytes.length)
+        .data(bytes)
+        .build();
+  }
+
+  /**
+   * Decodes a stored job log.
+   *
+   * @param log the stored form of the log
+   * @return the log
+   * @throws IllegalStateException if the stored log is corrupt
+   */
+  public static String decode(JobLog log) {
+    if (PLAIN.equals(log.getEncoding())) {
+      return new String(log.getData(), StandardCharsets.UTF_8);
+    }
+    if (!DEFLATE.equals(log.getEncoding())) {
+      throw new IllegalStateException("Unknown encoding of log of job " + log.getJobId());
+    }
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(log.getData());
+      ByteArrayOutputStream out = new ByteArrayOutputStream(log.getOriginalLength());
+      byte[] buffer = new byte[8192];
+      while (!inflater.finished()) {
+        int n = inflater.inflate(buffer);
+        if (n == 0 && !inflater.finished()) {
+          // the data is truncated, or needs a dictionary we never use
+          throw new DataFormatException("incomplete data");
+        }
+        out.write(buffer, 0, n);
+      }
+      return out.toString(StandardCharsets.UTF_8);
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Corrupt log of job " + log.getJobId(), e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLog;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compacts the log lines of finished jobs into their single-text log in job_logs, compressing large
+ * ones (see JobLogCodec), and deletes the lines. A running job writes its output as job_log_lines
+ * rows so that it can be followed line by line; once it has finished, one compressed row takes far
+ * less room than a row per line.
+ *
+ * <p>A job is compacted app.jobs.log.compactAfterMs after it finished, so that clients still
+ * following its lines can read them to the end first; afterwards JobService serves its lines from
+ * the text, with the line numbers they had (see JobLog.lineIndex). Each job is compacted in a
+ * transaction of its own, so its log is never stored twice or lost.
+ */
+@Component
+@Slf4j
+public class JobLogCompaction {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogsRepository jobLogsRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Value("${app.jobs.log.compressMinBytes:1024}")
+  private int compressMinBytes;
+
+  @Value("${app.jobs.log.compactAfterMs:600000}")
+  private long compactAfterMs;
+
+  @Value("${app.jobs.log.compactBatchSize:100}")
+  private int batchSize;
+
+  /**
+   * Compacts the lines of every job that finished more than app.jobs.log.compactAfterMs ago.
+   *
+   * @return number of jobs compacted
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.log.compactIntervalMs:60000}")
+  public int compactFinishedLogs() {
+    ZonedDateTime finishedBefore = ZonedDateTime.now().minus(Duration.ofMillis(compactAfterMs));
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    int compacted = 0;
+    long afterId = 0;
+    while (true) {
+      List<Long> ids =
+          jobsRepository.findIdsToCompact(finishedBefore, afterId, PageRequest.of(0, batchSize));
+      for (Long id : ids) {
+        try {
+          transaction.executeWithoutResult(status -> compact(id));
+          compacted++;
+        } catch (DataAccessException | IllegalArgumentException | IllegalStateException e) {
+          log.warn("Could not compact the log of job {}: {}", id, e.toString());
+        }
+      }
+      if (ids.size() < batchSize) {
+        break;
+      }
+      afterId = ids.get(ids.size() - 1);
+    }
+    if (compacted > 0) {
+      log.info("Compacted the logs of {} finished jobs", compacted);
+    }
+    return compacted;
+  }
+
+  private void compact(long jobId) {
+    JobLogCodec.Lines stored =
+        jobLogsRepository
+            .findById(jobId)
+            .map(log -> JobLogCodec.split(jobId, JobLogCodec.decode(log), log.getLineIndex()))
+            .orElse(new JobLogCodec.Lines(null, List.of()));
+    List<JobLogLine> lines = new ArrayList<>(stored.lines());
+    lines.addAll(jobLogLinesRepository.findByJobIdOrderByLineNumberAsc(jobId));
+    JobLog log =
+        JobLogCodec.encode(jobId, JobLogCodec.join(stored.prefix(), lines), compressMinBytes);
+    log.setLineIndex(JobLogCodec.index(lines));
+    jobLogsRepository.save(log);
+    jobLogLinesRepository.deleteByJobId(jobId);
+  }
+}
@@ -0,0 +1,104 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLog;
+import edu.ucsb.cs156.example.repositories.JobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves logs out of the old jobs.log TEXT column into job_logs, compressing large ones, a batch at
+ * a time in the background after startup. Each batch is read, written to job_logs and cleared
+ * from jobs in one transaction, which also keeps the logs readable when the driver returns them as
+ * Clobs (as H2 does for TEXT). Once a run finds nothing left to move, later runs return at once.
+ */
+@Component
+@Slf4j
+public class JobLogMigration {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogsRepository jobLogsRepository;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Value("${app.jobs.log.compressMinBytes:1024}")
+  private int compressMinBytes;
+
+  @Value("${app.jobs.log.migrationBatchSize:100}")
+  private int batchSize;
+
+  private volatile boolean done;
+
+  /**
+   * Moves every remaining log out of jobs.log.
+   *
+   * @return number of logs moved
+   */
+  @Scheduled(
+      initialDelayString = "${app.jobs.log.migrationDelayMs:30000}",
+      fixedDelayString = "${app.jobs.log.migrationDelayMs:30000}")
+  public int migrateLogs() {
+    if (done) {
+      return 0;
+    }
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    int moved = 0;
+    while (true) {
+      int batch = transaction.execute(status -> migrateBatch());
+      if (batch == 0) {
+        break;
+      }
+      moved += batch;
+    }
+    if (moved > 0) {
+      log.info("Moved {} job logs to job_logs", moved);
+    }
+    done = true;
+    return moved;
+  }
+
+  private int migrateBatch() {
+    List<Object[]> rows = jobsRepository.findUnmigratedLogs(batchSize);
+    List<JobLog> logs = new ArrayList<>();
+    List<Long> ids = new ArrayList<>();
+    for (Object[] row : rows) {
+      long id = ((Number) row[0]).longValue();
+      logs.add(JobLogCodec.encode(id, text(id, row[1]), compressMinBytes));
+      ids.add(id);
+    }
+    if (!ids.isEmpty()) {
+      jobLogsRepository.saveAll(logs);
+      jobsRepository.clearUnmigratedLogs(ids);
+    }
+    return ids.size();
+  }
+
+  /**
+   * Returns the text of a log as read by a native query: a String, or a Clob for drivers that
+   * return TEXT columns as large objects.
+   *
+   * @param id id of the job
+   * @param value the value of the jobs.log column
+   * @return the text of the log
+   */
+  static String text(long id, Object value) {
+    if (value instanceof Clob clob) {
+      try {
+        return clob.getSubString(1, (int) clob.length());
+      } catch (SQLException e) {
+        throw new DataRetrievalFailureException("Could not read the log of job " + id, e);
+      }
+    }
+    return (String) value;
+  }
+}
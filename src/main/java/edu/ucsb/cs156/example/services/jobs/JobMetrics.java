@@ -0,0 +1,149 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer meters describing the job subsystem. Lifecycle meters are tagged with the job's type
+ * (the simple name of its JobContextConsumer class) so that executor sizing can be read per job
+ * type from /actuator/prometheus.
+ */
+@Component
+public class JobMetrics {
+  private final MeterRegistry meterRegistry;
+  private final Timer logFlushTimer;
+  private final DistributionSummary logFlushLines;
+  private final Counter rejectedJobs;
+
+  public JobMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    this.logFlushTimer =
+        Timer.builder("jobs.log.flush")
+            .description("Time spent writing a batch of buffered job log lines")
+            .register(meterRegistry);
+    this.logFlushLines =
+        DistributionSummary.builder("jobs.log.flush.lines")
+            .description("Number of job log lines written per flush")
+            .register(meterRegistry);
+    this.rejectedJobs =
+        Counter.builder("jobs.executor.rejected")
+            .description("Jobs turned away because the job executor was full")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Publishes the number of running and waiting jobs of the job executor as gauges.
+   *
+   * @param executor the job executor
+   */
+  public void registerExecutor(ThreadPoolTaskExecutor executor) {
+    Gauge.builder("jobs.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+        .description("Jobs currently running")
+        .register(meterRegistry);
+    Gauge.builder("jobs.executor.queued", executor, ThreadPoolTaskExecutor::getQueueSize)
+        .description("Jobs waiting for a free slot in the job executor")
+        .register(meterRegistry);
+  }
+
+  /** Records that a job was rejected by the job executor. */
+  public void recordRejected() {
+    rejectedJobs.increment();
+  }
+
+  /**
+   * Records one flush of buffered job log lines.
+   *
+   * @param lines number of lines written
+   * @param nanos time the write took, in nanoseconds
+   */
+  public void recordLogFlush(int lines, long nanos) {
+    logFlushTimer.record(nanos, TimeUnit.NANOSECONDS);
+    logFlushLines.record(lines);
+  }
+
+  /**
+   * Records one batch of jobs deleted by the retention policy.
+   *
+   * @param policy the policy that expired the jobs: a status, or "default"
+   * @param jobs number of jobs deleted
+   * @param bytes bytes of log output deleted with them
+   */
+  public void recordPurge(String policy, int jobs, long bytes) {
+    meterRegistry.counter("jobs.retention.purged", "policy", policy).increment(jobs);
+    meterRegistry.counter("jobs.retention.reclaimed.bytes", "policy", policy).increment(bytes);
+  }
+
+  /**
+   * Records job logs written to the archive directory before deletion.
+   *
+   * @param jobs number of job logs archived
+   */
+  public void recordArchived(int jobs) {
+    meterRegistry.counter("jobs.retention.archived").increment(jobs);
+  }
+
+  /**
+   * Turns a stored job type (a class name) into a low-cardinality tag value. Lambdas are reported
+   * under the class that declares them, since each lambda class name is unique to a JVM run.
+   *
+   * @param jobType fully qualified class name of the job, or null
+   * @return the tag value
+   */
+  static String jobTypeTag(String jobType) {
+    if (jobType == null) {
+      return "unknown";
+    }
+    int lambda = jobType.indexOf("$$Lambda");
+    String className = lambda >= 0 ? jobType.substring(0, lambda) : jobType;
+    String simpleName = className.substring(className.lastIndexOf('.') + 1);
+    return lambda >= 0 ? simpleName + ".lambda" : simpleName;
+  }
+
+  /**
+   * Records that a job was submitted.
+   *
+   * @param jobType class name of the job
+   */
+  public void recordEnqueued(String jobType) {
+    meterRegistry.counter("jobs.enqueued", "type", jobTypeTag(jobType)).increment();
+  }
+
+  /**
+   * Records that a job started running.
+   *
+   * @param jobType class name of the job
+   * @param wait time between submitting the job and starting it
+   */
+  public void recordStarted(String jobType, Duration wait) {
+    Timer.builder("jobs.wait")
+        .description("Time jobs spend waiting between submission and starting to run")
+        .tag("type", jobTypeTag(jobType))
+        .register(meterRegistry)
+        .record(wait);
+  }
+
+  /**
+   * Records that a job finished.
+   *
+   * @param jobType class name of the job
+   * @param status final status of the job, e.g. complete or error
+   * @param runTime time the job ran for
+   */
+  public void recordFinished(String jobType, String status, Duration runTime) {
+    String type = jobTypeTag(jobType);
+    Timer.builder("jobs.run")
+        .description("Time jobs spend running")
+        .tag("type", type)
+        .tag("status", status)
+        .register(meterRegistry)
+        .record(runTime);
+    meterRegistry.counter("jobs.finished", "type", type, "status", status).increment();
+  }
+}
@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+/**
+ * Priority classes for jobs. Queued jobs of a higher class are always started before those of a
+ * lower class; within a class, users take turns (see {@link JobQueue#claim(int)}).
+ */
+public enum JobPriority {
+  /** Large batches that may wait behind everything else. */
+  BULK(0),
+  NORMAL(10),
+  /** Short jobs someone is waiting on. */
+  INTERACTIVE(20);
+
+  private final int value;
+
+  JobPriority(int value) {
+    this.value = value;
+  }
+
+  /**
+   * Returns the value stored in the jobs.priority column; higher runs first.
+   *
+   * @return the priority value
+   */
+  public int getValue() {
+    return value;
+  }
+}
@@ -0,0 +1,181 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobDependenciesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Database-backed job queue. Each instance of the app is one worker, identified by {@link
+ * #getWorkerId()}; a worker claims jobs by taking a lease on their rows and keeps the lease alive
+ * with heartbeats while the jobs run.
+ *
+ * <p>On Postgres set app.jobs.queue.skipLocked=true so that claiming uses SELECT ... FOR UPDATE
+ * SKIP LOCKED. Otherwise (e.g. on H2) each candidate row is claimed with a conditional UPDATE,
+ * which is equally safe but lets workers race for the same rows.
+ */
+@Slf4j
+@Component
+public class JobQueue {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobDependenciesRepository jobDependenciesRepository;
+
+  @Value("${app.jobs.queue.workerId:}")
+  private String workerId;
+
+  @Value("${app.jobs.queue.skipLocked:false}")
+  private boolean skipLocked;
+
+  @Value("${app.jobs.queue.leaseMs:60000}")
+  private long leaseMs;
+
+  @Value("${app.jobs.queue.maxAttempts:3}")
+  private int maxAttempts;
+
+  /**
+   * Returns the id this instance uses when claiming jobs; app.jobs.queue.workerId if set, otherwise
+   * a random id chosen at startup.
+   *
+   * @return the worker id
+   */
+  public synchronized String getWorkerId() {
+    if (workerId == null || workerId.isEmpty()) {
+      workerId = "worker-" + UUID.randomUUID();
+    }
+    return workerId;
+  }
+
+  /**
+   * Returns the lease expiry for a lease taken or renewed now.
+   *
+   * @return the lease expiry time
+   */
+  public ZonedDateTime newLease() {
+    return ZonedDateTime.now().plus(Duration.ofMillis(leaseMs));
+  }
+
+  /**
+   * Marks a new job as leased by this worker, before it is first saved.
+   *
+   * @param job the new job
+   */
+  public void lease(Job job) {
+    job.setStatus("running");
+    job.setLockedBy(getWorkerId());
+    job.setLeaseExpiresAt(newLease());
+    job.setAttempts(job.getAttempts() + 1);
+  }
+
+  /**
+   * Claims up to max queued or abandoned jobs for this worker. Jobs are chosen by priority and then
+   * round-robin across the users who submitted them (see {@link JobsRepository#findClaimableIds}).
+   *
+   * @param max the most jobs to claim
+   * @return the claimed jobs, now leased by this worker
+   */
+  @Transactional
+  public List<Job> claim(int max) {
+    ZonedDateTime now = ZonedDateTime.now();
+    int abandoned = jobsRepository.failAbandoned(now, maxAttempts);
+    if (abandoned > 0) {
+      log.warn("Gave up on {} abandoned job(s) after {} attempts", abandoned, maxAttempts);
+      // each pass skips one more level of the jobs that depended on them
+      while (jobsRepository.skipAllBlocked(now) > 0) {
+        log.info("Skipped jobs whose dependencies failed");
+      }
+    }
+
+    List<Long> candidates =
+        skipLocked
+            ? jobsRepository.findClaimableIdsSkipLocked(now, maxAttempts, max)
+            : jobsRepository.findClaimableIds(now, maxAttempts, max);
+
+    ZonedDateTime lease = newLease();
+    List<Long> claimed = new ArrayList<>();
+    for (Long id : candidates) {
+      if (jobsRepository.claim(id, getWorkerId(), lease, now) == 1) {
+        claimed.add(id);
+      }
+    }
+
+    List<Job> jobs = new ArrayList<>();
+    jobsRepository.findAllById(claimed).forEach(jobs::add);
+    return jobs;
+  }
+
+  /**
+   * Puts a leased job back in the queue for any worker to pick up.
+   *
+   * @param job the job
+   */
+  public void release(Job job) {
+    job.setStatus("queued");
+    job.setLockedBy(null);
+    job.setLeaseExpiresAt(null);
+    jobsRepository.save(job);
+  }
+
+  /**
+   * Renews this worker's leases on the given jobs.
+   *
+   * @param jobIds ids of jobs this worker is running
+   */
+  public void heartbeat(Collection<Long> jobIds) {
+    if (!jobIds.isEmpty()) {
+      jobsRepository.extendLeases(jobIds, getWorkerId(), newLease());
+    }
+  }
+
+  /**
+   * Records the final status of a job run by this worker and releases the lease. If the lease has
+   * meanwhile passed to another worker, the row is left to that worker.
+   *
+   * @param job the job, with its final status set
+   */
+  public void finish(Job job) {
+    if (job.getFinishedAt() == null) {
+      job.setFinishedAt(ZonedDateTime.now());
+    }
+    int updated =
+        jobsRepository.finish(
+            job.getId(), getWorkerId(), job.getStatus(), job.getStartedAt(), job.getFinishedAt());
+    if (updated == 0) {
+      log.warn("Job {} finished after its lease passed to another worker", job.getId());
+    }
+    job.setLockedBy(null);
+    job.setLeaseExpiresAt(null);
+  }
+
+  /**
+   * Moves on the jobs waiting for some jobs that have just finished: a waiting job whose parents
+   * have all completed is queued, and one with a parent that ended in any other way is skipped,
+   * along with everything downstream of it.
+   *
+   * @param jobIds ids of the finished jobs
+   * @return number of jobs queued
+   */
+  public int resolveDependents(Collection<Long> jobIds) {
+    List<Long> dependents = jobDependenciesRepository.findJobIdsByParentIdIn(jobIds);
+    if (dependents.isEmpty()) {
+      return 0;
+    }
+    ZonedDateTime now = ZonedDateTime.now();
+    int queued = jobsRepository.releaseReady(dependents, now);
+    List<Long> blocked = dependents;
+    while (!blocked.isEmpty() && jobsRepository.skipBlocked(blocked, now) > 0) {
+      blocked = jobDependenciesRepository.findJobIdsByParentIdIn(blocked);
+    }
+    return queued;
+  }
+}
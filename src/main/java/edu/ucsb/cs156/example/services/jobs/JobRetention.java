@@ -0,0 +1,204 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deletes old job records on a schedule (by default, nightly), once enabled with
+ * app.jobs.retention.enabled=true.
+ *
+ * <p>Jobs are kept for app.jobs.retention.maxAgeDays after they are created, unless their status
+ * has its own entry in app.jobs.retention.maxAgeDaysByStatus (e.g. {@code error:90,complete:7}).
+ * A negative age keeps jobs forever. Jobs that are waiting, queued or running are never deleted.
+ *
+ * <p>Jobs are deleted app.jobs.retention.batchSize at a time, one short transaction per batch,
+ * pausing between batches so that the purge does not hold locks or starve the app. If
+ * app.jobs.retention.archiveDir is set, each job's log is first written there as a gzipped text
+ * file; a job whose log cannot be archived is kept.
+ */
+@Component
+@Slf4j
+public class JobRetention {
+  /** Statuses of jobs that have not finished, which are never purged. */
+  static final Set<String> ACTIVE_STATUSES = Set.of("waiting", "queued", "running");
+
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired private JobLogsRepository jobLogsRepository;
+
+  @Autowired private JobService jobService;
+
+  @Autowired private JobMetrics jobMetrics;
+
+  @Value("${app.jobs.retention.enabled:false}")
+  private boolean enabled;
+
+  @Value("${app.jobs.retention.maxAgeDays:30}")
+  private int maxAgeDays;
+
+  @Value("${app.jobs.retention.maxAgeDaysByStatus:}")
+  private String maxAgeDaysByStatus;
+
+  @Value("${app.jobs.retention.batchSize:500}")
+  private int batchSize;
+
+  @Value("${app.jobs.retention.pauseMs:200}")
+  private long pauseMs;
+
+  @Value("${app.jobs.retention.archiveDir:}")
+  private String archiveDir;
+
+  /**
+   * Parses app.jobs.retention.maxAgeDaysByStatus.
+   *
+   * @return maximum age in days, by status
+   */
+  Map<String, Integer> statusPolicies() {
+    Map<String, Integer> policies = new LinkedHashMap<>();
+    for (String entry : maxAgeDaysByStatus.split(",")) {
+      if (entry.isBlank()) {
+        continue;
+      }
+      String[] parts = entry.split(":");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException(
+            "app.jobs.retention.maxAgeDaysByStatus: expected status:days, got " + entry);
+      }
+      policies.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+    }
+    return policies;
+  }
+
+  /**
+   * Deletes every job that is older than its retention policy allows.
+   *
+   * @return number of jobs deleted
+   */
+  @Scheduled(cron = "${app.jobs.retention.cron:0 0 3 * * *}")
+  public long purgeExpiredJobs() {
+    if (!enabled) {
+      return 0;
+    }
+    ZonedDateTime now = ZonedDateTime.now();
+    Map<String, Integer> policies = statusPolicies();
+    long purged = 0;
+
+    for (Map.Entry<String, Integer> policy : policies.entrySet()) {
+      String status = policy.getKey();
+      if (policy.getValue() >= 0 && !ACTIVE_STATUSES.contains(status)) {
+        purged +=
+            purge(
+                status,
+                now.minusDays(policy.getValue()),
+                (cutoff, page) ->
+                    jobsRepository.findIdsByStatusCreatedBefore(status, cutoff, page));
+      }
+    }
+
+    if (maxAgeDays >= 0) {
+      Set<String> excluded = new HashSet<>(ACTIVE_STATUSES);
+      excluded.addAll(policies.keySet());
+      purged +=
+          purge(
+              "default",
+              now.minusDays(maxAgeDays),
+              (cutoff, page) ->
+                  jobsRepository.findIdsByStatusNotInCreatedBefore(excluded, cutoff, page));
+    }
+
+    if (purged > 0) {
+      log.info("Job retention deleted {} jobs", purged);
+    }
+    return purged;
+  }
+
+  private long purge(
+      String policy, ZonedDateTime cutoff, BiFunction<ZonedDateTime, Pageable, List<Long>> finder) {
+    long purged = 0;
+    while (true) {
+      List<Long> ids = finder.apply(cutoff, PageRequest.of(0, batchSize));
+      if (ids.isEmpty()) {
+        break;
+      }
+      List<Long> deletable = archive(ids);
+      if (deletable.isEmpty()) {
+        log.warn("Job retention ({}) stopped: no job in the batch could be archived", policy);
+        break;
+      }
+      long bytes =
+          jobLogsRepository.sumStoredLength(deletable)
+              + jobLogLinesRepository.sumMessageBytes(deletable);
+      int deleted = jobsRepository.deleteByIdIn(deletable);
+      jobMetrics.recordPurge(policy, deleted, bytes);
+      purged += deleted;
+      if (ids.size() < batchSize || !pause()) {
+        break;
+      }
+    }
+    return purged;
+  }
+
+  /**
+   * Writes the logs of some jobs to the archive directory, if one is configured.
+   *
+   * @param ids ids of the jobs
+   * @return ids of the jobs that may now be deleted
+   */
+  List<Long> archive(List<Long> ids) {
+    if (archiveDir.isBlank()) {
+      return ids;
+    }
+    List<Long> archived = new ArrayList<>();
+    for (Long id : ids) {
+      Path file = Path.of(archiveDir).resolve("job-" + id + ".log.gz");
+      try {
+        Files.createDirectories(file.getParent());
+        try (Writer out =
+            new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8)) {
+          out.write(jobService.getJobLogs(id));
+        }
+        archived.add(id);
+      } catch (IOException | IllegalArgumentException e) {
+        log.warn("Could not archive the log of job {}; keeping the job: {}", id, e.toString());
+      }
+    }
+    jobMetrics.recordArchived(archived.size());
+    return archived;
+  }
+
+  private boolean pause() {
+    try {
+      Thread.sleep(pauseMs);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
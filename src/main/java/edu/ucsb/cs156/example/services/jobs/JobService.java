@@ -1,53 +1,687 @@
 package edu.ucsb.cs156.example.services.jobs;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobDependency;
+import edu.ucsb.cs156.example.entities.JobLog;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.JobLogChunk;
+import edu.ucsb.cs156.example.repositories.JobDependenciesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogsRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Service
+@Slf4j
 public class JobService {
   @Autowired private JobsRepository jobsRepository;
 
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired private JobLogsRepository jobLogsRepository;
+
+  @Autowired private JobDependenciesRepository jobDependenciesRepository;
+
   @Autowired private CurrentUserService currentUserService;
 
+  @Autowired private JobMetrics jobMetrics;
+
+  @Autowired private JobLogBroadcaster jobLogBroadcaster;
+
+  @Autowired private JobQueue jobQueue;
+
+  @Autowired private JobIdempotencyCache jobIdempotencyCache;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Autowired
+  @Qualifier("jobExecutor")
+  private ThreadPoolTaskExecutor jobExecutor;
+
   @Lazy @Autowired private JobService self;
 
+  @Value("${app.jobs.log.buffered:true}")
+  private boolean logBuffered;
+
+  @Value("${app.jobs.log.flushMaxLines:100}")
+  private int logFlushMaxLines;
+
+  @Value("${app.jobs.log.flushIntervalMs:1000}")
+  private long logFlushIntervalMs;
+
+  @Value("${app.jobs.log.maxLinesPerRequest:1000}")
+  private int logMaxLinesPerRequest;
+
+  @Value("${app.jobs.log.streamTimeoutMs:1800000}")
+  private long logStreamTimeoutMs;
+
+  @Value("${app.jobs.timeoutMs:3600000}")
+  private long defaultTimeoutMs;
+
+  /** Contexts of the jobs running in this process, so buffered output can be flushed on time. */
+  private final Map<Long, JobContext> runningContexts = new ConcurrentHashMap<>();
+
+  /**
+   * Submits a job with {@link JobPriority#NORMAL} priority.
+   *
+   * @param jobFunction the work to run
+   * @return the Job row describing the job
+   */
   public Job runAsJob(JobContextConsumer jobFunction) {
-    Job job = Job.builder().createdBy(currentUserService.getUser()).status("running").build();
+    return runAsJob(jobFunction, JobPriority.NORMAL);
+  }
+
+  /**
+   * Saves a new Job row and schedules the job.
+   *
+   * <p>The work is stored on the row (class name plus JSON properties) and the job is queued, so
+   * that jobs are started in fair order (see {@link JobQueue#claim(int)}) by whichever instance has
+   * room first, and so that another instance can run the job again if this one dies. If this
+   * instance has an idle job thread the job normally starts before this method returns.
+   *
+   * <p>Work that cannot be stored, such as a lambda, cannot be queued: it is started on this
+   * instance's job executor at once, and saved with status "rejected" if the executor is full.
+   *
+   * @param jobFunction the work to run
+   * @param priority priority class of the job
+   * @return the Job row describing the job
+   */
+  public Job runAsJob(JobContextConsumer jobFunction, JobPriority priority) {
+    return runAsJob(jobFunction, priority, null);
+  }
+
+  /**
+   * Like {@link #runAsJob(JobContextConsumer, JobPriority)}, but a job is only started for the
+   * first request with a given idempotency key; later requests by the same user with that key get
+   * the existing job back instead, so a client can safely retry a launch whose response it never
+   * saw.
+   *
+   * @param jobFunction the work to run
+   * @param priority priority class of the job
+   * @param idempotencyKey key chosen by the client, or null to always start a new job
+   * @return the Job row describing the job
+   */
+  public Job runAsJob(JobContextConsumer jobFunction, JobPriority priority, String idempotencyKey) {
+    User user = currentUserService.getUser();
+    String cacheKey = null;
+    if (idempotencyKey != null) {
+      cacheKey = user.getId() + ":" + idempotencyKey;
+      Job existing = jobIdempotencyCache.get(cacheKey);
+      if (existing == null) {
+        existing =
+            jobsRepository.findByCreatedByAndIdempotencyKey(user, idempotencyKey).orElse(null);
+      }
+      if (existing != null) {
+        jobIdempotencyCache.put(cacheKey, existing);
+        return existing;
+      }
+    }
 
-    jobsRepository.save(job);
-    self.runJobAsync(job, jobFunction);
+    Job job = newJob(jobFunction, user, priority, ZonedDateTime.now());
+    job.setIdempotencyKey(idempotencyKey);
 
+    if (job.getParams() != null) {
+      job.setStatus("queued");
+      Job existing = insert(job);
+      if (existing != null) {
+        return existing;
+      }
+      jobMetrics.recordEnqueued(job.getJobType());
+      dispatch(0);
+      Job result = jobsRepository.findById(job.getId()).orElse(job);
+      if (cacheKey != null) {
+        jobIdempotencyCache.put(cacheKey, result);
+      }
+      return result;
+    }
+
+    jobQueue.lease(job);
+    Job existing = insert(job);
+    if (existing != null) {
+      return existing;
+    }
+    jobMetrics.recordEnqueued(job.getJobType());
+    try {
+      self.runJobAsync(job, jobFunction);
+    } catch (TaskRejectedException e) {
+      log.warn("Job {} rejected: {}", job.getId(), e.getMessage());
+      jobMetrics.recordRejected();
+      job.setStatus("rejected");
+      jobQueue.finish(job);
+    }
     return job;
   }
 
-  @Async
+  /**
+   * Submits many jobs at once: the current user is looked up once, all the Job rows are inserted in
+   * a single transaction, and the jobs are then dispatched together. Every job must be storable
+   * (see {@link #runAsJob(JobContextConsumer, JobPriority)}); lambdas are not accepted.
+   *
+   * @param jobFunctions the work to run, one job each
+   * @param priority priority class of the jobs
+   * @return the Job rows describing the jobs, in the same order
+   * @throws IllegalArgumentException if one of the jobs cannot be stored
+   */
+  @Transactional
+  public List<Job> runAsJobs(
+      List<? extends JobContextConsumer> jobFunctions, JobPriority priority) {
+    return runAsJobs(jobFunctions, Map.of(), priority);
+  }
+
+  /**
+   * Submits a pipeline of jobs, some of which depend on others. A job with dependencies waits
+   * (status "waiting") until all of its parents have completed and is then queued like any other
+   * job, so independent branches run in parallel on whichever job threads are free. If a parent
+   * fails, is cancelled or times out, the jobs downstream of it are skipped (status "skipped").
+   *
+   * <p>Jobs may only depend on jobs listed before them, which rules out cycles. The jobs, their
+   * links (JobDependency rows) and the release of those that depend on nothing are written in one
+   * transaction, and the jobs are only dispatched once it has committed. So either the whole
+   * pipeline is submitted or none of it is, and no job can start, or finish, before its dependents
+   * are linked to it.
+   *
+   * @param jobFunctions the work to run, one job each
+   * @param dependsOn for the index of a job, the indexes of the jobs it depends on
+   * @param priority priority class of the jobs
+   * @return the Job rows describing the jobs, in the same order
+   * @throws IllegalArgumentException if one of the jobs cannot be stored, or a job depends on one
+   *     not listed before it
+   */
+  @Transactional
+  public List<Job> runAsJobs(
+      List<? extends JobContextConsumer> jobFunctions,
+      Map<Integer, ? extends Collection<Integer>> dependsOn,
+      JobPriority priority) {
+    dependsOn.forEach(
+        (job, parents) -> {
+          for (int parent : parents) {
+            if (parent < 0 || parent >= job || job >= jobFunctions.size()) {
+              throw new IllegalArgumentException(
+                  "Job %d cannot depend on job %d".formatted(job, parent));
+            }
+          }
+        });
+
+    User user = currentUserService.getUser();
+    ZonedDateTime now = ZonedDateTime.now();
+    List<Job> jobs = new ArrayList<>();
+    for (JobContextConsumer jobFunction : jobFunctions) {
+      Job job = newJob(jobFunction, user, priority, now);
+      if (job.getParams() == null) {
+        throw new IllegalArgumentException(job.getJobType() + " cannot be stored in the job queue");
+      }
+      // in a pipeline every job waits until the links are stored
+      job.setStatus(dependsOn.isEmpty() ? "queued" : "waiting");
+      jobs.add(job);
+    }
+
+    List<Job> saved = new ArrayList<>();
+    jobsRepository.saveAll(jobs).forEach(saved::add);
+    if (!dependsOn.isEmpty()) {
+      List<JobDependency> links = new ArrayList<>();
+      dependsOn.forEach(
+          (job, parents) ->
+              parents.forEach(
+                  parent ->
+                      links.add(
+                          JobDependency.builder()
+                              .jobId(saved.get(job).getId())
+                              .parentId(saved.get(parent).getId())
+                              .build())));
+      jobDependenciesRepository.saveAll(links);
+      jobsRepository.releaseReady(saved.stream().map(Job::getId).toList(), now);
+      for (int i = 0; i < saved.size(); i++) {
+        Collection<Integer> parents = dependsOn.get(i);
+        if (parents == null || parents.isEmpty()) {
+          saved.get(i).setStatus("queued");
+        }
+      }
+    }
+    afterCommit(
+        () -> {
+          saved.forEach(job -> jobMetrics.recordEnqueued(job.getJobType()));
+          dispatch(0);
+        });
+    return saved;
+  }
+
+  /**
+   * Runs an action once the current transaction has committed, or at once if there is none.
+   *
+   * @param action the action
+   */
+  private static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            action.run();
+          }
+        });
+  }
+
+  /**
+   * Inserts a new Job row.
+   *
+   * @param job the job
+   * @return null if the job was inserted, or the job that a concurrent request with the same
+   *     idempotency key inserted first
+   */
+  private Job insert(Job job) {
+    try {
+      jobsRepository.save(job);
+      return null;
+    } catch (DataIntegrityViolationException e) {
+      if (job.getIdempotencyKey() == null) {
+        throw e;
+      }
+      return jobsRepository
+          .findByCreatedByAndIdempotencyKey(job.getCreatedBy(), job.getIdempotencyKey())
+          .orElseThrow(() -> e);
+    }
+  }
+
+  private Job newJob(
+      JobContextConsumer jobFunction, User user, JobPriority priority, ZonedDateTime now) {
+    return Job.builder()
+        .createdBy(user)
+        .jobType(jobFunction.getClass().getName())
+        .params(serialize(jobFunction))
+        .priority(priority.getValue())
+        .enqueuedAt(now)
+        .build();
+  }
+
+  /**
+   * Claims as many queued or abandoned jobs as this instance's job executor has idle threads for,
+   * and starts them. Runs on a timer as a fallback; jobs are normally dispatched as soon as they
+   * are submitted or a running job finishes.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.queue.pollIntervalMs:5000}")
+  public void pollQueue() {
+    dispatch(0);
+  }
+
+  /**
+   * Starts queued jobs on idle job threads. Jobs are only claimed for threads that are free, so the
+   * executor's own first-come-first-served queue stays empty and the order chosen by {@link
+   * JobQueue#claim(int)} is the order jobs run in.
+   *
+   * @param finishing number of job threads that are about to become free (the caller's own)
+   */
+  private void dispatch(int finishing) {
+    int idle =
+        jobExecutor.getMaxPoolSize()
+            - jobExecutor.getActiveCount()
+            - jobExecutor.getQueueSize()
+            + finishing;
+    if (idle <= 0) {
+      return;
+    }
+    for (Job job : jobQueue.claim(idle)) {
+      JobContextConsumer jobFunction;
+      try {
+        jobFunction = deserialize(job);
+      } catch (Exception e) {
+        log.warn("Job {} cannot be run: {}", job.getId(), e.getMessage());
+        JobContext context = newContext(job);
+        context.error("Job cannot be resumed: " + e.getMessage());
+        context.flush();
+        job.setStatus("error");
+        jobQueue.finish(job);
+        jobQueue.resolveDependents(List.of(job.getId()));
+        continue;
+      }
+      try {
+        self.runJobAsync(job, jobFunction);
+      } catch (TaskRejectedException e) {
+        jobMetrics.recordRejected();
+        jobQueue.release(job);
+      }
+    }
+  }
+
+  /**
+   * Renews the leases on the jobs running in this process, and stops those of them that were
+   * cancelled through another instance.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.queue.heartbeatIntervalMs:20000}")
+  public void heartbeat() {
+    List<Long> running = List.copyOf(runningContexts.keySet());
+    jobQueue.heartbeat(running);
+    if (running.isEmpty()) {
+      return;
+    }
+    for (Long id : jobsRepository.findCancelRequestedIds(running)) {
+      JobContext context = runningContexts.get(id);
+      if (context != null) {
+        context.cancel(JobContext.CANCELLED);
+      }
+    }
+  }
+
+  /** Stops jobs running in this process that have exceeded their timeout. */
+  @Scheduled(fixedDelayString = "${app.jobs.timeoutCheckIntervalMs:1000}")
+  public void enforceTimeouts() {
+    long now = System.currentTimeMillis();
+    for (JobContext context : runningContexts.values()) {
+      if (context.isOverdue(now)) {
+        context.cancel(JobContext.TIMED_OUT);
+      }
+    }
+  }
+
+  /**
+   * Cancels a job. A queued or waiting job is cancelled at once, and the jobs that depend on it are
+   * skipped. A job running in this process is interrupted; one running elsewhere is flagged, and
+   * its instance stops it on its next heartbeat.
+   *
+   * @param jobId id of the job
+   * @return a message describing what was done
+   */
+  public String cancelJob(long jobId) {
+    JobContext context = runningContexts.get(jobId);
+    if (context != null) {
+      context.cancel(JobContext.CANCELLED);
+      return "Cancelling job %d".formatted(jobId);
+    }
+    if (jobsRepository.cancelQueued(jobId, ZonedDateTime.now()) > 0) {
+      jobQueue.resolveDependents(List.of(jobId));
+      return "Job %d cancelled".formatted(jobId);
+    }
+    if (jobsRepository.requestCancel(jobId) > 0) {
+      return "Cancelling job %d".formatted(jobId);
+    }
+    if (!jobsRepository.existsById(jobId)) {
+      throw new EntityNotFoundException(Job.class, jobId);
+    }
+    return "Job %d is not running".formatted(jobId);
+  }
+
+  @Async("jobExecutor")
   public void runJobAsync(Job job, JobContextConsumer jobFunction) {
-    JobContext context = new JobContext(jobsRepository, job);
+    job.setStartedAt(ZonedDateTime.now());
+    if (job.getEnqueuedAt() != null) {
+      jobMetrics.recordStarted(
+          job.getJobType(), Duration.between(job.getEnqueuedAt(), job.getStartedAt()));
+    }
+    JobContext context = newContext(job);
+    long timeoutMs = jobFunction.timeoutMs() > 0 ? jobFunction.timeoutMs() : defaultTimeoutMs;
+    context.started(timeoutMs);
+    if (job.getCancelRequested()) {
+      context.cancel(JobContext.CANCELLED);
+    }
+    runningContexts.put(job.getId(), context);
 
     try {
+      if (job.getAttempts() > 1) {
+        context.log("Restarting job (attempt %d)".formatted(job.getAttempts()));
+      }
       jobFunction.accept(context);
+      job.setStatus("complete");
     } catch (Exception e) {
-      job.setStatus("error");
-      context.log(e.getMessage());
-      return;
+      if (context.isCancelled()) {
+        job.setStatus(context.getStopStatus());
+        context.error(
+            JobContext.TIMED_OUT.equals(context.getStopStatus())
+                ? "Job timed out after %d ms".formatted(timeoutMs)
+                : "Job cancelled");
+      } else {
+        job.setStatus("error");
+        context.error(e.getMessage());
+      }
+    } finally {
+      runningContexts.remove(job.getId());
+      context.stopped();
+      context.flush();
+    }
+
+    job.setFinishedAt(ZonedDateTime.now());
+    jobQueue.finish(job);
+    jobQueue.resolveDependents(List.of(job.getId()));
+    jobMetrics.recordFinished(
+        job.getJobType(),
+        job.getStatus(),
+        Duration.between(job.getStartedAt(), job.getFinishedAt()));
+    jobLogBroadcaster.complete(job.getId(), job.getStatus());
+
+    // this thread is about to be free; hand it the next job in line
+    dispatch(1);
+  }
+
+  private JobContext newContext(Job job) {
+    // a restarted job continues numbering after the lines of its earlier attempts
+    int firstLineNumber =
+        job.getAttempts() > 1
+            ? jobLogLinesRepository
+                .findFirstByJobIdOrderByLineNumberDesc(job.getId())
+                .map(line -> line.getLineNumber() + 1)
+                .orElse(0)
+            : 0;
+    return JobContext.builder()
+        .jobLogLinesRepository(jobLogLinesRepository)
+        .job(job)
+        .firstLineNumber(firstLineNumber)
+        .flushMaxLines(logBuffered ? logFlushMaxLines : 1)
+        .flushIntervalMs(logBuffered ? logFlushIntervalMs : 0)
+        .jobMetrics(jobMetrics)
+        .jobLogBroadcaster(jobLogBroadcaster)
+        .build();
+  }
+
+  private String serialize(JobContextConsumer jobFunction) {
+    if (jobFunction.getClass().isSynthetic()) {
+      return null; // lambdas have no properties to store
+    }
+    try {
+      return mapper.writeValueAsString(jobFunction);
+    } catch (JsonProcessingException e) {
+      return null;
     }
+  }
 
-    job.setStatus("complete");
-    jobsRepository.save(job);
+  private JobContextConsumer deserialize(Job job) throws Exception {
+    if (job.getJobType() == null || job.getParams() == null) {
+      throw new IllegalStateException("the job's work was not stored");
+    }
+    Class<?> type = Class.forName(job.getJobType());
+    if (!JobContextConsumer.class.isAssignableFrom(type)) {
+      throw new IllegalStateException(job.getJobType() + " is not a JobContextConsumer");
+    }
+    return (JobContextConsumer) mapper.readValue(job.getParams(), type);
   }
 
+  /**
+   * Writes out buffered log lines of running jobs that have been quiet for longer than the flush
+   * interval, so output of a job that logs a line and then sleeps does not sit in memory.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.log.flushIntervalMs:1000}")
+  public void flushStaleJobLogs() {
+    runningContexts.values().forEach(JobContext::flushIfStale);
+  }
+
+  /**
+   * Returns the full text of a job's log. Output written before log lines were stored separately
+   * lives in job_logs, possibly compressed, and comes first; the job_log_lines rows follow.
+   *
+   * @param jobId id of the job
+   * @return the job's log, one message per line
+   */
   public String getJobLogs(Long jobId) {
+    if (!jobsRepository.existsById(jobId)) {
+      throw new IllegalArgumentException("Job not found");
+    }
+
+    List<String> lines = new ArrayList<>();
+    jobLogsRepository.findById(jobId).map(JobLogCodec::decode).ifPresent(lines::add);
+    for (JobLogLine line : jobLogLinesRepository.findByJobIdOrderByLineNumberAsc(jobId)) {
+      lines.add(line.getMessage());
+    }
+    return String.join("\n", lines);
+  }
+
+  /**
+   * Returns the log lines of a job written since a given line, at most
+   * app.jobs.log.maxLinesPerRequest of them (see {@link #readLines} for finished jobs).
+   *
+   * @param jobId id of the job
+   * @param fromLine first line number wanted
+   * @return the lines together with the cursor to pass on the next call
+   */
+  public JobLogChunk getJobLogLines(Long jobId, int fromLine) {
+    Job job =
+        jobsRepository
+            .findById(jobId)
+            .orElseThrow(() -> new EntityNotFoundException(Job.class, jobId));
+
+    List<JobLogLine> lines =
+        readLines(jobId, fromLine, Limit.of(logMaxLinesPerRequest), isFinished(job));
+    int nextLine = lines.isEmpty() ? fromLine : lines.get(lines.size() - 1).getLineNumber() + 1;
+    boolean complete = isFinished(job) && lines.size() < logMaxLinesPerRequest;
+
+    return JobLogChunk.builder()
+        .jobId(jobId)
+        .status(job.getStatus())
+        .lines(lines)
+        .nextLine(nextLine)
+        .complete(complete)
+        .build();
+  }
+
+  /**
+   * Opens a Server-Sent Events stream of a job's log. Lines already written from fromLine on are
+   * sent first, then new lines as the job writes them; the stream closes when the job finishes.
+   *
+   * @param jobId id of the job
+   * @param fromLine first line number wanted
+   * @return the emitter for the controller to return
+   */
+  public SseEmitter streamJobLogs(Long jobId, int fromLine) {
+    if (!jobsRepository.existsById(jobId)) {
+      throw new EntityNotFoundException(Job.class, jobId);
+    }
+
+    SseEmitter emitter = new SseEmitter(logStreamTimeoutMs);
+    // subscribe before reading the status, so that a job finishing right now is not missed
+    JobLogBroadcaster.Subscriber subscriber = jobLogBroadcaster.subscribe(jobId, emitter, fromLine);
     Job job =
         jobsRepository
             .findById(jobId)
-            .orElseThrow(() -> new IllegalArgumentException("Job not found"));
+            .orElseThrow(() -> new EntityNotFoundException(Job.class, jobId));
+
+    subscriber.replay(readLines(jobId, fromLine, Limit.unlimited(), isFinished(job)));
+    if (isFinished(job)) {
+      subscriber.complete(job.getStatus());
+    }
+    return emitter;
+  }
+
+  /**
+   * Feeds the log streams of jobs that are not running in this process. Their lines are published
+   * by the process running them, so here they are read from job_log_lines instead, and the streams
+   * are closed once the job's row shows it has finished (or is gone).
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.log.streamPollIntervalMs:2000}")
+  public void pollJobLogStreams() {
+    for (Long jobId : jobLogBroadcaster.getSubscribedJobIds()) {
+      OptionalInt fromLine = jobLogBroadcaster.getNextLine(jobId);
+      if (runningContexts.containsKey(jobId) || fromLine.isEmpty()) {
+        continue;
+      }
+      // read the status before the lines, so that no line written before it finished is missed
+      Optional<Job> job = jobsRepository.findById(jobId);
+      boolean finished = job.map(JobService::isFinished).orElse(true);
+      jobLogBroadcaster.publish(
+          jobId, readLines(jobId, fromLine.getAsInt(), Limit.unlimited(), finished));
+      if (job.isEmpty()) {
+        jobLogBroadcaster.complete(jobId, "deleted");
+      } else if (isFinished(job.get())) {
+        jobLogBroadcaster.complete(jobId, job.get().getStatus());
+      }
+    }
+  }
+
+  /**
+   * Reads the log lines of a job from a given line on. The lines of a finished job are eventually
+   * compacted into its single-text log (see JobLogCompaction), and are then cut from that text by
+   * its line index, keeping their line numbers. Older jobs only ever had the text, which is served
+   * one line of text per line.
+   *
+   * @param jobId id of the job
+   * @param fromLine first line number wanted
+   * @param limit most lines to return
+   * @param finished whether the job has finished, so that its lines may have been compacted
+   * @return the lines, ordered by line number
+   */
+  private List<JobLogLine> readLines(long jobId, int fromLine, Limit limit, boolean finished) {
+    List<JobLogLine> lines =
+        jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            jobId, fromLine, limit);
+    if (!lines.isEmpty() || !finished) {
+      return lines;
+    }
+    return jobLogsRepository
+        .findById(jobId)
+        .map(log -> textLines(jobId, log, fromLine, limit))
+        .orElse(lines);
+  }
+
+  private static List<JobLogLine> textLines(long jobId, JobLog log, int fromLine, Limit limit) {
+    String text = JobLogCodec.decode(log);
+    if (log.getLineIndex() != null) {
+      return JobLogCodec.split(jobId, text, log.getLineIndex()).lines().stream()
+          .filter(line -> line.getLineNumber() >= fromLine)
+          .limit(limit.isLimited() ? limit.max() : Long.MAX_VALUE)
+          .toList();
+    }
+    String[] messages = text.isEmpty() ? new String[0] : text.split("\n", -1);
+    int end = messages.length;
+    if (limit.isLimited()) {
+      end = (int) Math.min(end, (long) fromLine + limit.max());
+    }
+    List<JobLogLine> lines = new ArrayList<>();
+    for (int i = Math.max(fromLine, 0); i < end; i++) {
+      lines.add(JobLogLine.builder().jobId(jobId).lineNumber(i).message(messages[i]).build());
+    }
+    return lines;
+  }
 
-    String log = job.getLog();
-    return log != null ? log : "";
+  private static boolean isFinished(Job job) {
+    return !"running".equals(job.getStatus())
+        && !"queued".equals(job.getStatus())
+        && !"waiting".equals(job.getStatus());
   }
 }
@@ -2,16 +2,22 @@ package edu.ucsb.cs156.example;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.controllers.ApiController;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.services.wiremock.WiremockService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.io.UnsupportedEncodingException;
+import java.util.List;
 import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -28,6 +34,25 @@ public abstract class ControllerTestCase {
 
   @MockBean WiremockService mockWiremockService;
 
+  /** The /all endpoints read this many rows, as one page (see ApiController.listAll). */
+  @Value("${app.listing.allMaxRows}")
+  protected int allMaxRows;
+
+  @Autowired(required = false)
+  List<ApiController> apiControllers = List.of();
+
+  /**
+   * The controllers outlive a single test, so the /all responses they cache must be dropped
+   * before each test, or a test could see the repository contents mocked by an earlier one.
+   */
+  @BeforeEach
+  public void invalidateListingCaches() {
+    for (ApiController controller : apiControllers) {
+      ReflectionTestUtils.invokeMethod(
+          AopTestUtils.getUltimateTargetObject(controller), "invalidateListing");
+    }
+  }
+
   protected Map<String, Object> responseToJson(MvcResult result)
       throws UnsupportedEncodingException, JsonProcessingException {
     String responseString = result.getResponse().getContentAsString();
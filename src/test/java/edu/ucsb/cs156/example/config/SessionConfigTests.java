@@ -0,0 +1,56 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.User;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.serializer.DefaultSerializer;
+import org.springframework.core.serializer.support.SerializationFailedException;
+
+public class SessionConfigTests {
+
+  private static final ClassLoader CLASS_LOADER = SessionConfigTests.class.getClassLoader();
+
+  @Test
+  void short_attributes_are_stored_as_they_are() throws Exception {
+    byte[] bytes = SessionConfig.serialize(42L, 256);
+
+    assertArrayEquals(new DefaultSerializer().serializeToByteArray(42L), bytes);
+    assertEquals(42L, SessionConfig.deserialize(bytes, CLASS_LOADER));
+  }
+
+  @Test
+  void long_attributes_are_gzipped() throws Exception {
+    List<User> users = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      users.add(User.builder().id(i).email("cgaucho" + i + "@ucsb.edu").fullName("Chris").build());
+    }
+    int serialized = new DefaultSerializer().serializeToByteArray(users).length;
+
+    byte[] bytes = SessionConfig.serialize(users, 256);
+
+    assertTrue(bytes.length < serialized, bytes.length + " of " + serialized + " bytes");
+    assertEquals(users, SessionConfig.deserialize(bytes, CLASS_LOADER));
+  }
+
+  @Test
+  void attributes_that_do_not_compress_are_stored_as_they_are() throws Exception {
+    byte[] bytes = SessionConfig.serialize("x", 0);
+
+    assertArrayEquals(new DefaultSerializer().serializeToByteArray("x"), bytes);
+  }
+
+  @Test
+  void attributes_that_are_not_serializable_are_refused() {
+    assertThrows(
+        SerializationFailedException.class, () -> SessionConfig.serialize(new Object(), 0));
+    assertThrows(
+        SerializationFailedException.class,
+        () -> SessionConfig.deserialize(new byte[] {0x1f, (byte) 0x8b, 1}, CLASS_LOADER));
+  }
+}
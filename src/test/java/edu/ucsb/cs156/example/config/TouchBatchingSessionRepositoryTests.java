@@ -0,0 +1,211 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.config.TouchBatchingSessionRepository.TouchedSession;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.MapSession;
+import org.springframework.session.MapSessionRepository;
+import org.springframework.session.Session;
+
+public class TouchBatchingSessionRepositoryTests {
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  private final Map<String, Session> sessions = new HashMap<>();
+
+  private TouchBatchingSessionRepository<MapSession> repository;
+
+  private String id;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    repository =
+        new TouchBatchingSessionRepository<>(new MapSessionRepository(sessions), jdbcTemplate);
+    TouchedSession<MapSession> session = repository.createSession();
+    session.setAttribute("name", "cgaucho");
+    repository.save(session);
+    id = session.getId();
+  }
+
+  private Instant storedLastAccessedTime() {
+    return sessions.get(id).getLastAccessedTime();
+  }
+
+  @Test
+  void new_and_changed_sessions_are_saved_at_once() {
+    TouchedSession<MapSession> session = repository.findById(id);
+    Instant now = session.getLastAccessedTime().plusSeconds(5);
+    session.setLastAccessedTime(now);
+    session.setAttribute("name", "ldelplaya");
+
+    repository.save(session);
+
+    assertEquals("ldelplaya", sessions.get(id).getAttribute("name"));
+    assertEquals(now, storedLastAccessedTime());
+    assertEquals(0, repository.flushTouches());
+  }
+
+  @Test
+  void touched_sessions_are_not_saved_until_flushed() {
+    Instant stored = storedLastAccessedTime();
+    TouchedSession<MapSession> session = repository.findById(id);
+    session.setLastAccessedTime(stored.plusSeconds(5));
+    repository.save(session);
+    TouchedSession<MapSession> later = repository.findById(id);
+    later.setLastAccessedTime(stored.plusSeconds(7));
+    repository.save(later);
+
+    assertEquals(stored, storedLastAccessedTime());
+    assertEquals(stored.plusSeconds(7), repository.findById(id).getLastAccessedTime());
+
+    assertEquals(1, repository.flushTouches());
+
+    long lastAccessTime = stored.plusSeconds(7).toEpochMilli();
+    long expiryTime = stored.plusSeconds(7).plus(Duration.ofMinutes(30)).toEpochMilli();
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate)
+        .batchUpdate(
+            eq(TouchBatchingSessionRepository.UPDATE_LAST_ACCESS_TIME_QUERY), batch.capture());
+    assertEquals(1, batch.getValue().size());
+    assertEquals(
+        List.of(lastAccessTime, expiryTime, id, lastAccessTime),
+        List.of(batch.getValue().get(0)));
+    assertEquals(0, repository.flushTouches());
+  }
+
+  @Test
+  void touches_of_a_failed_batch_are_written_by_the_next_flush() {
+    Instant stored = storedLastAccessedTime();
+    TouchedSession<MapSession> session = repository.findById(id);
+    session.setLastAccessedTime(stored.plusSeconds(5));
+    repository.save(session);
+    when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+        .thenAnswer(
+            invocation -> {
+              // touched again while the batch is being written
+              TouchedSession<MapSession> later = repository.findById(id);
+              later.setLastAccessedTime(stored.plusSeconds(7));
+              repository.save(later);
+              throw new QueryTimeoutException("timed out");
+            })
+        .thenReturn(new int[] {1});
+
+    assertThrows(QueryTimeoutException.class, () -> repository.flushTouches());
+    assertEquals(stored.plusSeconds(7), repository.findById(id).getLastAccessedTime());
+
+    assertEquals(1, repository.flushTouches());
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batch.capture());
+    assertEquals(stored.plusSeconds(7).toEpochMilli(), batch.getValue().get(0)[0]);
+    assertEquals(0, repository.flushTouches());
+  }
+
+  @Test
+  void an_earlier_touch_does_not_replace_a_later_one() {
+    Instant stored = storedLastAccessedTime();
+    TouchedSession<MapSession> later = repository.findById(id);
+    TouchedSession<MapSession> earlier = repository.findById(id);
+    later.setLastAccessedTime(stored.plusSeconds(7));
+    earlier.setLastAccessedTime(stored.plusSeconds(5));
+
+    repository.save(later);
+    repository.save(earlier);
+
+    assertEquals(stored.plusSeconds(7), repository.findById(id).getLastAccessedTime());
+  }
+
+  @Test
+  void sessions_that_never_expire_are_touched_with_the_largest_expiry_time() {
+    TouchedSession<MapSession> session = repository.findById(id);
+    session.setMaxInactiveInterval(Duration.ofSeconds(-1));
+    repository.save(session);
+    TouchedSession<MapSession> touched = repository.findById(id);
+    touched.setLastAccessedTime(storedLastAccessedTime().plusSeconds(5));
+    repository.save(touched);
+
+    repository.flushTouches();
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+    assertEquals(Long.MAX_VALUE, batch.getValue().get(0)[1]);
+    assertFalse(touched.isExpired());
+  }
+
+  @Test
+  void sessions_that_were_not_touched_are_not_written() {
+    repository.save(repository.findById(id));
+
+    assertEquals(0, repository.flushTouches());
+    verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+  }
+
+  @Test
+  void deleted_sessions_are_not_touched() {
+    TouchedSession<MapSession> session = repository.findById(id);
+    session.setLastAccessedTime(storedLastAccessedTime().plusSeconds(5));
+    repository.save(session);
+
+    repository.deleteById(id);
+
+    assertNull(repository.findById(id));
+    assertEquals(0, repository.flushTouches());
+  }
+
+  @Test
+  void a_changed_session_id_is_saved() {
+    TouchedSession<MapSession> session = repository.findById(id);
+    String newId = session.changeSessionId();
+    repository.save(session);
+
+    assertNull(repository.findById(id));
+    assertEquals("cgaucho", repository.findById(newId).getAttribute("name"));
+  }
+
+  @Test
+  void sessions_delegate_their_attributes() {
+    TouchedSession<MapSession> session = repository.findById(id);
+    session.removeAttribute("name");
+    repository.save(session);
+
+    TouchedSession<MapSession> found = repository.findById(id);
+    assertTrue(found.getAttributeNames().isEmpty());
+    assertEquals(sessions.get(id).getCreationTime(), found.getCreationTime());
+    assertEquals(Duration.ofMinutes(30), found.getMaxInactiveInterval());
+  }
+
+  @Test
+  void sessions_expire_after_their_last_access() {
+    TouchedSession<MapSession> session = repository.findById(id);
+
+    assertFalse(session.isExpired());
+    session.setLastAccessedTime(Instant.now().minus(Duration.ofMinutes(31)));
+    assertTrue(session.isExpired());
+  }
+}
@@ -1,18 +1,32 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.server.ResponseStatusException;
 
 @WebMvcTest(controllers = DummyController.class)
 @Import(TestConfig.class)
@@ -20,6 +34,8 @@ public class ApiControllerTests extends ControllerTestCase {
 
   @MockBean UserRepository userRepository;
 
+  @MockBean RestaurantRepository restaurantRepository;
+
   @Test
   public void generic_message_test() {
     ApiController apiController = new DummyController();
@@ -28,6 +44,37 @@ public class ApiControllerTests extends ControllerTestCase {
     assertEquals(expected, result);
   }
 
+  @Test
+  public void list_all_is_unlimited_when_max_rows_is_zero() {
+    ApiController apiController = new DummyController();
+    ReflectionTestUtils.setField(apiController, "listingAllMaxRows", 0);
+    List<Restaurant> restaurants = List.of(Restaurant.builder().name("Freebirds").build());
+    when(restaurantRepository.findAll()).thenReturn(restaurants);
+
+    Page<Restaurant> result = apiController.listAll(restaurantRepository);
+
+    assertEquals(restaurants, result.getContent());
+    assertFalse(result.hasNext());
+    verify(restaurantRepository, never()).findAll(any(Pageable.class));
+  }
+
+  @Test
+  public void save_batch_rejects_too_many_rows() {
+    ApiController apiController = new DummyController();
+    ReflectionTestUtils.setField(apiController, "crudMaxBatchSize", 1);
+    List<Restaurant> restaurants =
+        List.of(Restaurant.builder().name("Freebirds").build(), Restaurant.builder().build());
+
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> apiController.saveBatch(restaurantRepository, restaurants));
+
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    assertEquals("At most 1 rows may be created at once", e.getReason());
+    verify(restaurantRepository, never()).saveAll(any());
+  }
+
   @Test
   public void test_that_dummy_controller_returns_String1_when_1_is_passed() throws Exception {
 
@@ -0,0 +1,104 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.ApiToken;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ApiTokenService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+@WebMvcTest(controllers = ApiTokenController.class)
+@Import(TestConfig.class)
+public class ApiTokenControllerTests extends ControllerTestCase {
+
+  @MockBean UserRepository userRepository;
+
+  @MockBean ApiTokenService apiTokenService;
+
+  @Test
+  public void issueToken__logged_out() throws Exception {
+    mockMvc.perform(post("/api/tokens").with(csrf())).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void issueToken__logged_in() throws Exception {
+    // arrange
+
+    when(apiTokenService.isEnabled()).thenReturn(true);
+    when(apiTokenService.getTtlSeconds()).thenReturn(3600L);
+    when(apiTokenService.issue(any(), any())).thenReturn("header.claims.signature");
+    ApiToken expected =
+        ApiToken.builder().token("header.claims.signature").expiresInSeconds(3600L).build();
+
+    // act
+
+    MvcResult response =
+        mockMvc.perform(post("/api/tokens").with(csrf())).andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(apiTokenService).issue(eq(currentUserService.getUser()), any());
+    assertEquals(
+        mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void issueToken__tokens_disabled() throws Exception {
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/tokens").with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+
+    verify(apiTokenService, never()).issue(any(), any());
+    assertEquals("API tokens are not enabled", response.getResponse().getErrorMessage());
+  }
+
+  @Test
+  public void issueToken__not_with_a_token() throws Exception {
+    // arrange
+
+    when(apiTokenService.isEnabled()).thenReturn(true);
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/tokens")
+                    .with(csrf())
+                    .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER"))))
+            .andExpect(status().isForbidden())
+            .andReturn();
+
+    // assert
+
+    verify(apiTokenService, never()).issue(any(), any());
+    assertEquals(
+        "A token cannot be used to get another token",
+        response.getResponse().getErrorMessage());
+  }
+}
@@ -15,19 +15,32 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.ArticleRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -37,6 +50,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
   @MockBean ArticleRepository articleRepository;
 
+  @MockBean EntityExporter entityExporter;
+
   @MockBean UserRepository userRepository;
 
   // Authorization tests for /api/articles/admin/all
@@ -51,6 +66,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(articleRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(List.of()));
     mockMvc.perform(get("/api/articles/all")).andExpect(status().is(200)); // logged
   }
 
@@ -157,7 +174,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
     ArrayList<Article> expectedArticles = new ArrayList<>();
     expectedArticles.addAll(Arrays.asList(article1, article2));
 
-    when(articleRepository.findAll()).thenReturn(expectedArticles);
+    when(articleRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(expectedArticles));
 
     // act
     MvcResult response =
@@ -165,12 +183,55 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(articleRepository, times(1)).findAll();
+    verify(articleRepository, times(1)).findAll(PageRequest.of(0, allMaxRows));
     String expectedJson = mapper.writeValueAsString(expectedArticles);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_of_articles() throws Exception {
+
+    // arrange
+    List<Article> items = List.of(Article.builder().build());
+    when(articleRepository.findBy(
+            ScrollPosition.keyset(), Sort.by(Sort.Direction.ASC, "id"), Limit.of(50)))
+        .thenReturn(Window.from(items, i -> ScrollPosition.keyset(), false));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/articles/page")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    String expectedJson =
+        mapper.writeValueAsString(ListingPage.<Article>builder().items(items).build());
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/articles/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export_articles() throws Exception {
+
+    // arrange
+    when(entityExporter.export(any(), eq(EntityExporter.Format.NDJSON)))
+        .thenReturn(ResponseEntity.ok().build());
+
+    // act
+    mockMvc.perform(get("/api/articles/export?format=NDJSON")).andExpect(status().isOk());
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<Article>>> rows = ArgumentCaptor.captor();
+    verify(entityExporter, times(1)).export(rows.capture(), eq(EntityExporter.Format.NDJSON));
+    rows.getValue().get();
+    verify(articleRepository, times(1)).streamAll();
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_new_article() throws Exception {
@@ -205,6 +266,38 @@ public class ArticlesControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_a_batch_of_articles() throws Exception {
+    // arrange
+
+    Article incoming1 = Article.builder().id(7L).title("Mapping dining halls").build();
+    Article incoming2 = Article.builder().id(7L).title("Menu trends").build();
+    Article new1 = Article.builder().title("Mapping dining halls").build();
+    Article new2 = Article.builder().title("Menu trends").build();
+    Article saved1 = Article.builder().id(1L).title("Mapping dining halls").build();
+    Article saved2 = Article.builder().id(2L).title("Menu trends").build();
+
+    when(articleRepository.saveAll(List.of(new1, new2))).thenReturn(List.of(saved1, saved2));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/articles/post/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .characterEncoding("utf-8")
+                    .content(mapper.writeValueAsString(List.of(incoming1, incoming2)))
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(articleRepository, times(1)).saveAll(List.of(new1, new2));
+    String expectedJson = mapper.writeValueAsString(List.of(saved1, saved2));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void admin_can_edit_an_existing_article() throws Exception {
@@ -16,19 +16,32 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -37,6 +50,8 @@ import org.springframework.test.web.servlet.MvcResult;
 public class HelpRequestControllerTests extends ControllerTestCase {
   @MockBean HelpRequestRepository helpRequestRepository;
 
+  @MockBean EntityExporter entityExporter;
+
   @MockBean UserRepository userRepository;
 
   // Authorization tests for /api/helpRequests/admin/all
@@ -51,6 +66,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(helpRequestRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(List.of()));
     mockMvc.perform(get("/api/helprequests/all")).andExpect(status().is(200)); // logged
   }
 
@@ -102,7 +119,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
     ArrayList<HelpRequest> expectedRequests = new ArrayList<>();
     expectedRequests.addAll(Arrays.asList(helpRequest1, helpRequest2));
 
-    when(helpRequestRepository.findAll()).thenReturn(expectedRequests);
+    when(helpRequestRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(expectedRequests));
 
     // act
     MvcResult response =
@@ -110,12 +128,55 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(helpRequestRepository, times(1)).findAll();
+    verify(helpRequestRepository, times(1)).findAll(PageRequest.of(0, allMaxRows));
     String expectedJson = mapper.writeValueAsString(expectedRequests);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_of_help_requests() throws Exception {
+
+    // arrange
+    List<HelpRequest> items = List.of(HelpRequest.builder().build());
+    when(helpRequestRepository.findBy(
+            ScrollPosition.keyset(), Sort.by(Sort.Direction.ASC, "id"), Limit.of(50)))
+        .thenReturn(Window.from(items, i -> ScrollPosition.keyset(), false));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/helprequests/page")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    String expectedJson =
+        mapper.writeValueAsString(ListingPage.<HelpRequest>builder().items(items).build());
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/helprequests/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export_help_requests() throws Exception {
+
+    // arrange
+    when(entityExporter.export(any(), eq(EntityExporter.Format.NDJSON)))
+        .thenReturn(ResponseEntity.ok().build());
+
+    // act
+    mockMvc.perform(get("/api/helprequests/export?format=NDJSON")).andExpect(status().isOk());
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<HelpRequest>>> rows = ArgumentCaptor.captor();
+    verify(entityExporter, times(1)).export(rows.capture(), eq(EntityExporter.Format.NDJSON));
+    rows.getValue().get();
+    verify(helpRequestRepository, times(1)).streamAll();
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_new_helprequest() throws Exception {
@@ -191,6 +252,38 @@ public class HelpRequestControllerTests extends ControllerTestCase {
     assertEquals(expectedJson2, responseString2);
   }
 
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_a_batch_of_help_requests() throws Exception {
+    // arrange
+
+    HelpRequest incoming1 = HelpRequest.builder().id(7L).requesterEmail("a@ucsb.edu").build();
+    HelpRequest incoming2 = HelpRequest.builder().id(7L).requesterEmail("b@ucsb.edu").build();
+    HelpRequest new1 = HelpRequest.builder().requesterEmail("a@ucsb.edu").build();
+    HelpRequest new2 = HelpRequest.builder().requesterEmail("b@ucsb.edu").build();
+    HelpRequest saved1 = HelpRequest.builder().id(1L).requesterEmail("a@ucsb.edu").build();
+    HelpRequest saved2 = HelpRequest.builder().id(2L).requesterEmail("b@ucsb.edu").build();
+
+    when(helpRequestRepository.saveAll(List.of(new1, new2))).thenReturn(List.of(saved1, saved2));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/helprequests/post/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .characterEncoding("utf-8")
+                    .content(mapper.writeValueAsString(List.of(incoming1, incoming2)))
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(1)).saveAll(List.of(new1, new2));
+    String expectedJson = mapper.writeValueAsString(List.of(saved1, saved2));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
   @Test
   public void logged_out_users_cannot_get_by_id() throws Exception {
     mockMvc
@@ -4,28 +4,52 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.JobExecutorConfig;
 import edu.ucsb.cs156.example.entities.Job;
-import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.JobSummaryPage;
+import edu.ucsb.cs156.example.repositories.JobDependenciesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogsRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobIdempotencyCache;
+import edu.ucsb.cs156.example.services.jobs.JobLogBroadcaster;
+import edu.ucsb.cs156.example.services.jobs.JobLogCodec;
+import edu.ucsb.cs156.example.services.jobs.JobMetrics;
+import edu.ucsb.cs156.example.services.jobs.JobPriority;
+import edu.ucsb.cs156.example.services.jobs.JobQueue;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
@@ -34,32 +58,101 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
 
 @Slf4j
 @WebMvcTest(controllers = JobsController.class)
-@Import(JobService.class)
+@Import({
+  JobService.class,
+  JobMetrics.class,
+  JobLogBroadcaster.class,
+  JobQueue.class,
+  JobIdempotencyCache.class,
+  JobExecutorConfig.class
+})
 @AutoConfigureDataJpa
 public class JobsControllerTests extends ControllerTestCase {
 
   @MockitoBean JobsRepository jobsRepository;
 
+  @MockitoBean JobLogLinesRepository jobLogLinesRepository;
+
+  @MockitoBean JobLogsRepository jobLogsRepository;
+
+  @MockitoBean JobDependenciesRepository jobDependenciesRepository;
+
   @MockitoBean UserRepository userRepository;
 
   @Autowired JobService jobService;
 
   @Autowired ObjectMapper objectMapper;
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_page_through_job_summaries() throws Exception {
+
+    // arrange
+    ZonedDateTime after = ZonedDateTime.parse("2024-01-01T00:00:00Z");
+    JobSummary job9 = JobSummary.builder().id(9L).status("complete").logLength(12L).build();
+    JobSummary job7 = JobSummary.builder().id(7L).status("complete").build();
+    when(jobsRepository.findSummaries(
+            eq("complete"), eq(after), eq(null), eq(10L), eq(PageRequest.of(0, 2))))
+        .thenReturn(List.of(job9, job7));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/jobs/page")
+                    .param("status", "complete")
+                    .param("createdAfter", "2024-01-01T00:00:00Z")
+                    .param("beforeId", "10")
+                    .param("size", "2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    JobSummaryPage expected =
+        JobSummaryPage.builder().jobs(List.of(job9, job7)).nextBeforeId(7L).build();
+    assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void job_summaries_last_page_has_no_cursor_and_size_is_capped() throws Exception {
+
+    // arrange
+    when(jobsRepository.findSummaries(any(), any(), any(), any(), any())).thenReturn(List.of());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/page").param("size", "100000"))
+            .andExpect(status().isOk())
+            .andReturn();
+    mockMvc.perform(get("/api/jobs/page").param("size", "0")).andExpect(status().isOk());
+
+    // assert
+    verify(jobsRepository).findSummaries(null, null, null, null, PageRequest.of(0, 500));
+    verify(jobsRepository).findSummaries(null, null, null, null, PageRequest.of(0, 1));
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(List.of(), json.get("jobs"));
+    assertEquals(null, json.get("nextBeforeId"));
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_can_get_all_jobs() throws Exception {
 
     // arrange
 
-    Job job1 = Job.builder().log("this is job 1").build();
-    Job job2 = Job.builder().log("this is job 2").build();
+    Job job1 = Job.builder().id(1L).status("complete").build();
+    Job job2 = Job.builder().id(2L).status("running").build();
 
     ArrayList<Job> expectedJobs = new ArrayList<>();
     expectedJobs.addAll(Arrays.asList(job1, job2));
@@ -84,7 +177,7 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    Job job = Job.builder().id(1L).status("completed").log("This is a test job log.").build();
+    Job job = Job.builder().id(1L).status("completed").build();
 
     when(jobsRepository.findById(eq(1L))).thenReturn(Optional.of(job));
 
@@ -150,9 +243,9 @@ public class JobsControllerTests extends ControllerTestCase {
     // Arrange
     Long jobId = 1L;
     String jobLog = "This is a job log";
-    Job job = Job.builder().build();
-    job.setLog(jobLog);
-    when(jobsRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobsRepository.existsById(jobId)).thenReturn(true);
+    when(jobLogsRepository.findById(jobId))
+        .thenReturn(Optional.of(JobLogCodec.encode(jobId, jobLog, 0)));
 
     // Act & Assert
     mockMvc
@@ -166,9 +259,7 @@ public class JobsControllerTests extends ControllerTestCase {
   public void test_getJobLogs_admin_can_get_empty_log() throws Exception {
     // Arrange
     Long jobId = 2L;
-    Job job = Job.builder().build();
-    job.setLog("");
-    when(jobsRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobsRepository.existsById(jobId)).thenReturn(true);
 
     // Act & Assert
     mockMvc
@@ -201,6 +292,33 @@ public class JobsControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_cancel_queued_job() throws Exception {
+
+    // arrange
+    when(jobsRepository.cancelQueued(eq(5L), any())).thenReturn(1);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=5").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(Map.of("message", "Job 5 cancelled"));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void cancelling_non_existing_job_returns_404() throws Exception {
+    mockMvc
+        .perform(post("/api/jobs/cancel?id=6").with(csrf()))
+        .andExpect(status().isNotFound());
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_gets_reasonable_error_when_deleting_non_existing_job() throws Exception {
@@ -224,40 +342,37 @@ public class JobsControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
   }
 
-  @WithMockUser(roles = {"ADMIN"})
-  @Test
-  public void admin_can_launch_test_job() throws Exception {
-
-    // arrange
-
-    User user = currentUserService.getUser();
-
-    Job jobStarted =
+  /** Makes the mocked queue hand out the job with id 0, once, as the stored job. */
+  private Job queueStoredJob(String params) {
+    Job stored =
         Job.builder()
             .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
             .status("running")
-            .log("Hello World! from test job!")
+            .jobType(TestJob.class.getName())
+            .params(params)
+            .attempts(1)
             .build();
+    when(jobsRepository.findClaimableIds(any(), anyInt(), anyInt()))
+        .thenReturn(List.of(0L), List.of());
+    when(jobsRepository.claim(eq(0L), anyString(), any(), any())).thenReturn(1);
+    when(jobsRepository.findAllById(List.of(0L))).thenReturn(List.of(stored));
+    when(jobsRepository.findById(0L)).thenReturn(Optional.of(stored));
+    return stored;
+  }
 
-    Job jobCompleted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("complete")
-            .log("Hello World! from test job!\nGoodbye from test job!")
-            .build();
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_job() throws Exception {
 
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobCompleted);
+    // arrange
+    queueStoredJob("{\"fail\":false,\"sleepMs\":2000}");
 
     // act
     MvcResult response =
         mockMvc
-            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=2000").with(csrf()))
+            .perform(
+                post("/api/jobs/launch/testjob?fail=false&sleepMs=2000&priority=INTERACTIVE")
+                    .with(csrf()))
             .andExpect(status().isOk())
             .andReturn();
 
@@ -265,14 +380,23 @@ public class JobsControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     Job jobReturned = objectMapper.readValue(responseString, Job.class);
 
-    assertEquals("running", jobReturned.getStatus());
+    assertEquals(TestJob.class.getName(), jobReturned.getJobType());
+    assertEquals("{\"fail\":false,\"sleepMs\":2000}", jobReturned.getParams());
+    verify(jobsRepository, times(1))
+        .save(
+            argThat(
+                job ->
+                    "queued".equals(job.getStatus())
+                        && job.getPriority() == JobPriority.INTERACTIVE.getValue()
+                        && "{\"fail\":false,\"sleepMs\":2000}".equals(job.getParams())));
 
-    await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(4)).save(eq(jobCompleted)));
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(1))
+                    .finish(eq(0L), anyString(), eq("complete"), any(), any()));
+    verify(jobLogLinesRepository, atLeastOnce()).saveAll(anyList());
   }
 
   @WithMockUser(roles = {"ADMIN"})
@@ -280,49 +404,239 @@ public class JobsControllerTests extends ControllerTestCase {
   public void admin_can_launch_test_job_that_fails() throws Exception {
 
     // arrange
+    queueStoredJob("{\"fail\":true,\"sleepMs\":4000}");
 
-    User user = currentUserService.getUser();
+    // act
+    mockMvc
+        .perform(post("/api/jobs/launch/testjob?fail=true&sleepMs=4000").with(csrf()))
+        .andExpect(status().isOk());
 
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
+    // assert
+    verify(jobsRepository, times(1))
+        .save(argThat(job -> job.getPriority() == JobPriority.NORMAL.getValue()));
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(1))
+                    .finish(eq(0L), anyString(), eq("error"), any(), any()));
+    verify(jobLogLinesRepository, atLeastOnce()).saveAll(anyList());
+  }
 
-    Job jobFailed =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("error")
-            .log("Hello World! from test job!\nFail!")
-            .build();
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void launch_retried_with_idempotency_key_returns_existing_job() throws Exception {
+
+    // arrange
+    Job existing = Job.builder().id(5L).status("running").idempotencyKey("abc").build();
+    when(jobsRepository.findByCreatedByAndIdempotencyKey(any(), eq("abc")))
+        .thenReturn(Optional.of(existing));
+    when(jobsRepository.findByCreatedByAndIdempotencyKey(any(), eq("def")))
+        .thenReturn(Optional.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/testjob?fail=false&sleepMs=0")
+                    .header("Idempotency-Key", "abc")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    mockMvc
+        .perform(
+            post("/api/jobs/launch/testjob?fail=false&sleepMs=0&idempotencyKey=def").with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    assertEquals(mapper.writeValueAsString(existing), response.getResponse().getContentAsString());
+    verify(jobsRepository, times(1)).findByCreatedByAndIdempotencyKey(any(), eq("def"));
+    verify(jobsRepository, never()).save(any());
+  }
 
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobFailed);
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void launch_rejects_overlong_idempotency_key() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/jobs/launch/testjob?fail=false&sleepMs=0")
+                .header("Idempotency-Key", "x".repeat(256))
+                .with(csrf()))
+        .andExpect(status().isBadRequest());
+
+    verify(jobsRepository, never()).save(any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_a_batch_of_jobs() throws Exception {
+
+    // arrange
+    when(jobsRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    String body =
+        "[{\"type\":\"testjob\",\"params\":{\"sleepMs\":5}},{\"type\":\"testjob\"}]";
 
     // act
     MvcResult response =
         mockMvc
-            .perform(post("/api/jobs/launch/testjob?fail=true&sleepMs=4000").with(csrf()))
+            .perform(
+                post("/api/jobs/launch/batch?priority=BULK")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(body))
             .andExpect(status().isOk())
             .andReturn();
 
-    String responseString = response.getResponse().getContentAsString();
-    Job jobReturned = objectMapper.readValue(responseString, Job.class);
+    // assert
+    List<Job> jobs =
+        objectMapper.readValue(
+            response.getResponse().getContentAsString(),
+            objectMapper.getTypeFactory().constructCollectionType(List.class, Job.class));
+    assertEquals(2, jobs.size());
+    assertEquals("{\"fail\":false,\"sleepMs\":5}", jobs.get(0).getParams());
+    assertEquals("{\"fail\":false,\"sleepMs\":0}", jobs.get(1).getParams());
+    assertEquals(JobPriority.BULK.getValue(), jobs.get(1).getPriority());
+    verify(jobsRepository, times(1)).saveAll(anyList());
+  }
 
-    assertEquals("running", jobReturned.getStatus());
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_a_pipeline_of_jobs() throws Exception {
 
-    await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+    // arrange
+    when(jobsRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    String body =
+        "[{\"type\":\"testjob\",\"name\":\"extract\"},"
+            + "{\"type\":\"testjob\",\"name\":\"load\",\"dependsOn\":[\"extract\"]},"
+            + "{\"type\":\"testjob\",\"dependsOn\":[\"extract\",\"load\"]}]";
 
-    await()
-        .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(3)).save(eq(jobFailed)));
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/batch")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(body))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    List<Job> jobs =
+        objectMapper.readValue(
+            response.getResponse().getContentAsString(),
+            objectMapper.getTypeFactory().constructCollectionType(List.class, Job.class));
+    assertEquals("queued", jobs.get(0).getStatus());
+    assertEquals("waiting", jobs.get(1).getStatus());
+    assertEquals("waiting", jobs.get(2).getStatus());
+    verify(jobDependenciesRepository, times(1))
+        .saveAll(argThat(links -> ((List<?>) links).size() == 3));
+    verify(jobsRepository, times(1)).releaseReady(anyList(), any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void batch_launch_rejects_bad_specs() throws Exception {
+    for (String body :
+        List.of(
+            "[{\"type\":\"nosuchjob\"}]",
+            "[{\"type\":\"testjob\",\"params\":{\"sleepMs\":\"soon\"}}]",
+            "[{\"type\":\"testjob\",\"name\":\"b\",\"dependsOn\":[\"a\"]}]",
+            "[{\"type\":\"testjob\",\"name\":\"a\"},{\"type\":\"testjob\",\"name\":\"a\"}]")) {
+      mockMvc
+          .perform(
+              post("/api/jobs/launch/batch")
+                  .with(csrf())
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(body))
+          .andExpect(status().isBadRequest());
+    }
+    verify(jobsRepository, never()).saveAll(anyList());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void batch_launch_is_limited_in_size() throws Exception {
+    String body = "[" + String.join(",", Collections.nCopies(1001, "{\"type\":\"testjob\"}")) + "]";
+
+    mockMvc
+        .perform(
+            post("/api/jobs/launch/batch")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+        .andExpect(status().isBadRequest());
+    verify(jobsRepository, never()).saveAll(anyList());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_tail_job_log_lines() throws Exception {
+    // arrange
+    Job job = Job.builder().id(1L).status("running").build();
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            1L, 2, Limit.of(1000)))
+        .thenReturn(
+            List.of(JobLogLine.builder().jobId(1L).lineNumber(2).message("third").build()));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/1/lines?fromLine=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(3, json.get("nextLine"));
+    assertEquals(false, json.get("complete"));
+    assertEquals("third", ((Map) ((List) json.get("lines")).get(0)).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void tailing_missing_job_returns_not_found() throws Exception {
+    when(jobsRepository.findById(9L)).thenReturn(Optional.empty());
+
+    mockMvc.perform(get("/api/jobs/logs/9/lines")).andExpect(status().isNotFound());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_stream_log_of_finished_job() throws Exception {
+    // arrange
+    Job job = Job.builder().id(1L).status("complete").build();
+    when(jobsRepository.existsById(1L)).thenReturn(true);
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            1L, 1, Limit.unlimited()))
+        .thenReturn(
+            List.of(JobLogLine.builder().jobId(1L).lineNumber(1).message("second").build()));
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/jobs/logs/1/stream").header("Last-Event-ID", "0"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    MvcResult response = mockMvc.perform(asyncDispatch(started)).andReturn();
+
+    // assert
+    String body = response.getResponse().getContentAsString();
+    assertEquals(true, body.contains("id:1"));
+    assertEquals(true, body.contains("\"message\":\"second\""));
+    assertEquals(true, body.contains("event:complete"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void streaming_missing_job_returns_not_found() throws Exception {
+    when(jobsRepository.existsById(anyLong())).thenReturn(false);
+
+    mockMvc.perform(get("/api/jobs/logs/9/stream?fromLine=0")).andExpect(status().isNotFound());
+    verify(jobLogLinesRepository, times(0))
+        .findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            anyLong(), anyInt(), any(Limit.class));
   }
 }
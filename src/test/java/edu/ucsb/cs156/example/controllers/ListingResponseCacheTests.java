@@ -0,0 +1,193 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+public class ListingResponseCacheTests {
+
+  private static final byte[] SMALL = "[]".getBytes(UTF_8);
+
+  private static final long TTL_MS = 60_000;
+
+  private static final byte[] LARGE = "[{\"id\":1}]".repeat(50).getBytes(UTF_8);
+
+  private static HttpHeaders headers(String name, String value) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.add(name, value);
+    return headers;
+  }
+
+  @Test
+  void a_body_is_cached_until_the_cache_is_invalidated() throws IOException {
+    ListingResponseCache cache = new ListingResponseCache();
+
+    ListingResponseCache.Entry entry = cache.store(cache.generation(), SMALL, false, 100);
+
+    assertSame(entry, cache.get(TTL_MS));
+    cache.invalidate();
+    assertNull(cache.get(TTL_MS));
+  }
+
+  @Test
+  void a_body_read_before_an_invalidation_is_not_cached() throws IOException {
+    ListingResponseCache cache = new ListingResponseCache();
+    long readAt = cache.generation();
+    cache.invalidate();
+
+    ListingResponseCache.Entry entry = cache.store(readAt, SMALL, false, 100);
+
+    assertArrayEquals(SMALL, entry.json());
+    assertNull(cache.get(TTL_MS));
+  }
+
+  @Test
+  void an_invalidation_racing_a_store_always_wins() throws Exception {
+    ListingResponseCache cache = new ListingResponseCache();
+
+    for (int i = 0; i < 1000; i++) {
+      long readAt = cache.generation();
+      Thread writer = new Thread(cache::invalidate);
+      writer.start();
+      cache.store(readAt, SMALL, false, 100);
+      writer.join();
+
+      assertNull(cache.get(TTL_MS));
+    }
+  }
+
+  @Test
+  void a_body_is_served_only_until_its_ttl_has_passed() throws IOException {
+    ListingResponseCache cache = new ListingResponseCache();
+
+    ListingResponseCache.Entry entry = cache.store(cache.generation(), SMALL, false, 100);
+
+    assertSame(entry, cache.get(TTL_MS));
+    assertNull(cache.get(0));
+  }
+
+  @Test
+  void a_body_larger_than_the_limit_is_not_cached() throws IOException {
+    ListingResponseCache cache = new ListingResponseCache();
+
+    ListingResponseCache.Entry entry = cache.store(cache.generation(), LARGE, false, 100);
+
+    assertArrayEquals(LARGE, entry.json());
+    assertNull(cache.get(TTL_MS));
+  }
+
+  @Test
+  void gzip_is_kept_only_when_it_is_smaller() throws IOException {
+    ListingResponseCache.Entry small = ListingResponseCache.build(SMALL, false);
+    ListingResponseCache.Entry large = ListingResponseCache.build(LARGE, false);
+
+    assertNull(small.gzip());
+    assertNull(small.gzipEtag());
+    byte[] json = new GZIPInputStream(new ByteArrayInputStream(large.gzip())).readAllBytes();
+    assertArrayEquals(LARGE, json);
+    assertEquals(large.etag().replace("\"", "") + "-gzip", large.gzipEtag().replace("\"", ""));
+  }
+
+  @Test
+  void the_gzipped_body_is_sent_only_to_clients_that_accept_it() throws IOException {
+    ListingResponseCache.Entry entry = ListingResponseCache.build(LARGE, false);
+
+    ResponseEntity<byte[]> plain = entry.toResponse(new HttpHeaders());
+    ResponseEntity<byte[]> gzipped =
+        entry.toResponse(headers(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip"));
+
+    assertSame(entry.json(), plain.getBody());
+    assertEquals(entry.etag(), plain.getHeaders().getETag());
+    assertNull(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertSame(entry.gzip(), gzipped.getBody());
+    assertEquals(entry.gzipEtag(), gzipped.getHeaders().getETag());
+    assertEquals("gzip", gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(HttpHeaders.ACCEPT_ENCODING, gzipped.getHeaders().getFirst(HttpHeaders.VARY));
+    assertEquals("no-cache, private", gzipped.getHeaders().getCacheControl());
+  }
+
+  @Test
+  void a_truncated_listing_says_so_in_a_header() throws IOException {
+    ListingResponseCache.Entry truncated = ListingResponseCache.build(SMALL, true);
+    ListingResponseCache.Entry complete = ListingResponseCache.build(SMALL, false);
+
+    ResponseEntity<byte[]> response = truncated.toResponse(new HttpHeaders());
+    ResponseEntity<byte[]> notModified =
+        truncated.toResponse(headers(HttpHeaders.IF_NONE_MATCH, truncated.etag()));
+
+    assertEquals("true", response.getHeaders().getFirst(ListingResponseCache.TRUNCATED_HEADER));
+    assertEquals(
+        "true", notModified.getHeaders().getFirst(ListingResponseCache.TRUNCATED_HEADER));
+    assertNull(
+        complete
+            .toResponse(new HttpHeaders())
+            .getHeaders()
+            .getFirst(ListingResponseCache.TRUNCATED_HEADER));
+  }
+
+  @Test
+  void a_small_body_is_sent_as_it_is_even_to_clients_that_accept_gzip() throws IOException {
+    ListingResponseCache.Entry entry = ListingResponseCache.build(SMALL, false);
+
+    ResponseEntity<byte[]> response =
+        entry.toResponse(headers(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+
+    assertSame(entry.json(), response.getBody());
+    assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+  }
+
+  @Test
+  void a_matching_etag_gets_304_without_a_body() throws IOException {
+    ListingResponseCache.Entry entry = ListingResponseCache.build(LARGE, false);
+    HttpHeaders gzipRequest = headers(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    gzipRequest.add(HttpHeaders.IF_NONE_MATCH, "W/" + entry.gzipEtag());
+
+    ResponseEntity<byte[]> plain =
+        entry.toResponse(headers(HttpHeaders.IF_NONE_MATCH, entry.etag()));
+    ResponseEntity<byte[]> gzipped = entry.toResponse(gzipRequest);
+    ResponseEntity<byte[]> stale =
+        entry.toResponse(headers(HttpHeaders.IF_NONE_MATCH, entry.gzipEtag()));
+
+    assertEquals(HttpStatus.NOT_MODIFIED, plain.getStatusCode());
+    assertNull(plain.getBody());
+    assertEquals(entry.etag(), plain.getHeaders().getETag());
+    assertEquals(HttpStatus.NOT_MODIFIED, gzipped.getStatusCode());
+    assertNull(gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(HttpStatus.OK, stale.getStatusCode());
+  }
+
+  @Test
+  void accepts_gzip_honours_q_values() {
+    assertFalse(ListingResponseCache.acceptsGzip(new HttpHeaders()));
+    assertFalse(ListingResponseCache.acceptsGzip(headers(HttpHeaders.ACCEPT_ENCODING, "br")));
+    assertFalse(
+        ListingResponseCache.acceptsGzip(headers(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0")));
+    assertFalse(
+        ListingResponseCache.acceptsGzip(headers(HttpHeaders.ACCEPT_ENCODING, "GZIP ; q=0.00")));
+    assertTrue(
+        ListingResponseCache.acceptsGzip(headers(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0.5")));
+    assertTrue(
+        ListingResponseCache.acceptsGzip(headers(HttpHeaders.ACCEPT_ENCODING, "br, GZIP")));
+  }
+
+  @Test
+  void matches_accepts_any_etag_for_a_star() {
+    assertTrue(ListingResponseCache.matches(headers(HttpHeaders.IF_NONE_MATCH, "*"), "\"a\""));
+    assertTrue(
+        ListingResponseCache.matches(headers(HttpHeaders.IF_NONE_MATCH, "\"b\", \"a\""), "\"a\""));
+    assertFalse(ListingResponseCache.matches(headers(HttpHeaders.IF_NONE_MATCH, "\"b\""), "\"a\""));
+    assertFalse(ListingResponseCache.matches(new HttpHeaders(), "\"a\""));
+  }
+}
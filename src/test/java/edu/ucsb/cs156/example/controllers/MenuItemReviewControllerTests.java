@@ -15,18 +15,31 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -36,6 +49,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
   @MockBean MenuItemReviewRepository menuItemReviewRepository;
 
+  @MockBean EntityExporter entityExporter;
+
   @MockBean UserRepository userRepository;
 
   // Authorization tests for /api/menuitemreview/admin/all
@@ -50,6 +65,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(menuItemReviewRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(List.of()));
     mockMvc.perform(get("/api/menuitemreview/all")).andExpect(status().is(200)); // logged
   }
 
@@ -148,7 +165,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
     ArrayList<MenuItemReview> expectedReviews = new ArrayList<>();
     expectedReviews.add(menuItemReview1);
 
-    when(menuItemReviewRepository.findAll()).thenReturn(expectedReviews);
+    when(menuItemReviewRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(expectedReviews));
 
     // act
     MvcResult response =
@@ -156,12 +174,55 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(menuItemReviewRepository, times(1)).findAll();
+    verify(menuItemReviewRepository, times(1)).findAll(PageRequest.of(0, allMaxRows));
     String expectedJson = mapper.writeValueAsString(expectedReviews);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_of_menu_item_reviews() throws Exception {
+
+    // arrange
+    List<MenuItemReview> items = List.of(MenuItemReview.builder().build());
+    when(menuItemReviewRepository.findBy(
+            ScrollPosition.keyset(), Sort.by(Sort.Direction.ASC, "id"), Limit.of(50)))
+        .thenReturn(Window.from(items, i -> ScrollPosition.keyset(), false));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/menuitemreview/page")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    String expectedJson =
+        mapper.writeValueAsString(ListingPage.<MenuItemReview>builder().items(items).build());
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/menuitemreview/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export_menu_item_reviews() throws Exception {
+
+    // arrange
+    when(entityExporter.export(any(), eq(EntityExporter.Format.NDJSON)))
+        .thenReturn(ResponseEntity.ok().build());
+
+    // act
+    mockMvc.perform(get("/api/menuitemreview/export?format=NDJSON")).andExpect(status().isOk());
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<MenuItemReview>>> rows = ArgumentCaptor.captor();
+    verify(entityExporter, times(1)).export(rows.capture(), eq(EntityExporter.Format.NDJSON));
+    rows.getValue().get();
+    verify(menuItemReviewRepository, times(1)).streamAll();
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_new_menuitemreview() throws Exception {
@@ -196,6 +257,38 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_a_batch_of_menu_item_reviews() throws Exception {
+    // arrange
+
+    MenuItemReview incoming1 = MenuItemReview.builder().id(7L).reviewerEmail("a@ucsb.edu").build();
+    MenuItemReview incoming2 = MenuItemReview.builder().id(7L).reviewerEmail("b@ucsb.edu").build();
+    MenuItemReview new1 = MenuItemReview.builder().reviewerEmail("a@ucsb.edu").build();
+    MenuItemReview new2 = MenuItemReview.builder().reviewerEmail("b@ucsb.edu").build();
+    MenuItemReview saved1 = MenuItemReview.builder().id(1L).reviewerEmail("a@ucsb.edu").build();
+    MenuItemReview saved2 = MenuItemReview.builder().id(2L).reviewerEmail("b@ucsb.edu").build();
+
+    when(menuItemReviewRepository.saveAll(List.of(new1, new2))).thenReturn(List.of(saved1, saved2));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/menuitemreview/post/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .characterEncoding("utf-8")
+                    .content(mapper.writeValueAsString(List.of(incoming1, incoming2)))
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).saveAll(List.of(new1, new2));
+    String expectedJson = mapper.writeValueAsString(List.of(saved1, saved2));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void admin_can_edit_an_existing_menuitemreview() throws Exception {
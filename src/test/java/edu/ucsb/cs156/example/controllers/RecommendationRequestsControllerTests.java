@@ -16,19 +16,32 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -38,6 +51,8 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
 
   @MockBean RecommendationRequestRepository recommendationRequestRepository;
 
+  @MockBean EntityExporter entityExporter;
+
   @MockBean UserRepository userRepository;
 
   // Authorization tests for /api/recommendationrequests/admin/all
@@ -52,6 +67,8 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(recommendationRequestRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(List.of()));
     mockMvc.perform(get("/api/recommendationrequests/all")).andExpect(status().is(200)); // logged
   }
 
@@ -108,7 +125,8 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
     expectedRecommendationRequests.addAll(
         Arrays.asList(recommendationRequest1, recommendationRequest2));
 
-    when(recommendationRequestRepository.findAll()).thenReturn(expectedRecommendationRequests);
+    when(recommendationRequestRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(expectedRecommendationRequests));
 
     // act
     MvcResult response =
@@ -119,12 +137,61 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(recommendationRequestRepository, times(1)).findAll();
+    verify(recommendationRequestRepository, times(1)).findAll(PageRequest.of(0, allMaxRows));
     String expectedJson = mapper.writeValueAsString(expectedRecommendationRequests);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_of_recommendation_requests() throws Exception {
+
+    // arrange
+    List<RecommendationRequest> items = List.of(RecommendationRequest.builder().build());
+    when(recommendationRequestRepository.findBy(
+            ScrollPosition.keyset(), Sort.by(Sort.Direction.ASC, "id"), Limit.of(50)))
+        .thenReturn(Window.from(items, i -> ScrollPosition.keyset(), false));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/recommendationrequests/page"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    ListingPage<RecommendationRequest> expectedPage =
+        ListingPage.<RecommendationRequest>builder().items(items).build();
+    String expectedJson = mapper.writeValueAsString(expectedPage);
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/recommendationrequests/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export_recommendation_requests() throws Exception {
+
+    // arrange
+    when(entityExporter.export(any(), eq(EntityExporter.Format.NDJSON)))
+        .thenReturn(ResponseEntity.ok().build());
+
+    // act
+    mockMvc
+        .perform(get("/api/recommendationrequests/export?format=NDJSON"))
+        .andExpect(status().isOk());
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<RecommendationRequest>>> rows = ArgumentCaptor.captor();
+    verify(entityExporter, times(1)).export(rows.capture(), eq(EntityExporter.Format.NDJSON));
+    rows.getValue().get();
+    verify(recommendationRequestRepository, times(1)).streamAll();
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_new_recommendation_request() throws Exception {
@@ -185,6 +252,45 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_a_batch_of_recommendation_requests() throws Exception {
+    // arrange
+
+    RecommendationRequest incoming1 =
+        RecommendationRequest.builder().id(7L).requesterEmail("a@ucsb.edu").build();
+    RecommendationRequest incoming2 =
+        RecommendationRequest.builder().id(7L).requesterEmail("b@ucsb.edu").build();
+    RecommendationRequest new1 =
+        RecommendationRequest.builder().requesterEmail("a@ucsb.edu").build();
+    RecommendationRequest new2 =
+        RecommendationRequest.builder().requesterEmail("b@ucsb.edu").build();
+    RecommendationRequest saved1 =
+        RecommendationRequest.builder().id(1L).requesterEmail("a@ucsb.edu").build();
+    RecommendationRequest saved2 =
+        RecommendationRequest.builder().id(2L).requesterEmail("b@ucsb.edu").build();
+
+    when(recommendationRequestRepository.saveAll(List.of(new1, new2)))
+        .thenReturn(List.of(saved1, saved2));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/recommendationrequests/post/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .characterEncoding("utf-8")
+                    .content(mapper.writeValueAsString(List.of(incoming1, incoming2)))
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(recommendationRequestRepository, times(1)).saveAll(List.of(new1, new2));
+    String expectedJson = mapper.writeValueAsString(List.of(saved1, saved2));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_recommendation_request_with_done_true() throws Exception {
@@ -1,6 +1,8 @@
 package edu.ucsb.cs156.example.controllers;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
@@ -13,20 +15,40 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -36,6 +58,8 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
   @MockBean RestaurantRepository restaurantRepository;
 
+  @MockBean EntityExporter entityExporter;
+
   @MockBean UserRepository userRepository;
 
   // Authorization tests for /api/phones/admin/all
@@ -50,6 +74,8 @@ public class RestaurantsControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(restaurantRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(List.of()));
     mockMvc.perform(get("/api/restaurants/all")).andExpect(status().is(200)); // logged
   }
 
@@ -134,7 +160,8 @@ public class RestaurantsControllerTests extends ControllerTestCase {
     ArrayList<Restaurant> expectedRestaurants = new ArrayList<>();
     expectedRestaurants.addAll(Arrays.asList(restaurant1, restaurant2));
 
-    when(restaurantRepository.findAll()).thenReturn(expectedRestaurants);
+    when(restaurantRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(expectedRestaurants));
 
     // act
     MvcResult response =
@@ -142,10 +169,254 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(restaurantRepository, times(1)).findAll();
+    verify(restaurantRepository, times(1)).findAll(PageRequest.of(0, allMaxRows));
     String expectedJson = mapper.writeValueAsString(expectedRestaurants);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
+    assertNull(response.getResponse().getHeader("X-Result-Truncated"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_gets_a_truncated_list_when_there_are_too_many_restaurants()
+      throws Exception {
+
+    // arrange
+
+    List<Restaurant> firstRestaurants =
+        List.of(Restaurant.builder().name("Taco Bell").description("Mexican").build());
+
+    when(restaurantRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(firstRestaurants, PageRequest.of(0, allMaxRows), 20000));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    String expectedJson = mapper.writeValueAsString(firstRestaurants);
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+    assertEquals("true", response.getResponse().getHeader("X-Result-Truncated"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void all_is_served_from_the_cache_and_answers_a_matching_etag_with_304()
+      throws Exception {
+
+    // arrange
+
+    List<Restaurant> restaurants =
+        List.of(Restaurant.builder().name("Taco Bell").description("Mexican").build());
+
+    when(restaurantRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(restaurants));
+
+    // act
+
+    MvcResult first =
+        mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk()).andReturn();
+    String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+    MvcResult second =
+        mockMvc
+            .perform(get("/api/restaurants/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+
+    verify(restaurantRepository, times(1)).findAll(PageRequest.of(0, allMaxRows));
+    assertEquals(mapper.writeValueAsString(restaurants), first.getResponse().getContentAsString());
+    assertEquals(etag, second.getResponse().getHeader(HttpHeaders.ETAG));
+    assertEquals(0, second.getResponse().getContentAsByteArray().length);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void all_is_gzipped_for_clients_that_accept_gzip() throws Exception {
+
+    // arrange
+
+    List<Restaurant> restaurants =
+        Collections.nCopies(
+            20, Restaurant.builder().name("Taco Bell").description("Mexican").build());
+
+    when(restaurantRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(restaurants));
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/all").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    assertEquals("gzip", response.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+    byte[] gzip = response.getResponse().getContentAsByteArray();
+    byte[] json = new GZIPInputStream(new ByteArrayInputStream(gzip)).readAllBytes();
+    assertEquals(mapper.writeValueAsString(restaurants), new String(json, UTF_8));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void all_is_read_again_after_a_restaurant_is_posted() throws Exception {
+
+    // arrange
+
+    Restaurant chipotle = Restaurant.builder().name("Chipotle").description("Mexican").build();
+
+    when(restaurantRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(List.of()), new PageImpl<>(List.of(chipotle)));
+    when(restaurantRepository.save(eq(chipotle))).thenReturn(chipotle);
+
+    // act
+
+    mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk());
+    mockMvc
+        .perform(post("/api/restaurants/post?name=Chipotle&description=Mexican").with(csrf()))
+        .andExpect(status().isOk());
+    MvcResult response =
+        mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(restaurantRepository, times(2)).findAll(PageRequest.of(0, allMaxRows));
+    assertEquals(
+        mapper.writeValueAsString(List.of(chipotle)), response.getResponse().getContentAsString());
+  }
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/restaurants/page")).andExpect(status().is(403));
+  }
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/restaurants/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export_restaurants() throws Exception {
+
+    // arrange
+    when(entityExporter.export(any(), eq(EntityExporter.Format.NDJSON)))
+        .thenReturn(ResponseEntity.ok().build());
+
+    // act
+    mockMvc.perform(get("/api/restaurants/export?format=NDJSON")).andExpect(status().isOk());
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<Restaurant>>> rows = ArgumentCaptor.captor();
+    verify(entityExporter, times(1)).export(rows.capture(), eq(EntityExporter.Format.NDJSON));
+    rows.getValue().get();
+    verify(restaurantRepository, times(1)).streamAll();
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_follow_the_cursor_to_the_next_page() throws Exception {
+
+    // arrange
+
+    Restaurant restaurant1 =
+        Restaurant.builder().id(1L).name("Taco Bell").description("Mexican").build();
+    Restaurant restaurant2 =
+        Restaurant.builder().id(2L).name("Wendys").description("American").build();
+    KeysetScrollPosition afterTacoBell =
+        ScrollPosition.forward(Map.of("name", "Taco Bell", "id", 1L));
+
+    when(restaurantRepository.findBy(
+            ScrollPosition.keyset(), Sort.by(Sort.Direction.ASC, "name"), Limit.of(1)))
+        .thenReturn(Window.from(List.of(restaurant1), i -> afterTacoBell, true));
+    when(restaurantRepository.findBy(
+            afterTacoBell, Sort.by(Sort.Direction.ASC, "name"), Limit.of(1)))
+        .thenReturn(Window.from(List.of(restaurant2), i -> ScrollPosition.keyset(), false));
+
+    // act
+
+    MvcResult firstResponse =
+        mockMvc
+            .perform(get("/api/restaurants/page?sort=name&size=1"))
+            .andExpect(status().isOk())
+            .andReturn();
+    ListingPage<Restaurant> firstPage =
+        mapper.readValue(
+            firstResponse.getResponse().getContentAsString(),
+            new TypeReference<ListingPage<Restaurant>>() {});
+
+    MvcResult secondResponse =
+        mockMvc
+            .perform(
+                get("/api/restaurants/page")
+                    .param("sort", "name")
+                    .param("size", "1")
+                    .param("cursor", firstPage.getNextCursor()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    assertEquals(List.of(restaurant1), firstPage.getItems());
+    String expectedJson =
+        mapper.writeValueAsString(
+            ListingPage.<Restaurant>builder().items(List.of(restaurant2)).build());
+    assertEquals(expectedJson, secondResponse.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void page_size_is_clamped_to_the_allowed_range() throws Exception {
+
+    // arrange
+
+    when(restaurantRepository.findBy(any(ScrollPosition.class), any(Sort.class), any(Limit.class)))
+        .thenReturn(Window.from(List.of(), i -> ScrollPosition.keyset(), false));
+
+    // act
+
+    mockMvc.perform(get("/api/restaurants/page?size=100000")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/restaurants/page?size=0")).andExpect(status().isOk());
+
+    // assert
+
+    verify(restaurantRepository, times(1))
+        .findBy(ScrollPosition.keyset(), Sort.by(Sort.Direction.ASC, "id"), Limit.of(500));
+    verify(restaurantRepository, times(1))
+        .findBy(ScrollPosition.keyset(), Sort.by(Sort.Direction.ASC, "id"), Limit.of(1));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void cannot_page_by_a_field_that_is_not_sortable() throws Exception {
+    mockMvc
+        .perform(get("/api/restaurants/page?sort=description"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void invalid_cursors_are_rejected() throws Exception {
+    String[] cursors = {
+      "not base64!",
+      encode("not json"),
+      encode("{\"id\":1}"),
+      encode("{\"name\":\"Taco Bell\",\"rating\":5}"),
+      encode("{\"name\":\"Taco Bell\",\"id\":\"abc\"}")
+    };
+    for (String cursor : cursors) {
+      mockMvc
+          .perform(get("/api/restaurants/page").param("sort", "name").param("cursor", cursor))
+          .andExpect(status().isBadRequest());
+    }
+  }
+
+  private static String encode(String json) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(UTF_8));
   }
 
   @WithMockUser(roles = {"ADMIN", "USER"})
@@ -171,6 +442,38 @@ public class RestaurantsControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_a_batch_of_restaurants() throws Exception {
+    // arrange
+
+    Restaurant incoming1 = Restaurant.builder().id(7L).name("Taco Bell").build();
+    Restaurant incoming2 = Restaurant.builder().id(7L).name("Wendys").build();
+    Restaurant new1 = Restaurant.builder().name("Taco Bell").build();
+    Restaurant new2 = Restaurant.builder().name("Wendys").build();
+    Restaurant saved1 = Restaurant.builder().id(1L).name("Taco Bell").build();
+    Restaurant saved2 = Restaurant.builder().id(2L).name("Wendys").build();
+
+    when(restaurantRepository.saveAll(List.of(new1, new2))).thenReturn(List.of(saved1, saved2));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/restaurants/post/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .characterEncoding("utf-8")
+                    .content(mapper.writeValueAsString(List.of(incoming1, incoming2)))
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(1)).saveAll(List.of(new1, new2));
+    String expectedJson = mapper.writeValueAsString(List.of(saved1, saved2));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void admin_can_delete_a_restaurant() throws Exception {
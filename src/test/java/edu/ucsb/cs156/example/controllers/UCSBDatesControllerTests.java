@@ -15,19 +15,33 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -37,6 +51,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
   @MockBean UCSBDateRepository ucsbDateRepository;
 
+  @MockBean EntityExporter entityExporter;
+
   @MockBean UserRepository userRepository;
 
   // Authorization tests for /api/ucsbdates/admin/all
@@ -51,6 +67,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(ucsbDateRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(List.of()));
     mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().is(200)); // logged
   }
 
@@ -153,7 +171,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
     ArrayList<UCSBDate> expectedDates = new ArrayList<>();
     expectedDates.addAll(Arrays.asList(ucsbDate1, ucsbDate2));
 
-    when(ucsbDateRepository.findAll()).thenReturn(expectedDates);
+    when(ucsbDateRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(expectedDates));
 
     // act
     MvcResult response =
@@ -161,12 +180,90 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(ucsbDateRepository, times(1)).findAll();
+    verify(ucsbDateRepository, times(1)).findAll(PageRequest.of(0, allMaxRows));
     String expectedJson = mapper.writeValueAsString(expectedDates);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_of_ucsb_dates() throws Exception {
+
+    // arrange
+    List<UCSBDate> items = List.of(UCSBDate.builder().build());
+    when(ucsbDateRepository.findBy(
+            ScrollPosition.keyset(), Sort.by(Sort.Direction.ASC, "id"), Limit.of(50)))
+        .thenReturn(Window.from(items, i -> ScrollPosition.keyset(), false));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/ucsbdates/page")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    String expectedJson =
+        mapper.writeValueAsString(ListingPage.<UCSBDate>builder().items(items).build());
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/ucsbdates/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export_ucsb_dates() throws Exception {
+
+    // arrange
+    when(entityExporter.export(any(), eq(EntityExporter.Format.NDJSON)))
+        .thenReturn(ResponseEntity.ok().build());
+
+    // act
+    mockMvc.perform(get("/api/ucsbdates/export?format=NDJSON")).andExpect(status().isOk());
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<UCSBDate>>> rows = ArgumentCaptor.captor();
+    verify(entityExporter, times(1)).export(rows.capture(), eq(EntityExporter.Format.NDJSON));
+    rows.getValue().get();
+    verify(ucsbDateRepository, times(1)).streamAll();
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void cursor_restores_the_date_of_the_last_ucsb_date_on_the_page() throws Exception {
+
+    // arrange
+    LocalDateTime ldt = LocalDateTime.parse("2022-01-03T00:00:00");
+    UCSBDate ucsbDate = UCSBDate.builder().id(3L).localDateTime(ldt).build();
+    KeysetScrollPosition afterDate = ScrollPosition.forward(Map.of("localDateTime", ldt, "id", 3L));
+    Sort byDate = Sort.by(Sort.Direction.DESC, "localDateTime");
+
+    when(ucsbDateRepository.findBy(ScrollPosition.keyset(), byDate, Limit.of(1)))
+        .thenReturn(Window.from(List.of(ucsbDate), i -> afterDate, true));
+    when(ucsbDateRepository.findBy(afterDate, byDate, Limit.of(1)))
+        .thenReturn(Window.from(List.of(), i -> ScrollPosition.keyset(), false));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/page?sort=localDateTime&direction=DESC&size=1"))
+            .andExpect(status().isOk())
+            .andReturn();
+    String cursor = (String) responseToJson(response).get("nextCursor");
+    mockMvc
+        .perform(
+            get("/api/ucsbdates/page")
+                .param("sort", "localDateTime")
+                .param("direction", "DESC")
+                .param("size", "1")
+                .param("cursor", cursor))
+        .andExpect(status().isOk());
+
+    // assert
+    verify(ucsbDateRepository, times(1)).findBy(afterDate, byDate, Limit.of(1));
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_new_ucsbdate() throws Exception {
@@ -199,6 +296,38 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_a_batch_of_ucsb_dates() throws Exception {
+    // arrange
+
+    UCSBDate incoming1 = UCSBDate.builder().id(7L).name("firstDayOfClasses").build();
+    UCSBDate incoming2 = UCSBDate.builder().id(7L).name("lastDayOfClasses").build();
+    UCSBDate new1 = UCSBDate.builder().name("firstDayOfClasses").build();
+    UCSBDate new2 = UCSBDate.builder().name("lastDayOfClasses").build();
+    UCSBDate saved1 = UCSBDate.builder().id(1L).name("firstDayOfClasses").build();
+    UCSBDate saved2 = UCSBDate.builder().id(2L).name("lastDayOfClasses").build();
+
+    when(ucsbDateRepository.saveAll(List.of(new1, new2))).thenReturn(List.of(saved1, saved2));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdates/post/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .characterEncoding("utf-8")
+                    .content(mapper.writeValueAsString(List.of(incoming1, incoming2)))
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDateRepository, times(1)).saveAll(List.of(new1, new2));
+    String expectedJson = mapper.writeValueAsString(List.of(saved1, saved2));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void admin_can_delete_a_date() throws Exception {
@@ -294,6 +423,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
     verify(ucsbDateRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
     String responseString = response.getResponse().getContentAsString();
     assertEquals(requestBody, responseString);
+    // the instance findById returned, which may be the cached one, is left as it was
+    assertEquals("firstDayOfClasses", ucsbDateOrig.getName());
   }
 
   @WithMockUser(roles = {"ADMIN", "USER"})
@@ -15,18 +15,31 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.ListingPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityExporter;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -36,6 +49,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
   @MockBean UCSBDiningCommonsMenuItemRepository UCSBDiningCommonsMenuItemRepository;
 
+  @MockBean EntityExporter entityExporter;
+
   @MockBean UserRepository userRepository;
 
   @Test
@@ -48,6 +63,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(UCSBDiningCommonsMenuItemRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(List.of()));
     mockMvc
         .perform(get("/api/ucsbdiningcommonsmenuitem/all"))
         .andExpect(status().is(200)); // logged
@@ -87,7 +104,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
     ArrayList<UCSBDiningCommonsMenuItem> expectedItems = new ArrayList<>();
     expectedItems.addAll(Arrays.asList(commonsMenuItem, commonsMenuItem2));
 
-    when(UCSBDiningCommonsMenuItemRepository.findAll()).thenReturn(expectedItems);
+    when(UCSBDiningCommonsMenuItemRepository.findAll(PageRequest.of(0, allMaxRows)))
+        .thenReturn(new PageImpl<>(expectedItems));
 
     // act
     MvcResult response =
@@ -98,12 +116,61 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
     // assert
 
-    verify(UCSBDiningCommonsMenuItemRepository, times(1)).findAll();
+    verify(UCSBDiningCommonsMenuItemRepository, times(1)).findAll(PageRequest.of(0, allMaxRows));
     String expectedJson = mapper.writeValueAsString(expectedItems);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_of_menu_items() throws Exception {
+
+    // arrange
+    List<UCSBDiningCommonsMenuItem> items = List.of(UCSBDiningCommonsMenuItem.builder().build());
+    when(UCSBDiningCommonsMenuItemRepository.findBy(
+            ScrollPosition.keyset(), Sort.by(Sort.Direction.ASC, "id"), Limit.of(50)))
+        .thenReturn(Window.from(items, i -> ScrollPosition.keyset(), false));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommonsmenuitem/page"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    ListingPage<UCSBDiningCommonsMenuItem> expectedPage =
+        ListingPage.<UCSBDiningCommonsMenuItem>builder().items(items).build();
+    String expectedJson = mapper.writeValueAsString(expectedPage);
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export_menu_items() throws Exception {
+
+    // arrange
+    when(entityExporter.export(any(), eq(EntityExporter.Format.NDJSON)))
+        .thenReturn(ResponseEntity.ok().build());
+
+    // act
+    mockMvc
+        .perform(get("/api/ucsbdiningcommonsmenuitem/export?format=NDJSON"))
+        .andExpect(status().isOk());
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<UCSBDiningCommonsMenuItem>>> rows = ArgumentCaptor.captor();
+    verify(entityExporter, times(1)).export(rows.capture(), eq(EntityExporter.Format.NDJSON));
+    rows.getValue().get();
+    verify(UCSBDiningCommonsMenuItemRepository, times(1)).streamAll();
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void an_admin_user_can_post_a_new_ucsbDiningItems() throws Exception {
@@ -134,6 +201,45 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_a_batch_of_menu_items() throws Exception {
+    // arrange
+
+    UCSBDiningCommonsMenuItem incoming1 =
+        UCSBDiningCommonsMenuItem.builder().id(7L).name("Baked Pesto Pasta").build();
+    UCSBDiningCommonsMenuItem incoming2 =
+        UCSBDiningCommonsMenuItem.builder().id(7L).name("Tofu Banh Mi").build();
+    UCSBDiningCommonsMenuItem new1 =
+        UCSBDiningCommonsMenuItem.builder().name("Baked Pesto Pasta").build();
+    UCSBDiningCommonsMenuItem new2 =
+        UCSBDiningCommonsMenuItem.builder().name("Tofu Banh Mi").build();
+    UCSBDiningCommonsMenuItem saved1 =
+        UCSBDiningCommonsMenuItem.builder().id(1L).name("Baked Pesto Pasta").build();
+    UCSBDiningCommonsMenuItem saved2 =
+        UCSBDiningCommonsMenuItem.builder().id(2L).name("Tofu Banh Mi").build();
+
+    when(UCSBDiningCommonsMenuItemRepository.saveAll(List.of(new1, new2)))
+        .thenReturn(List.of(saved1, saved2));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdiningcommonsmenuitem/post/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .characterEncoding("utf-8")
+                    .content(mapper.writeValueAsString(List.of(incoming1, incoming2)))
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(UCSBDiningCommonsMenuItemRepository, times(1)).saveAll(List.of(new1, new2));
+    String expectedJson = mapper.writeValueAsString(List.of(saved1, saved2));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
   @Test
   public void logged_out_users_cannot_get_by_id() throws Exception {
     mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem?id=2")).andExpect(status().is(403));
@@ -0,0 +1,135 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ApiTokenService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Requests with a bearer token should cost no session, no CSRF token and no users lookup; these
+ * tests check each of those on the real filter chains.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@TestPropertySource(properties = "app.api.tokens.secret=integration-test-secret-of-32-bytes!")
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ApiTokenIT {
+  @Autowired public MockMvc mockMvc;
+
+  @Autowired ApiTokenService apiTokenService;
+
+  @Autowired RestaurantRepository restaurantRepository;
+
+  @MockBean UserRepository userRepository;
+
+  @Autowired ObjectMapper mapper;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  private String bearer;
+
+  private String bearer(String... roles) {
+    User cgaucho = User.builder().id(7L).email("cgaucho@ucsb.edu").build();
+    return "Bearer "
+        + apiTokenService.issue(
+            cgaucho, Arrays.stream(roles).map(SimpleGrantedAuthority::new).toList());
+  }
+
+  @BeforeEach
+  public void setup() {
+    bearer = bearer("ROLE_USER");
+  }
+
+  @Test
+  public void a_token_request_creates_no_session_and_no_csrf_cookie() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/all").header(HttpHeaders.AUTHORIZATION, bearer))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    assertNull(response.getRequest().getSession(false));
+    assertNull(response.getResponse().getCookie("SESSION"));
+    assertNull(response.getResponse().getCookie("XSRF-TOKEN"));
+    assertEquals(
+        0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SPRING_SESSION", Integer.class));
+  }
+
+  @Test
+  public void the_user_is_read_from_the_token_and_not_from_the_database() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/currentUser").header(HttpHeaders.AUTHORIZATION, bearer))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    Map<?, ?> user =
+        (Map<?, ?>)
+            mapper.readValue(response.getResponse().getContentAsString(), Map.class).get("user");
+    assertEquals("cgaucho@ucsb.edu", user.get("email"));
+    assertEquals(7, user.get("id"));
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  public void token_requests_need_no_csrf_token() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/restaurants/post")
+                .param("name", "Taco Bell")
+                .param("description", "Mexican")
+                .header(HttpHeaders.AUTHORIZATION, bearer("ROLE_ADMIN", "ROLE_USER")))
+        .andExpect(status().isOk());
+
+    assertEquals(1, restaurantRepository.count());
+  }
+
+  @Test
+  public void roles_come_from_the_token() throws Exception {
+    mockMvc
+        .perform(get("/api/admin/users").header(HttpHeaders.AUTHORIZATION, bearer))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  public void an_invalid_token_is_rejected() throws Exception {
+    mockMvc
+        .perform(
+            get("/api/restaurants/all").header(HttpHeaders.AUTHORIZATION, bearer + "tampered"))
+        .andExpect(status().isUnauthorized());
+  }
+}
@@ -0,0 +1,69 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Checks, against the schema built by the Liquibase changesets, that the lookups done on every
+ * request or by a filter use an index rather than scanning the whole table.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class DatabaseIndexesIT {
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Test
+  public void users_are_found_by_email_with_an_index() {
+    assertUsesIndex("SELECT * FROM USERS WHERE EMAIL = 'cgaucho@ucsb.edu'", "USERS_EMAIL_UK");
+  }
+
+  @Test
+  public void dates_are_found_by_quarter_with_an_index() {
+    assertUsesIndex(
+        "SELECT * FROM UCSBDATES WHERE QUARTERYYYYQ = '20241'", "UCSBDATES_QUARTERYYYYQ_IDX");
+  }
+
+  @Test
+  public void reviews_are_found_by_item_with_an_index() {
+    assertUsesIndex(
+        "SELECT * FROM MENUITEMREVIEW WHERE ITEM_ID = 1", "MENUITEMREVIEW_ITEM_ID_IDX");
+  }
+
+  @Test
+  public void menu_items_are_found_by_dining_commons_with_an_index() {
+    assertUsesIndex(
+        "SELECT * FROM UCSBDININGCOMMONSMENUITEM WHERE DINING_COMMONS_CODE = 'ortega'",
+        "UCSBDININGCOMMONSMENUITEM_DINING_COMMONS_CODE_IDX");
+  }
+
+  @Test
+  public void two_users_cannot_have_the_same_email() {
+    String insert = "INSERT INTO USERS (ADMIN, EMAIL, EMAIL_VERIFIED) VALUES (false, ?, true)";
+    jdbcTemplate.update(insert, "cgaucho@ucsb.edu");
+
+    assertThrows(
+        DataIntegrityViolationException.class,
+        () -> jdbcTemplate.update(insert, "cgaucho@ucsb.edu"));
+  }
+
+  private void assertUsesIndex(String query, String index) {
+    String plan = jdbcTemplate.queryForObject("EXPLAIN " + query, String.class);
+    assertTrue(plan.toUpperCase().contains(index + ":"), plan);
+  }
+}
@@ -0,0 +1,113 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLog;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.JobLogChunk;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogCodec;
+import edu.ucsb.cs156.example.services.jobs.JobLogCompaction;
+import edu.ucsb.cs156.example.services.jobs.JobLogMigration;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Moves job logs between their stored forms on the H2 schema, where TEXT columns are CLOBs and come
+ * back from native queries as java.sql.Clob rather than String.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class JobLogStorageIT {
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobLogsRepository jobLogsRepository;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired JobLogMigration jobLogMigration;
+
+  @Autowired JobLogCompaction jobLogCompaction;
+
+  @Autowired JobService jobService;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Test
+  public void logs_in_the_old_text_column_are_moved_to_job_logs() {
+    long small = jobsRepository.save(Job.builder().status("complete").build()).getId();
+    long large = jobsRepository.save(Job.builder().status("error").build()).getId();
+    String largeLog = "line of output\n".repeat(1000);
+    jdbcTemplate.update("UPDATE jobs SET log = ? WHERE id = ?", "hello", small);
+    jdbcTemplate.update("UPDATE jobs SET log = ? WHERE id = ?", largeLog, large);
+
+    assertEquals(2, jobLogMigration.migrateLogs());
+
+    assertEquals("hello", JobLogCodec.decode(jobLogsRepository.findById(small).get()));
+    JobLog compressed = jobLogsRepository.findById(large).get();
+    assertEquals(JobLogCodec.DEFLATE, compressed.getEncoding());
+    assertEquals(largeLog, JobLogCodec.decode(compressed));
+    assertEquals(
+        0,
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM jobs WHERE log IS NOT NULL", Integer.class));
+  }
+
+  @Test
+  public void lines_of_finished_jobs_are_compacted_into_job_logs() {
+    Job finished =
+        jobsRepository.save(
+            Job.builder().status("complete").finishedAt(ZonedDateTime.now().minusHours(1)).build());
+    Job running = jobsRepository.save(Job.builder().status("running").build());
+    jobLogLinesRepository.saveAll(
+        List.of(
+            line(finished.getId(), 0, "first\nof two"),
+            line(finished.getId(), 1, "second"),
+            line(running.getId(), 0, "still going")));
+
+    assertEquals(1, jobLogCompaction.compactFinishedLogs());
+
+    assertEquals(
+        "first\nof two\nsecond",
+        JobLogCodec.decode(jobLogsRepository.findById(finished.getId()).get()));
+    assertEquals(
+        List.of(), jobLogLinesRepository.findByJobIdOrderByLineNumberAsc(finished.getId()));
+    assertEquals(1, jobLogLinesRepository.findByJobIdOrderByLineNumberAsc(running.getId()).size());
+    assertNull(jobLogsRepository.findById(running.getId()).orElse(null));
+
+    // the log reads the same as before, and its lines are still served
+    assertEquals("first\nof two\nsecond", jobService.getJobLogs(finished.getId()));
+    JobLogChunk first = jobService.getJobLogLines(finished.getId(), 0);
+    assertEquals("first\nof two", first.getLines().get(0).getMessage());
+    JobLogChunk chunk = jobService.getJobLogLines(finished.getId(), 1);
+    assertEquals("second", chunk.getLines().get(0).getMessage());
+    assertEquals(1, chunk.getLines().get(0).getLineNumber());
+    assertEquals(2, chunk.getNextLine());
+
+    // there is nothing left to compact
+    assertEquals(0, jobLogCompaction.compactFinishedLogs());
+  }
+
+  private JobLogLine line(long jobId, int lineNumber, String message) {
+    return JobLogLine.builder().jobId(jobId).lineNumber(lineNumber).message(message).build();
+  }
+}
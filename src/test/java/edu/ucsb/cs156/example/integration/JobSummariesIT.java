@@ -0,0 +1,67 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogCodec;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class JobSummariesIT {
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobLogsRepository jobLogsRepository;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  private long job() {
+    return jobsRepository.save(Job.builder().status("complete").build()).getId();
+  }
+
+  private JobLogLine line(long jobId, int lineNumber, String message) {
+    return JobLogLine.builder().jobId(jobId).lineNumber(lineNumber).message(message).build();
+  }
+
+  @Test
+  public void log_length_counts_the_old_log_and_the_lines() {
+    long silent = job();
+    long oldLog = job();
+    long lines = job();
+    long both = job();
+    jobLogsRepository.save(JobLogCodec.encode(oldLog, "hello\nworld", 1024));
+    jobLogsRepository.save(JobLogCodec.encode(both, "x".repeat(2000), 1024));
+    jobLogLinesRepository.saveAll(
+        List.of(line(lines, 0, "abc"), line(lines, 1, "de"), line(both, 0, "f")));
+
+    List<JobSummary> summaries =
+        jobsRepository.findSummaries(null, null, null, null, PageRequest.of(0, 10));
+
+    assertEquals(
+        List.of(both, lines, oldLog, silent),
+        summaries.stream().map(JobSummary::getId).toList());
+    assertEquals(2002, summaries.get(0).getLogLength());
+    assertEquals(7, summaries.get(1).getLogLength());
+    assertEquals(12, summaries.get(2).getLogLength());
+    assertEquals(0, summaries.get(3).getLogLength());
+  }
+}
@@ -2,8 +2,10 @@ package edu.ucsb.cs156.example.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -13,6 +15,8 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.Duration;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +24,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
@@ -86,4 +91,76 @@ public class RestaurantIT {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export_restaurants_as_ndjson() throws Exception {
+    // arrange
+
+    Restaurant restaurant1 = Restaurant.builder().name("Taco Bell").description("Mexican").build();
+    Restaurant restaurant2 = Restaurant.builder().name("Wendys").description("American").build();
+    restaurantRepository.saveAll(List.of(restaurant1, restaurant2));
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/restaurants/export?format=NDJSON"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    MvcResult response =
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+
+    // assert
+    String expected =
+        mapper.writeValueAsString(restaurant1) + "\n" + mapper.writeValueAsString(restaurant2);
+    assertEquals("application/x-ndjson", response.getResponse().getContentType());
+    assertEquals(expected + "\n", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void an_export_may_take_as_long_as_spring_mvc_async_request_timeout() throws Exception {
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/restaurants/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        Duration.ofMinutes(30).toMillis(), started.getRequest().getAsyncContext().getTimeout());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_a_batch_of_restaurants() throws Exception {
+    // arrange
+
+    List<Restaurant> restaurants =
+        List.of(
+            Restaurant.builder().name("Chipotle").description("Mexican").build(),
+            Restaurant.builder().name("Wendys").description("American").build(),
+            Restaurant.builder().name("Panda Express").description("Chinese").build());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/restaurants/post/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(restaurants))
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    List<Restaurant> expected =
+        List.of(
+            Restaurant.builder().id(1L).name("Chipotle").description("Mexican").build(),
+            Restaurant.builder().id(2L).name("Wendys").description("American").build(),
+            Restaurant.builder().id(3L).name("Panda Express").description("Chinese").build());
+    assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    assertEquals(expected, restaurantRepository.findAll());
+  }
 }
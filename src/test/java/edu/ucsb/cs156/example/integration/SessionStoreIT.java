@@ -0,0 +1,163 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import edu.ucsb.cs156.example.config.SessionConfig;
+import edu.ucsb.cs156.example.config.TouchBatchingSessionRepository;
+import edu.ucsb.cs156.example.config.TouchBatchingSessionRepository.TouchedSession;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.servlet.http.Cookie;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.Session;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class SessionStoreIT {
+  @Autowired public MockMvc mockMvc;
+
+  @Autowired TouchBatchingSessionRepository<Session> sessionRepository;
+
+  @Autowired SessionConfig sessionConfig;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  private long lastAccessTime(String id) {
+    return jdbcTemplate.queryForObject(
+        "SELECT LAST_ACCESS_TIME FROM SPRING_SESSION WHERE SESSION_ID = ?", Long.class, id);
+  }
+
+  private int sessionCount() {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SPRING_SESSION", Integer.class);
+  }
+
+  @Test
+  public void http_sessions_are_kept_in_the_database() throws Exception {
+    MvcResult response =
+        mockMvc.perform(get("/oauth2/authorization/my-oauth-provider")).andReturn();
+
+    Cookie cookie = response.getResponse().getCookie("SESSION");
+    assertNotNull(cookie);
+    assertEquals(1, sessionCount());
+
+    // a request with the cookie finds the session in the database rather than making another
+    mockMvc.perform(get("/api/systemInfo").cookie(cookie)).andExpect(status().isOk());
+    assertEquals(1, sessionCount());
+  }
+
+  @Test
+  public void session_attributes_are_stored_compactly() {
+    List<User> users = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      users.add(User.builder().id(i).email("cgaucho" + i + "@ucsb.edu").build());
+    }
+    TouchedSession<Session> session = sessionRepository.createSession();
+    session.setAttribute("users", users);
+    sessionRepository.save(session);
+
+    byte[] stored =
+        jdbcTemplate.queryForObject(
+            "SELECT ATTRIBUTE_BYTES FROM SPRING_SESSION_ATTRIBUTES WHERE ATTRIBUTE_NAME = 'users'",
+            byte[].class);
+    assertArrayEquals(new byte[] {0x1f, (byte) 0x8b}, Arrays.copyOf(stored, 2));
+    assertEquals(users, sessionRepository.findById(session.getId()).getAttribute("users"));
+  }
+
+  @Test
+  public void last_access_times_are_written_in_batches() {
+    TouchedSession<Session> session = sessionRepository.createSession();
+    sessionRepository.save(session);
+    long created = lastAccessTime(session.getId());
+
+    for (int seconds = 1; seconds <= 3; seconds++) {
+      TouchedSession<Session> touched = sessionRepository.findById(session.getId());
+      touched.setLastAccessedTime(Instant.ofEpochMilli(created).plusSeconds(seconds));
+      sessionRepository.save(touched);
+    }
+
+    assertEquals(created, lastAccessTime(session.getId()));
+    assertEquals(1, sessionRepository.flushTouches());
+    assertEquals(created + 3000, lastAccessTime(session.getId()));
+  }
+
+  @Test
+  public void a_flush_does_not_overwrite_a_later_last_access_time() {
+    TouchedSession<Session> session = sessionRepository.createSession();
+    sessionRepository.save(session);
+    long created = lastAccessTime(session.getId());
+    TouchedSession<Session> touched = sessionRepository.findById(session.getId());
+    touched.setLastAccessedTime(Instant.ofEpochMilli(created).plusSeconds(3));
+    sessionRepository.save(touched);
+
+    // another instance of the app writes a later time first
+    jdbcTemplate.update(
+        "UPDATE SPRING_SESSION SET LAST_ACCESS_TIME = ? WHERE SESSION_ID = ?",
+        created + 10000,
+        session.getId());
+    sessionRepository.flushTouches();
+
+    assertEquals(created + 10000, lastAccessTime(session.getId()));
+  }
+
+  @Test
+  public void last_access_times_of_a_failed_batch_are_written_by_the_next_flush() {
+    TouchedSession<Session> session = sessionRepository.createSession();
+    sessionRepository.save(session);
+    long created = lastAccessTime(session.getId());
+    TouchedSession<Session> touched = sessionRepository.findById(session.getId());
+    touched.setLastAccessedTime(Instant.ofEpochMilli(created).plusSeconds(3));
+    sessionRepository.save(touched);
+
+    // the batch fails while the table cannot be found
+    jdbcTemplate.execute("ALTER TABLE SPRING_SESSION RENAME TO SPRING_SESSION_AWAY");
+    try {
+      assertThrows(DataAccessException.class, () -> sessionRepository.flushTouches());
+    } finally {
+      jdbcTemplate.execute("ALTER TABLE SPRING_SESSION_AWAY RENAME TO SPRING_SESSION");
+    }
+    assertEquals(created, lastAccessTime(session.getId()));
+
+    sessionRepository.flushTouches();
+    assertEquals(created + 3000, lastAccessTime(session.getId()));
+  }
+
+  @Test
+  public void expired_sessions_are_cleaned_up() {
+    TouchedSession<Session> expired = sessionRepository.createSession();
+    expired.setMaxInactiveInterval(Duration.ofSeconds(1));
+    expired.setLastAccessedTime(Instant.now().minusSeconds(60));
+    sessionRepository.save(expired);
+    sessionRepository.save(sessionRepository.createSession());
+
+    sessionConfig.cleanUpExpiredSessions();
+
+    assertEquals(1, sessionCount());
+  }
+}
@@ -0,0 +1,155 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class UCSBDiningCommonsCacheIT {
+  @Autowired public MockMvc mockMvc;
+
+  @Autowired public ObjectMapper mapper;
+
+  @Autowired MeterRegistry meterRegistry;
+
+  @Autowired UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @MockBean UserRepository userRepository;
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void commons_are_read_from_the_cache_until_they_are_changed() throws Exception {
+    // arrange
+
+    mockMvc
+        .perform(
+            post("/api/ucsbdiningcommons/post")
+                .param("code", "carrillo")
+                .param("name", "Carrillo")
+                .param("hasSackMeal", "false")
+                .param("hasTakeOutMeal", "false")
+                .param("hasDiningCam", "true")
+                .param("latitude", "34.409953")
+                .param("longitude", "-119.85277")
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    // act
+
+    mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo")).andExpect(status().isOk());
+    double hitsBeforeUpdate = cacheGets("hit");
+
+    UCSBDiningCommons renamed =
+        UCSBDiningCommons.builder()
+            .code("carrillo")
+            .name("Carrillo Dining Commons")
+            .hasDiningCam(true)
+            .latitude(34.409953)
+            .longitude(-119.85277)
+            .build();
+    mockMvc
+        .perform(
+            put("/api/ucsbdiningcommons?code=carrillo")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(renamed))
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons?code=carrillo"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    assertEquals(1.0, hitsBeforeUpdate);
+    assertEquals(mapper.writeValueAsString(renamed), response.getResponse().getContentAsString());
+    // the read after the update missed, because the update cleared the cache
+    assertEquals(2.0, cacheGets("miss"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_failed_update_leaves_the_cached_commons_unchanged() throws Exception {
+    // arrange
+
+    UCSBDiningCommons carrillo =
+        UCSBDiningCommons.builder()
+            .code("carrillo")
+            .name("Carrillo")
+            .hasDiningCam(true)
+            .latitude(34.409953)
+            .longitude(-119.85277)
+            .build();
+    ucsbDiningCommonsRepository.save(carrillo);
+    mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo")).andExpect(status().isOk());
+
+    // act
+
+    // the name is longer than its VARCHAR(255) column, so the save fails
+    UCSBDiningCommons tooLong = carrillo.toBuilder().name("x".repeat(300)).build();
+    assertThrows(
+        ServletException.class,
+        () ->
+            mockMvc.perform(
+                put("/api/ucsbdiningcommons?code=carrillo")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(tooLong))
+                    .with(csrf())));
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons?code=carrillo"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    // the update and the read after it were both served the cached commons
+    assertEquals(2.0, cacheGets("hit"));
+    assertEquals(mapper.writeValueAsString(carrillo), response.getResponse().getContentAsString());
+  }
+
+  private double cacheGets(String result) {
+    return meterRegistry
+        .get("cache.gets")
+        .tag("cache", UCSBDiningCommonsRepository.CACHE)
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
+}
@@ -0,0 +1,75 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.UserProfileService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class UserProfileServiceIT {
+  @Autowired UserProfileService userProfileService;
+
+  @Autowired UserRepository userRepository;
+
+  private static OAuth2User oAuthUser(String email, String name) {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("sub", "1234");
+    attributes.put("email", email);
+    attributes.put("email_verified", true);
+    attributes.put("name", name);
+    return new DefaultOAuth2User(
+        List.of(new SimpleGrantedAuthority("ROLE_USER")), attributes, "sub");
+  }
+
+  @Test
+  public void only_logins_with_a_changed_profile_write() {
+    boolean first = userProfileService.upsert(oAuthUser("cgaucho@ucsb.edu", "Chris Gaucho"));
+    boolean unchanged = userProfileService.upsert(oAuthUser("cgaucho@ucsb.edu", "Chris Gaucho"));
+    boolean renamed = userProfileService.upsert(oAuthUser("cgaucho@ucsb.edu", "Chris G."));
+
+    User user = userRepository.findByEmail("cgaucho@ucsb.edu").get();
+    assertTrue(first);
+    assertFalse(unchanged);
+    assertTrue(renamed);
+    assertEquals("Chris G.", user.getFullName());
+    assertTrue(user.getEmailVerified());
+    assertEquals(1, userRepository.count());
+  }
+
+  @Test
+  public void configured_admins_are_saved_as_admins_and_admins_are_never_demoted() {
+    userProfileService.upsert(oAuthUser("admingaucho@ucsb.edu", "Admin Gaucho"));
+    userProfileService.upsert(oAuthUser("cgaucho@ucsb.edu", "Chris Gaucho"));
+    User promoted = userRepository.findByEmail("cgaucho@ucsb.edu").get();
+    promoted.setAdmin(true);
+    userRepository.save(promoted);
+
+    userProfileService.upsert(oAuthUser("cgaucho@ucsb.edu", "Chris G."));
+
+    assertTrue(userRepository.findByEmail("admingaucho@ucsb.edu").get().getAdmin());
+    assertTrue(userRepository.findByEmail("cgaucho@ucsb.edu").get().getAdmin());
+  }
+}
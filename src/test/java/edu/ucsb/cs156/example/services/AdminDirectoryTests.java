@@ -0,0 +1,64 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class AdminDirectoryTests {
+
+  @Mock private UserRepository userRepository;
+
+  @InjectMocks private AdminDirectory adminDirectory;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(
+        adminDirectory, "configuredAdmins", new HashSet<>(Set.of("phtcon@ucsb.edu")));
+    when(userRepository.findAdminEmails()).thenReturn(List.of("cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  void configured_admins_need_no_query() {
+    assertTrue(adminDirectory.isConfiguredAdmin("phtcon@ucsb.edu"));
+    assertTrue(adminDirectory.isAdmin("phtcon@ucsb.edu"));
+    assertFalse(adminDirectory.isConfiguredAdmin("cgaucho@ucsb.edu"));
+    verify(userRepository, never()).findAdminEmails();
+  }
+
+  @Test
+  void database_admins_are_read_once() {
+    assertTrue(adminDirectory.isAdmin("cgaucho@ucsb.edu"));
+    assertFalse(adminDirectory.isAdmin("ldelplaya@ucsb.edu"));
+    assertFalse(adminDirectory.isAdmin(null));
+
+    verify(userRepository, times(1)).findAdminEmails();
+  }
+
+  @Test
+  void invalidate_reads_the_database_admins_again() {
+    adminDirectory.isAdmin("cgaucho@ucsb.edu");
+    when(userRepository.findAdminEmails()).thenReturn(List.of());
+
+    adminDirectory.invalidate();
+
+    assertFalse(adminDirectory.isAdmin("cgaucho@ucsb.edu"));
+    assertEquals(1, adminDirectory.generation());
+    verify(userRepository, times(2)).findAdminEmails();
+  }
+}
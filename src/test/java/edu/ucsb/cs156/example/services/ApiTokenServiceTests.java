@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.User;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ApiTokenServiceTests {
+
+  private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+  private final ApiTokenService apiTokenService = new ApiTokenService();
+
+  private final User cgaucho = User.builder().id(7L).email("cgaucho@ucsb.edu").build();
+
+  private final List<SimpleGrantedAuthority> authorities =
+      List.of(
+          new SimpleGrantedAuthority("ROLE_USER"),
+          new SimpleGrantedAuthority("ROLE_ADMIN"),
+          new SimpleGrantedAuthority("SCOPE_email"));
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(apiTokenService, "secret", SECRET);
+    ReflectionTestUtils.setField(apiTokenService, "ttlSeconds", 3600L);
+    apiTokenService.init();
+  }
+
+  @Test
+  void an_issued_token_is_verified_and_carries_the_user_and_roles() {
+    Jwt jwt = apiTokenService.decode(apiTokenService.issue(cgaucho, authorities));
+
+    assertEquals("7", jwt.getSubject());
+    assertEquals(List.of("ROLE_ADMIN", "ROLE_USER"), jwt.getClaimAsStringList("roles"));
+    User user = ApiTokenService.toUser(jwt);
+    assertEquals(7L, user.getId());
+    assertEquals("cgaucho@ucsb.edu", user.getEmail());
+    assertTrue(user.getAdmin());
+    assertEquals(3600L, apiTokenService.getTtlSeconds());
+  }
+
+  @Test
+  void users_without_the_admin_role_are_not_admins() {
+    Jwt jwt =
+        apiTokenService.decode(
+            apiTokenService.issue(cgaucho, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    Jwt noRoles =
+        Jwt.withTokenValue("token").header("alg", "HS256").subject("7").claim("a", "b").build();
+
+    assertFalse(ApiTokenService.toUser(jwt).getAdmin());
+    assertFalse(ApiTokenService.toUser(noRoles).getAdmin());
+  }
+
+  @Test
+  void expired_tokens_are_rejected() {
+    ReflectionTestUtils.setField(apiTokenService, "ttlSeconds", -120L);
+    String token = apiTokenService.issue(cgaucho, authorities);
+
+    assertThrows(JwtException.class, () -> apiTokenService.decode(token));
+  }
+
+  @Test
+  void tokens_signed_with_another_secret_are_rejected() {
+    ApiTokenService other = new ApiTokenService();
+    ReflectionTestUtils.setField(other, "secret", SECRET.toUpperCase());
+    ReflectionTestUtils.setField(other, "ttlSeconds", 3600L);
+    other.init();
+    String token = other.issue(cgaucho, authorities);
+
+    assertThrows(JwtException.class, () -> apiTokenService.decode(token));
+  }
+
+  @Test
+  void an_empty_secret_disables_tokens() {
+    ApiTokenService disabled = new ApiTokenService();
+    ReflectionTestUtils.setField(disabled, "secret", "");
+    disabled.init();
+
+    assertFalse(disabled.isEnabled());
+    assertTrue(apiTokenService.isEnabled());
+  }
+
+  @Test
+  void a_short_secret_is_refused() {
+    ApiTokenService weak = new ApiTokenService();
+    ReflectionTestUtils.setField(weak, "secret", "too short");
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, weak::init);
+    assertEquals("app.api.tokens.secret must be at least 32 bytes long", e.getMessage());
+  }
+}
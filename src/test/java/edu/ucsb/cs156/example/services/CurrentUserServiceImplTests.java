@@ -0,0 +1,202 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+public class CurrentUserServiceImplTests {
+
+  @Mock private UserRepository userRepository;
+
+  @Mock private GrantedAuthoritiesService grantedAuthoritiesService;
+
+  @Mock private AdminDirectory adminDirectory;
+
+  @Mock private UserProfileService userProfileService;
+
+  @InjectMocks private CurrentUserServiceImpl currentUserService;
+
+  private final MockHttpSession session = new MockHttpSession();
+
+  private final User cgaucho = User.builder().id(1L).email("cgaucho@ucsb.edu").build();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(currentUserService, "sessionCacheSeconds", 300L);
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(cgaucho));
+
+    List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+    DefaultOAuth2User principal =
+        new DefaultOAuth2User(
+            authorities,
+            Map.of("sub", "1234", "email", "cgaucho@ucsb.edu", "email_verified", true),
+            "sub");
+    SecurityContextHolder.getContext()
+        .setAuthentication(new OAuth2AuthenticationToken(principal, authorities, "google"));
+  }
+
+  @AfterEach
+  public void teardown() {
+    SecurityContextHolder.clearContext();
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private void startRequest(MockHttpSession session) {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setSession(session);
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+  }
+
+  @Test
+  void the_user_is_looked_up_once_per_request() {
+    startRequest(null);
+
+    currentUserService.isLoggedIn();
+    currentUserService.isLoggedIn();
+    User user = currentUserService.getUser();
+
+    assertEquals(cgaucho, user);
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void later_requests_in_the_session_reuse_the_user() {
+    startRequest(session);
+    currentUserService.getUser();
+    startRequest(session);
+
+    User user = currentUserService.getUser();
+
+    assertEquals(cgaucho, user);
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void cached_users_are_dropped_when_admin_status_changes() {
+    startRequest(session);
+    currentUserService.getUser();
+
+    when(adminDirectory.generation()).thenReturn(1L);
+    currentUserService.getUser();
+    startRequest(session);
+    currentUserService.getUser();
+
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void the_session_copy_expires() {
+    ReflectionTestUtils.setField(currentUserService, "sessionCacheSeconds", 0L);
+    startRequest(session);
+    currentUserService.getUser();
+    startRequest(session);
+
+    currentUserService.getUser();
+
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void a_user_cached_for_another_email_is_ignored() {
+    startRequest(session);
+    session.setAttribute(
+        CurrentUserServiceImpl.USER_ATTRIBUTE,
+        new CurrentUserServiceImpl.CachedUser(
+            User.builder().email("ldelplaya@ucsb.edu").build(), 0, Instant.now()));
+
+    User user = currentUserService.getUser();
+
+    assertEquals(cgaucho, user);
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void without_a_request_every_call_looks_the_user_up() {
+    currentUserService.getUser();
+    currentUserService.getUser();
+
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void a_user_missing_from_the_database_is_saved_first() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu"))
+        .thenReturn(Optional.empty(), Optional.of(cgaucho));
+    startRequest(session);
+
+    User user = currentUserService.getUser();
+
+    assertEquals(cgaucho, user);
+    verify(userProfileService, times(1))
+        .upsert(
+            ((OAuth2AuthenticationToken) SecurityContextHolder.getContext().getAuthentication())
+                .getPrincipal());
+  }
+
+  @Test
+  void a_user_in_the_database_is_only_read() {
+    startRequest(session);
+
+    currentUserService.getUser();
+
+    verify(userProfileService, never()).upsert(any());
+    verify(userRepository, never()).save(any());
+  }
+
+  @Test
+  void users_that_are_not_logged_in_are_not_cached() {
+    SecurityContextHolder.clearContext();
+    startRequest(session);
+
+    assertNull(currentUserService.getUser());
+    assertNull(session.getAttribute(CurrentUserServiceImpl.USER_ATTRIBUTE));
+  }
+
+  @Test
+  void token_users_are_read_from_the_token() {
+    Jwt jwt =
+        Jwt.withTokenValue("token")
+            .header("alg", "HS256")
+            .subject("7")
+            .claim("email", "ldelplaya@ucsb.edu")
+            .claim("roles", List.of("ROLE_USER"))
+            .build();
+    SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+    startRequest(null);
+
+    User user = currentUserService.getUser();
+
+    assertEquals(7L, user.getId());
+    assertEquals("ldelplaya@ucsb.edu", user.getEmail());
+    verify(userRepository, never()).findByEmail(any());
+  }
+}
@@ -0,0 +1,155 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import jakarta.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public class EntityExporterTests {
+
+  @Mock private EntityManager entityManager;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  @Spy private ObjectMapper objectMapper = new ObjectMapper();
+
+  @InjectMocks private EntityExporter entityExporter;
+
+  private final Restaurant tacoBell =
+      Restaurant.builder().id(1L).name("Taco Bell").description("Mexican").build();
+
+  private final Restaurant wendys =
+      Restaurant.builder().id(2L).name("Wendys").description("American").build();
+
+  private static final String TACO_BELL_JSON =
+      "{\"id\":1,\"name\":\"Taco Bell\",\"description\":\"Mexican\"}";
+
+  private static final String WENDYS_JSON =
+      "{\"id\":2,\"name\":\"Wendys\",\"description\":\"American\"}";
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  @Test
+  void json_export_is_an_array_and_detaches_each_row() {
+    // Arrange
+    AtomicBoolean closed = new AtomicBoolean(false);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // Act
+    entityExporter.write(
+        () -> Stream.of(tacoBell, wendys).onClose(() -> closed.set(true)),
+        EntityExporter.Format.JSON,
+        out);
+
+    // Assert
+    assertEquals(
+        "[" + TACO_BELL_JSON + "," + WENDYS_JSON + "]", out.toString(StandardCharsets.UTF_8));
+    verify(entityManager, times(1)).detach(tacoBell);
+    verify(entityManager, times(1)).detach(wendys);
+    assertTrue(closed.get());
+  }
+
+  @Test
+  void ndjson_export_has_one_row_per_line() {
+    // Arrange
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // Act
+    entityExporter.write(() -> Stream.of(tacoBell, wendys), EntityExporter.Format.NDJSON, out);
+
+    // Assert
+    assertEquals(
+        TACO_BELL_JSON + "\n" + WENDYS_JSON + "\n", out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void empty_exports() {
+    // Arrange
+    ByteArrayOutputStream jsonOut = new ByteArrayOutputStream();
+    ByteArrayOutputStream ndjsonOut = new ByteArrayOutputStream();
+
+    // Act
+    entityExporter.write(Stream::empty, EntityExporter.Format.JSON, jsonOut);
+    entityExporter.write(Stream::empty, EntityExporter.Format.NDJSON, ndjsonOut);
+
+    // Assert
+    assertEquals("[]", jsonOut.toString(StandardCharsets.UTF_8));
+    assertEquals("", ndjsonOut.toString(StandardCharsets.UTF_8));
+    verify(entityManager, never()).detach(any());
+  }
+
+  @Test
+  void export_writes_the_rows_in_a_read_only_transaction() throws IOException {
+    // Arrange
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // Act
+    ResponseEntity<StreamingResponseBody> response =
+        entityExporter.export(() -> Stream.of(tacoBell), EntityExporter.Format.NDJSON);
+    response.getBody().writeTo(out);
+
+    // Assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+    assertEquals(TACO_BELL_JSON + "\n", out.toString(StandardCharsets.UTF_8));
+    verify(transactionManager, times(1)).getTransaction(argThat(t -> t.isReadOnly()));
+    verify(transactionManager, times(1)).commit(any());
+  }
+
+  @Test
+  void export_passes_on_write_errors() {
+    // Arrange
+    IOException brokenPipe = new IOException("Broken pipe");
+    OutputStream out =
+        new OutputStream() {
+          @Override
+          public void write(int b) throws IOException {
+            throw brokenPipe;
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) throws IOException {
+            throw brokenPipe;
+          }
+        };
+    ResponseEntity<StreamingResponseBody> response =
+        entityExporter.export(() -> Stream.of(tacoBell), EntityExporter.Format.JSON);
+
+    // Act
+    IOException thrown = assertThrows(IOException.class, () -> response.getBody().writeTo(out));
+
+    // Assert
+    assertSame(brokenPipe, thrown);
+    assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+    verify(transactionManager, times(1)).rollback(any());
+  }
+}
@@ -4,9 +4,13 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.when;
 
-import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogsRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogCodec;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,6 +22,10 @@ public class JobLogsServiceTests {
 
   @Mock private JobsRepository jobRepository;
 
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobLogsRepository jobLogsRepository;
+
   @InjectMocks private JobService jobService;
 
   @BeforeEach
@@ -29,9 +37,9 @@ public class JobLogsServiceTests {
   void test_getJobLogs_with_log() {
     // Arrange
     Long jobId = 1L;
-    Job job = Job.builder().build();
-    job.setLog("This is a job log");
-    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobRepository.existsById(jobId)).thenReturn(true);
+    when(jobLogsRepository.findById(jobId))
+        .thenReturn(Optional.of(JobLogCodec.encode(jobId, "This is a job log", 1)));
 
     // Act
     String result = jobService.getJobLogs(jobId);
@@ -44,9 +52,7 @@ public class JobLogsServiceTests {
   void test_getJobLogs_with_null_log() {
     // Arrange
     Long jobId = 2L;
-    Job job = Job.builder().build();
-    job.setLog(null);
-    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobRepository.existsById(jobId)).thenReturn(true);
 
     // Act
     String result = jobService.getJobLogs(jobId);
@@ -59,9 +65,45 @@ public class JobLogsServiceTests {
   void test_getJobLogs_job_not_found() {
     // Arrange
     Long jobId = 3L;
-    when(jobRepository.findById(jobId)).thenReturn(Optional.empty());
+    when(jobRepository.existsById(jobId)).thenReturn(false);
 
     // Act & Assert
     assertThrows(IllegalArgumentException.class, () -> jobService.getJobLogs(jobId));
   }
+
+  @Test
+  void test_getJobLogs_joins_log_lines() {
+    // Arrange
+    Long jobId = 4L;
+    when(jobRepository.existsById(jobId)).thenReturn(true);
+    when(jobLogLinesRepository.findByJobIdOrderByLineNumberAsc(jobId))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(jobId).lineNumber(0).message("line one").build(),
+                JobLogLine.builder().jobId(jobId).lineNumber(1).message("line two").build()));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("line one\nline two", result);
+  }
+
+  @Test
+  void test_getJobLogs_legacy_log_comes_before_log_lines() {
+    // Arrange
+    Long jobId = 5L;
+    when(jobRepository.existsById(jobId)).thenReturn(true);
+    when(jobLogsRepository.findById(jobId))
+        .thenReturn(Optional.of(JobLogCodec.encode(jobId, "old output", 1024)));
+    when(jobLogLinesRepository.findByJobIdOrderByLineNumberAsc(jobId))
+        .thenReturn(
+            List.of(JobLogLine.builder().jobId(jobId).lineNumber(0).message("new output").build()));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("old output\nnew output", result);
+  }
 }
@@ -0,0 +1,119 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class UserProfileServiceTests {
+
+  @Mock private UserRepository userRepository;
+
+  @Mock private AdminDirectory adminDirectory;
+
+  @InjectMocks private UserProfileService userProfileService;
+
+  private final Map<String, Object> attributes = new HashMap<>();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    attributes.put("sub", "1234");
+    attributes.put("email", "cgaucho@ucsb.edu");
+    attributes.put("email_verified", true);
+    attributes.put("name", "Chris Gaucho");
+    attributes.put("picture", "https://example.org/cgaucho.png");
+  }
+
+  private OAuth2User oAuthUser() {
+    return new DefaultOAuth2User(
+        List.of(new SimpleGrantedAuthority("ROLE_USER")), attributes, "sub");
+  }
+
+  @Test
+  void the_profile_is_merged_with_its_hash() {
+    when(userRepository.mergeProfile(any())).thenReturn(1);
+
+    boolean written = userProfileService.upsert(oAuthUser());
+
+    ArgumentCaptor<User> profile = ArgumentCaptor.forClass(User.class);
+    verify(userRepository, times(1)).mergeProfile(profile.capture());
+    verify(userRepository, never()).upsertProfileOnConflict(any());
+    assertTrue(written);
+    assertEquals("cgaucho@ucsb.edu", profile.getValue().getEmail());
+    assertEquals("Chris Gaucho", profile.getValue().getFullName());
+    assertTrue(profile.getValue().getEmailVerified());
+    assertFalse(profile.getValue().getAdmin());
+    assertEquals(
+        UserProfileService.profileHash(profile.getValue()), profile.getValue().getProfileHash());
+    verify(adminDirectory, never()).invalidate();
+  }
+
+  @Test
+  void on_postgres_the_profile_is_upserted_on_conflict() {
+    ReflectionTestUtils.setField(userProfileService, "upsertOnConflict", true);
+    when(userRepository.upsertProfileOnConflict(any())).thenReturn(0);
+
+    boolean written = userProfileService.upsert(oAuthUser());
+
+    verify(userRepository, times(1)).upsertProfileOnConflict(any());
+    verify(userRepository, never()).mergeProfile(any());
+    assertFalse(written);
+  }
+
+  @Test
+  void writing_a_configured_admin_invalidates_the_admin_directory() {
+    when(adminDirectory.isConfiguredAdmin("cgaucho@ucsb.edu")).thenReturn(true);
+    when(userRepository.mergeProfile(any())).thenReturn(1, 0);
+
+    userProfileService.upsert(oAuthUser());
+    userProfileService.upsert(oAuthUser());
+
+    // only the first login wrote anything
+    verify(adminDirectory, times(1)).invalidate();
+  }
+
+  @Test
+  void a_missing_email_verified_attribute_counts_as_false() {
+    attributes.remove("email_verified");
+
+    userProfileService.upsert(oAuthUser());
+
+    ArgumentCaptor<User> profile = ArgumentCaptor.forClass(User.class);
+    verify(userRepository, times(1)).mergeProfile(profile.capture());
+    assertFalse(profile.getValue().getEmailVerified());
+  }
+
+  @Test
+  void the_hash_changes_only_with_the_profile() {
+    User profile = User.builder().email("cgaucho@ucsb.edu").fullName("Chris Gaucho").build();
+    User same = User.builder().email("cgaucho@ucsb.edu").fullName("Chris Gaucho").build();
+    User renamed = User.builder().email("cgaucho@ucsb.edu").fullName("Chris G.").build();
+
+    assertEquals(UserProfileService.profileHash(profile), UserProfileService.profileHash(same));
+    assertNotEquals(
+        UserProfileService.profileHash(profile), UserProfileService.profileHash(renamed));
+    assertEquals(32, UserProfileService.profileHash(profile).length());
+  }
+}
@@ -1,13 +1,40 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
 
 public class JobContextTests {
+
+  @SuppressWarnings("unchecked")
+  private List<JobLogLine> allSavedLines(JobLogLinesRepository repository, int flushes) {
+    ArgumentCaptor<Iterable<JobLogLine>> captor = ArgumentCaptor.forClass(Iterable.class);
+    verify(repository, times(flushes)).saveAll(captor.capture());
+    List<JobLogLine> lines = new ArrayList<>();
+    captor.getAllValues().forEach(batch -> batch.forEach(lines::add));
+    return lines;
+  }
+
   @Test
-  public void when_jobs_repository_is_null_does_not_save() throws Exception {
+  public void when_log_lines_repository_is_null_does_not_save() throws Exception {
 
     // arrange
 
@@ -18,6 +45,206 @@ public class JobContextTests {
     ctx.log("This is a log message");
 
     // assert
-    assertEquals("This is a log message", job1.getLog());
+    assertEquals(Job.builder().build(), job1);
+  }
+
+  @Test
+  public void unbuffered_log_appends_numbered_lines_without_touching_job_log() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(17L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, job1);
+
+    // act
+    ctx.log("first");
+    ctx.error("second");
+
+    // assert
+    List<JobLogLine> saved = allSavedLines(jobLogLinesRepository, 2);
+
+    assertEquals(17L, saved.get(0).getJobId());
+    assertEquals(0, saved.get(0).getLineNumber());
+    assertEquals("INFO", saved.get(0).getLogLevel());
+    assertEquals("first", saved.get(0).getMessage());
+
+    assertEquals(17L, saved.get(1).getJobId());
+    assertEquals(1, saved.get(1).getLineNumber());
+    assertEquals("ERROR", saved.get(1).getLogLevel());
+    assertEquals("second", saved.get(1).getMessage());
+
+    assertEquals(Job.builder().id(17L).build(), job1);
+  }
+
+  @Test
+  public void buffered_log_writes_once_max_lines_are_pending() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    JobMetrics jobMetrics = new JobMetrics(meterRegistry);
+    Job job1 = Job.builder().id(3L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, job1, 0, 3, 60_000, jobMetrics, null);
+
+    // act
+    ctx.log("one");
+    ctx.log("two");
+    verify(jobLogLinesRepository, never()).saveAll(anyList());
+    ctx.log("three");
+    ctx.log("four");
+    ctx.flush();
+    ctx.flush();
+
+    // assert
+    List<JobLogLine> saved = allSavedLines(jobLogLinesRepository, 2);
+    assertEquals(4, saved.size());
+    assertEquals("four", saved.get(3).getMessage());
+    assertEquals(3, saved.get(3).getLineNumber());
+
+    assertEquals(2, meterRegistry.get("jobs.log.flush").timer().count());
+    assertEquals(4.0, meterRegistry.get("jobs.log.flush.lines").summary().totalAmount());
+  }
+
+  @Test
+  public void flushIfStale_writes_only_after_interval() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(4L).build();
+    JobContext quiet = new JobContext(jobLogLinesRepository, job1, 0, 100, 60_000, null, null);
+    JobContext eager = new JobContext(jobLogLinesRepository, job1, 0, 100, 0, null, null);
+
+    // act
+    quiet.log("held");
+    quiet.flushIfStale();
+    verify(jobLogLinesRepository, never()).saveAll(anyList());
+    eager.log("written");
+
+    // assert
+    List<JobLogLine> saved = allSavedLines(jobLogLinesRepository, 1);
+    assertEquals(1, saved.size());
+    assertEquals("written", saved.get(0).getMessage());
+  }
+
+  @Test
+  public void lines_of_a_failed_flush_are_written_by_the_next_one() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    JobLogBroadcaster broadcaster = mock(JobLogBroadcaster.class);
+    when(jobLogLinesRepository.saveAll(anyList()))
+        .thenAnswer(
+            invocation -> {
+              // the insert assigned an id before the transaction rolled back
+              List<JobLogLine> batch = invocation.getArgument(0);
+              batch.forEach(line -> line.setId(99L));
+              throw new QueryTimeoutException("timed out");
+            })
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    Job job1 = Job.builder().id(3L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, job1, 0, 10, 60_000, null, broadcaster);
+
+    // act
+    ctx.log("kept");
+    assertThrows(QueryTimeoutException.class, ctx::flush);
+    verify(broadcaster, never()).publish(eq(3L), anyList());
+    ctx.log("next");
+    ctx.flush();
+
+    // assert
+    List<JobLogLine> saved = allSavedLines(jobLogLinesRepository, 2);
+    assertEquals(
+        List.of("kept", "kept", "next"), saved.stream().map(JobLogLine::getMessage).toList());
+    assertEquals(0L, saved.get(1).getId());
+    verify(broadcaster, times(1)).publish(eq(3L), anyList());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void flushed_lines_are_published_to_broadcaster() throws Exception {
+
+    // arrange
+
+    JobLogBroadcaster broadcaster = mock(JobLogBroadcaster.class);
+    Job job1 = Job.builder().id(5L).build();
+    JobContext ctx =
+        JobContext.builder()
+            .job(job1)
+            .firstLineNumber(7)
+            .flushMaxLines(10)
+            .flushIntervalMs(60_000)
+            .jobLogBroadcaster(broadcaster)
+            .build();
+
+    // act
+    ctx.log("streamed");
+    verify(broadcaster, never()).publish(eq(5L), anyList());
+    ctx.flush();
+
+    // assert
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(broadcaster, times(1)).publish(eq(5L), captor.capture());
+    assertEquals("streamed", captor.getValue().get(0).getMessage());
+    assertEquals(7, captor.getValue().get(0).getLineNumber());
+  }
+
+  @Test
+  public void cancel_interrupts_the_running_job_and_stops_logging() throws Exception {
+
+    // arrange
+    Job job = Job.builder().id(4L).build();
+    JobContext ctx = new JobContext(null, job);
+    ctx.started(0);
+    assertFalse(ctx.isCancelled());
+    assertFalse(ctx.isOverdue(Long.MAX_VALUE - 1));
+
+    // act
+    ctx.cancel(JobContext.TIMED_OUT);
+    ctx.cancel(JobContext.CANCELLED);
+
+    // assert
+    assertTrue(ctx.isCancelled());
+    assertEquals(JobContext.TIMED_OUT, ctx.getStopStatus());
+    assertTrue(Thread.currentThread().isInterrupted());
+    JobCancelledException e = assertThrows(JobCancelledException.class, () -> ctx.log("more"));
+    assertEquals("Job stopped: timed_out", e.getMessage());
+    ctx.error("errors are still written");
+
+    ctx.stopped();
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test
+  public void cancel_before_start_does_not_interrupt_anything() throws Exception {
+
+    // arrange
+    JobContext ctx = new JobContext(null, Job.builder().build());
+
+    // act
+    ctx.cancel(JobContext.CANCELLED);
+
+    // assert
+    assertTrue(ctx.isCancelled());
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test
+  public void job_is_overdue_after_its_timeout() throws Exception {
+
+    // arrange
+    JobContext ctx = new JobContext(null, Job.builder().build());
+
+    // act
+    long before = System.currentTimeMillis();
+    ctx.started(1000);
+
+    // assert
+    assertFalse(ctx.isOverdue(before));
+    assertTrue(ctx.isOverdue(System.currentTimeMillis() + 1001));
+    ctx.stopped();
   }
 }
@@ -0,0 +1,49 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import edu.ucsb.cs156.example.entities.Job;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobIdempotencyCacheTests {
+
+  private JobIdempotencyCache cache;
+
+  @BeforeEach
+  public void setup() {
+    cache = new JobIdempotencyCache();
+    ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+    ReflectionTestUtils.setField(cache, "maxEntries", 2);
+  }
+
+  @Test
+  public void remembers_jobs_until_full() {
+    Job job1 = Job.builder().id(1L).build();
+    Job job2 = Job.builder().id(2L).build();
+
+    cache.put("1:a", job1);
+    cache.put("1:b", job2);
+    cache.put("1:c", Job.builder().id(3L).build());
+
+    assertEquals(job1, cache.get("1:a"));
+    assertEquals(job2, cache.get("1:b"));
+    assertNull(cache.get("1:c"));
+    assertNull(cache.get("2:a"));
+  }
+
+  @Test
+  public void expired_entries_are_ignored_and_evicted() {
+    cache.put("1:live", Job.builder().id(1L).build());
+    ReflectionTestUtils.setField(cache, "ttlMs", 0L);
+    cache.put("1:old", Job.builder().id(2L).build());
+
+    assertNull(cache.get("1:old"));
+    cache.evictExpired();
+
+    assertEquals(1, cache.size());
+    assertEquals(1L, cache.get("1:live").getId());
+  }
+}
@@ -0,0 +1,227 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+public class JobLogBroadcasterTests {
+
+  private JobLogLine line(int lineNumber) {
+    return JobLogLine.builder().jobId(1L).lineNumber(lineNumber).message("m").build();
+  }
+
+  private JobLogBroadcaster broadcaster(Executor executor, int maxQueuedBatches) {
+    JobLogBroadcaster broadcaster = new JobLogBroadcaster();
+    ReflectionTestUtils.setField(broadcaster, "executor", executor);
+    ReflectionTestUtils.setField(broadcaster, "maxQueuedBatches", maxQueuedBatches);
+    return broadcaster;
+  }
+
+  private String text(SseEventBuilder event) {
+    return event.build().stream().map(d -> d.getData().toString()).collect(Collectors.joining());
+  }
+
+  @Test
+  public void published_lines_reach_subscribers_once() throws Exception {
+    JobLogBroadcaster broadcaster = broadcaster(Runnable::run, 100);
+    SseEmitter emitter = mock(SseEmitter.class);
+    JobLogBroadcaster.Subscriber subscriber = broadcaster.subscribe(1L, emitter, 1);
+
+    subscriber.replay(List.of(line(0), line(1), line(2)));
+    broadcaster.publish(1L, List.of(line(2), line(3)));
+    broadcaster.publish(2L, List.of(line(0)));
+
+    // lines 1, 2 and 3; line 0 is before the cursor and line 2 is not repeated
+    verify(emitter, times(3)).send(any(SseEventBuilder.class));
+  }
+
+  @Test
+  public void complete_closes_streams_and_forgets_subscribers() throws Exception {
+    JobLogBroadcaster broadcaster = broadcaster(Runnable::run, 100);
+    SseEmitter emitter = mock(SseEmitter.class);
+    broadcaster.subscribe(1L, emitter, 0).replay(List.of());
+
+    broadcaster.complete(1L, "complete");
+    broadcaster.complete(1L, "complete");
+    broadcaster.publish(1L, List.of(line(0)));
+
+    verify(emitter, times(1)).send(any(SseEventBuilder.class));
+    verify(emitter, times(1)).complete();
+  }
+
+  @Test
+  public void failed_send_completes_emitter_with_error() throws Exception {
+    JobLogBroadcaster broadcaster = broadcaster(Runnable::run, 100);
+    SseEmitter emitter = mock(SseEmitter.class);
+    IOException broken = new IOException("broken pipe");
+    doThrow(broken).when(emitter).send(any(SseEventBuilder.class));
+    JobLogBroadcaster.Subscriber subscriber = broadcaster.subscribe(1L, emitter, 0);
+
+    subscriber.replay(List.of(line(0)));
+    subscriber.send(List.of(line(1)));
+    subscriber.complete("error");
+
+    verify(emitter, times(1)).send(any(SseEventBuilder.class));
+    verify(emitter, times(1)).completeWithError(broken);
+    verify(emitter, never()).complete();
+  }
+
+  @Test
+  public void failed_complete_completes_emitter_with_error() throws Exception {
+    JobLogBroadcaster broadcaster = broadcaster(Runnable::run, 100);
+    SseEmitter emitter = mock(SseEmitter.class);
+    IllegalStateException gone = new IllegalStateException("already completed");
+    doThrow(gone).when(emitter).send(any(SseEventBuilder.class));
+    JobLogBroadcaster.Subscriber subscriber = broadcaster.subscribe(1L, emitter, 0);
+
+    subscriber.replay(List.of());
+    subscriber.complete("complete");
+
+    verify(emitter, times(1)).completeWithError(gone);
+    verify(emitter, never()).complete();
+  }
+
+  @Test
+  public void lines_published_during_the_replay_follow_it() throws Exception {
+    JobLogBroadcaster broadcaster = broadcaster(Runnable::run, 100);
+    SseEmitter emitter = mock(SseEmitter.class);
+    JobLogBroadcaster.Subscriber subscriber = broadcaster.subscribe(1L, emitter, 0);
+
+    // lines 2 and 3 are flushed after subscribing but before the backlog was read
+    broadcaster.publish(1L, List.of(line(2), line(3)));
+    broadcaster.complete(1L, "complete");
+    verify(emitter, never()).send(any(SseEventBuilder.class));
+
+    subscriber.replay(List.of(line(0), line(1), line(2)));
+    subscriber.complete("complete");
+
+    ArgumentCaptor<SseEventBuilder> events = ArgumentCaptor.forClass(SseEventBuilder.class);
+    verify(emitter, times(5)).send(events.capture());
+    List<String> sent = events.getAllValues().stream().map(this::text).toList();
+    for (int i = 0; i < 4; i++) {
+      assertTrue(sent.get(i).contains("id:" + i + "\n"), sent.get(i));
+    }
+    assertTrue(sent.get(4).contains("event:complete\n"), sent.get(4));
+    assertEquals(4, subscriber.getNextLine());
+    verify(emitter, times(1)).complete();
+  }
+
+  @Test
+  public void events_are_sent_on_the_executor_not_by_the_publisher() throws Exception {
+    List<Runnable> tasks = new ArrayList<>();
+    JobLogBroadcaster broadcaster = broadcaster(tasks::add, 100);
+    SseEmitter emitter = mock(SseEmitter.class);
+    broadcaster.subscribe(1L, emitter, 0).replay(List.of());
+
+    broadcaster.publish(1L, List.of(line(0)));
+    broadcaster.publish(1L, List.of(line(1)));
+    broadcaster.complete(1L, "complete");
+
+    verify(emitter, never()).send(any(SseEventBuilder.class));
+    // one task sends everything queued, in order
+    assertEquals(1, tasks.size());
+    tasks.get(0).run();
+    ArgumentCaptor<SseEventBuilder> events = ArgumentCaptor.forClass(SseEventBuilder.class);
+    verify(emitter, times(3)).send(events.capture());
+    assertTrue(text(events.getAllValues().get(1)).contains("id:1\n"));
+    assertTrue(text(events.getAllValues().get(2)).contains("event:complete\n"));
+    verify(emitter, times(1)).complete();
+
+    // the outbox is empty again, so the next event starts another task
+    broadcaster.subscribe(1L, mock(SseEmitter.class), 0).send(List.of(line(0)));
+    assertEquals(2, tasks.size());
+  }
+
+  @Test
+  public void a_client_that_falls_behind_has_its_stream_closed() throws Exception {
+    List<Runnable> tasks = new ArrayList<>();
+    JobLogBroadcaster broadcaster = broadcaster(tasks::add, 2);
+    SseEmitter emitter = mock(SseEmitter.class);
+    broadcaster.subscribe(1L, emitter, 0).replay(List.of());
+
+    for (int i = 0; i < 3; i++) {
+      broadcaster.publish(1L, List.of(line(i)));
+    }
+    tasks.get(0).run();
+    // still subscribed until the emitter calls back, and still behind
+    for (int i = 3; i < 6; i++) {
+      broadcaster.publish(1L, List.of(line(i)));
+    }
+    tasks.get(1).run();
+
+    verify(emitter, never()).send(any(SseEventBuilder.class));
+    verify(emitter, times(1)).complete();
+  }
+
+  @Test
+  public void a_rejected_send_is_dropped() throws Exception {
+    JobLogBroadcaster broadcaster =
+        broadcaster(
+            task -> {
+              throw new RejectedExecutionException("shutting down");
+            },
+            100);
+    SseEmitter emitter = mock(SseEmitter.class);
+    broadcaster.subscribe(1L, emitter, 0).replay(List.of());
+
+    broadcaster.publish(1L, List.of(line(0)));
+    broadcaster.publish(1L, List.of(line(1)));
+
+    verify(emitter, never()).send(any(SseEventBuilder.class));
+  }
+
+  @Test
+  public void next_line_is_the_lowest_of_the_subscribers() throws Exception {
+    JobLogBroadcaster broadcaster = broadcaster(Runnable::run, 100);
+    broadcaster.subscribe(1L, mock(SseEmitter.class), 5).replay(List.of());
+    broadcaster.subscribe(1L, mock(SseEmitter.class), 0).replay(List.of(line(0), line(1)));
+
+    assertEquals(Set.of(1L), broadcaster.getSubscribedJobIds());
+    assertEquals(OptionalInt.of(2), broadcaster.getNextLine(1L));
+    assertEquals(OptionalInt.empty(), broadcaster.getNextLine(2L));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void callbacks_unsubscribe() throws Exception {
+    JobLogBroadcaster broadcaster = broadcaster(Runnable::run, 100);
+    SseEmitter first = mock(SseEmitter.class);
+    SseEmitter second = mock(SseEmitter.class);
+    broadcaster.subscribe(1L, first, 0);
+    broadcaster.subscribe(1L, second, 0);
+
+    ArgumentCaptor<Runnable> completion = ArgumentCaptor.forClass(Runnable.class);
+    verify(first).onCompletion(completion.capture());
+    completion.getValue().run();
+
+    ArgumentCaptor<Consumer<Throwable>> error = ArgumentCaptor.forClass(Consumer.class);
+    verify(second).onError(error.capture());
+    error.getValue().accept(new IOException("gone"));
+
+    broadcaster.publish(1L, List.of(line(0)));
+
+    verify(first, never()).send(any(SseEventBuilder.class));
+    verify(second, never()).send(any(SseEventBuilder.class));
+  }
+}
@@ -0,0 +1,136 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.JobLog;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class JobLogCodecTests {
+
+  @Test
+  public void small_log_is_stored_plain() {
+    JobLog log = JobLogCodec.encode(1L, "short log", 1024);
+
+    assertEquals(1L, log.getJobId());
+    assertEquals(JobLogCodec.PLAIN, log.getEncoding());
+    assertEquals(9, log.getOriginalLength());
+    assertEquals(9, log.getStoredLength());
+    assertArrayEquals("short log".getBytes(StandardCharsets.UTF_8), log.getData());
+    assertEquals("short log", JobLogCodec.decode(log));
+  }
+
+  @Test
+  public void large_log_is_compressed_and_round_trips() {
+    String text = "Processing item ... done\n".repeat(2000);
+
+    JobLog log = JobLogCodec.encode(2L, text, 1024);
+
+    assertEquals(JobLogCodec.DEFLATE, log.getEncoding());
+    assertEquals(text.length(), log.getOriginalLength());
+    assertEquals(log.getData().length, log.getStoredLength());
+    assertTrue(log.getStoredLength() < text.length() / 10);
+    assertEquals(text, JobLogCodec.decode(log));
+  }
+
+  @Test
+  public void empty_log_round_trips_when_compressed() {
+    JobLog log = JobLogCodec.encode(3L, "", 0);
+
+    assertEquals(JobLogCodec.DEFLATE, log.getEncoding());
+    assertEquals("", JobLogCodec.decode(log));
+  }
+
+  @Test
+  public void unknown_encoding_is_rejected() {
+    JobLog log = JobLog.builder().jobId(4L).encoding("zstd").data(new byte[0]).build();
+
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, () -> JobLogCodec.decode(log));
+    assertEquals("Unknown encoding of log of job 4", e.getMessage());
+  }
+
+  @Test
+  public void corrupt_data_is_rejected() {
+    JobLog log =
+        JobLog.builder()
+            .jobId(5L)
+            .encoding(JobLogCodec.DEFLATE)
+            .originalLength(10)
+            .data(new byte[] {1, 2, 3, 4})
+            .build();
+
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, () -> JobLogCodec.decode(log));
+    assertEquals("Corrupt log of job 5", e.getMessage());
+  }
+
+  @Test
+  public void truncated_data_is_rejected() {
+    JobLog full = JobLogCodec.encode(6L, "abcdefghij".repeat(1000), 0);
+    full.setData(Arrays.copyOf(full.getData(), full.getData().length / 2));
+
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, () -> JobLogCodec.decode(full));
+    assertEquals("Corrupt log of job 6", e.getMessage());
+  }
+
+  private static JobLogLine line(int lineNumber, String message) {
+    return JobLogLine.builder().jobId(7L).lineNumber(lineNumber).message(message).build();
+  }
+
+  @Test
+  public void lines_keep_their_numbers_across_join_and_split() {
+    List<JobLogLine> lines =
+        List.of(line(0, "one\ntwo"), line(1, ""), line(3, "after a gap"), line(4, null));
+
+    String text = JobLogCodec.join("old\noutput", lines);
+    String index = JobLogCodec.index(lines);
+    JobLogCodec.Lines split = JobLogCodec.split(7L, text, index);
+
+    assertEquals("old\noutput\none\ntwo\n\nafter a gap\nnull", text);
+    assertEquals("0:7,0,,11,4", index);
+    assertEquals("old\noutput", split.prefix());
+    assertEquals(
+        List.of(0, 1, 3, 4), split.lines().stream().map(JobLogLine::getLineNumber).toList());
+    assertEquals(
+        List.of("one\ntwo", "", "after a gap", "null"),
+        split.lines().stream().map(JobLogLine::getMessage).toList());
+  }
+
+  @Test
+  public void lines_without_a_prefix_start_the_text() {
+    List<JobLogLine> lines = List.of(line(5, "a"), line(6, "b"));
+
+    JobLogCodec.Lines split =
+        JobLogCodec.split(7L, JobLogCodec.join(null, lines), JobLogCodec.index(lines));
+
+    assertNull(split.prefix());
+    assertEquals(lines, split.lines());
+    assertNull(JobLogCodec.index(List.of()));
+  }
+
+  @Test
+  public void a_log_without_an_index_is_all_prefix() {
+    JobLogCodec.Lines split = JobLogCodec.split(7L, "a\nb", null);
+
+    assertEquals("a\nb", split.prefix());
+    assertEquals(List.of(), split.lines());
+  }
+
+  @Test
+  public void an_index_that_does_not_fit_the_text_is_rejected() {
+    for (String index : List.of("0:10", "x:1", "0:1,y", "3")) {
+      IllegalStateException e =
+          assertThrows(IllegalStateException.class, () -> JobLogCodec.split(7L, "abc", index));
+      assertEquals("Corrupt line index of log of job 7", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.JobLog;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class JobLogCompactionTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogsRepository jobLogsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  @InjectMocks private JobLogCompaction jobLogCompaction;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobLogCompaction, "compressMinBytes", 16);
+    ReflectionTestUtils.setField(jobLogCompaction, "compactAfterMs", 60_000L);
+    ReflectionTestUtils.setField(jobLogCompaction, "batchSize", 2);
+  }
+
+  private JobLogLine line(long jobId, int lineNumber, String message) {
+    return JobLogLine.builder().jobId(jobId).lineNumber(lineNumber).message(message).build();
+  }
+
+  @Test
+  public void compacts_finished_jobs_in_batches_one_transaction_each() {
+    String big = "x".repeat(100);
+    when(jobsRepository.findIdsToCompact(any(), eq(0L), eq(PageRequest.of(0, 2))))
+        .thenReturn(List.of(1L, 2L));
+    when(jobsRepository.findIdsToCompact(any(), eq(2L), eq(PageRequest.of(0, 2))))
+        .thenReturn(List.of(3L));
+    when(jobLogLinesRepository.findByJobIdOrderByLineNumberAsc(1L))
+        .thenReturn(List.of(line(1L, 0, "a"), line(1L, 1, "b")));
+    when(jobLogLinesRepository.findByJobIdOrderByLineNumberAsc(2L))
+        .thenReturn(List.of(line(2L, 0, big)));
+    when(jobLogLinesRepository.findByJobIdOrderByLineNumberAsc(3L))
+        .thenReturn(List.of(line(3L, 0, "c")));
+
+    ZonedDateTime before = ZonedDateTime.now().minusMinutes(1);
+    assertEquals(3, jobLogCompaction.compactFinishedLogs());
+
+    ArgumentCaptor<ZonedDateTime> finishedBefore = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobsRepository, times(2)).findIdsToCompact(finishedBefore.capture(), anyLong(), any());
+    assertEquals(false, finishedBefore.getValue().isBefore(before));
+    ArgumentCaptor<JobLog> logs = ArgumentCaptor.forClass(JobLog.class);
+    verify(jobLogsRepository, times(3)).save(logs.capture());
+    assertEquals("a\nb", JobLogCodec.decode(logs.getAllValues().get(0)));
+    assertEquals("0:1,1", logs.getAllValues().get(0).getLineIndex());
+    assertEquals(JobLogCodec.DEFLATE, logs.getAllValues().get(1).getEncoding());
+    assertEquals(big, JobLogCodec.decode(logs.getAllValues().get(1)));
+    verify(jobLogLinesRepository).deleteByJobId(1L);
+    verify(jobLogLinesRepository).deleteByJobId(2L);
+    verify(jobLogLinesRepository).deleteByJobId(3L);
+    verify(transactionManager, times(3)).commit(any());
+  }
+
+  @Test
+  public void the_earlier_log_and_lines_of_a_job_are_kept() {
+    List<JobLogLine> compacted = List.of(line(1L, 0, "x\ny"));
+    JobLog earlier = JobLogCodec.encode(1L, JobLogCodec.join("old", compacted), 1024);
+    earlier.setLineIndex(JobLogCodec.index(compacted));
+    when(jobsRepository.findIdsToCompact(any(), eq(0L), any())).thenReturn(List.of(1L));
+    when(jobLogsRepository.findById(1L)).thenReturn(Optional.of(earlier));
+    when(jobLogLinesRepository.findByJobIdOrderByLineNumberAsc(1L))
+        .thenReturn(List.of(line(1L, 1, "z")));
+
+    assertEquals(1, jobLogCompaction.compactFinishedLogs());
+
+    ArgumentCaptor<JobLog> log = ArgumentCaptor.forClass(JobLog.class);
+    verify(jobLogsRepository).save(log.capture());
+    assertEquals("old\nx\ny\nz", JobLogCodec.decode(log.getValue()));
+    assertEquals("0:3,1", log.getValue().getLineIndex());
+  }
+
+  @Test
+  public void a_job_that_cannot_be_compacted_is_skipped() {
+    JobLog corrupt = JobLogCodec.encode(1L, "old", 1024);
+    corrupt.setLineIndex("0:10");
+    when(jobsRepository.findIdsToCompact(any(), eq(0L), any())).thenReturn(List.of(1L));
+    when(jobLogsRepository.findById(1L)).thenReturn(Optional.of(corrupt));
+
+    assertEquals(0, jobLogCompaction.compactFinishedLogs());
+
+    verify(jobLogLinesRepository, never()).deleteByJobId(anyLong());
+    verify(transactionManager, times(1)).rollback(any());
+  }
+}
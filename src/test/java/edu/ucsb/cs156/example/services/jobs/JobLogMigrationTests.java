@@ -0,0 +1,103 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.JobLog;
+import edu.ucsb.cs156.example.repositories.JobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.List;
+import javax.sql.rowset.serial.SerialClob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class JobLogMigrationTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogsRepository jobLogsRepository;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  @InjectMocks private JobLogMigration jobLogMigration;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobLogMigration, "compressMinBytes", 16);
+    ReflectionTestUtils.setField(jobLogMigration, "batchSize", 2);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void moves_logs_in_batches_then_stops() throws Exception {
+    String big = "x".repeat(100);
+    when(jobsRepository.findUnmigratedLogs(2))
+        .thenReturn(
+            List.of(
+                new Object[] {1L, "small"}, new Object[] {2, new SerialClob(big.toCharArray())}),
+            List.<Object[]>of(new Object[] {3L, "last"}),
+            List.of());
+
+    assertEquals(3, jobLogMigration.migrateLogs());
+
+    ArgumentCaptor<List<JobLog>> captor = ArgumentCaptor.forClass(List.class);
+    verify(jobLogsRepository, times(2)).saveAll(captor.capture());
+    List<JobLog> first = captor.getAllValues().get(0);
+    assertEquals(1L, first.get(0).getJobId());
+    assertEquals(JobLogCodec.PLAIN, first.get(0).getEncoding());
+    assertEquals(2L, first.get(1).getJobId());
+    assertEquals(JobLogCodec.DEFLATE, first.get(1).getEncoding());
+    assertEquals(big, JobLogCodec.decode(first.get(1)));
+    assertEquals("last", JobLogCodec.decode(captor.getAllValues().get(1).get(0)));
+    verify(jobsRepository).clearUnmigratedLogs(List.of(1L, 2L));
+    verify(jobsRepository).clearUnmigratedLogs(List.of(3L));
+
+    // each batch is moved in a transaction of its own
+    verify(transactionManager, times(3)).commit(any());
+
+    // later runs do not query again
+    assertEquals(0, jobLogMigration.migrateLogs());
+    verify(jobsRepository, times(3)).findUnmigratedLogs(anyInt());
+  }
+
+  @Test
+  public void unreadable_clob_fails_the_batch() throws Exception {
+    Clob clob = mock(Clob.class);
+    when(clob.length()).thenReturn(3L);
+    when(clob.getSubString(1, 3)).thenThrow(new SQLException("closed"));
+    when(jobsRepository.findUnmigratedLogs(2))
+        .thenReturn(List.<Object[]>of(new Object[] {1L, clob}));
+
+    assertThrows(DataRetrievalFailureException.class, () -> jobLogMigration.migrateLogs());
+
+    verify(jobLogsRepository, never()).saveAll(anyList());
+    verify(transactionManager, times(1)).rollback(any());
+  }
+
+  @Test
+  public void nothing_to_move() {
+    when(jobsRepository.findUnmigratedLogs(2)).thenReturn(List.of());
+
+    assertEquals(0, jobLogMigration.migrateLogs());
+
+    verify(jobLogsRepository, never()).saveAll(anyList());
+  }
+}
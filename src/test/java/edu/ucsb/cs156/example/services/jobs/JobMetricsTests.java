@@ -0,0 +1,118 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+public class JobMetricsTests {
+
+  @Test
+  public void executor_gauges_report_active_and_queued_jobs() throws Exception {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    JobMetrics jobMetrics = new JobMetrics(meterRegistry);
+
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(1);
+    executor.setQueueCapacity(5);
+    executor.initialize();
+    jobMetrics.registerExecutor(executor);
+
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    executor.execute(
+        () -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    executor.execute(() -> {});
+    started.await();
+
+    assertEquals(1.0, meterRegistry.get("jobs.executor.active").gauge().value());
+    assertEquals(1.0, meterRegistry.get("jobs.executor.queued").gauge().value());
+
+    release.countDown();
+    executor.shutdown();
+  }
+
+  @Test
+  public void rejected_jobs_are_counted() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    JobMetrics jobMetrics = new JobMetrics(meterRegistry);
+
+    jobMetrics.recordRejected();
+    jobMetrics.recordRejected();
+
+    assertEquals(2.0, meterRegistry.get("jobs.executor.rejected").counter().count());
+  }
+
+  @Test
+  public void retention_purges_are_counted_per_policy() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    JobMetrics jobMetrics = new JobMetrics(meterRegistry);
+
+    jobMetrics.recordPurge("error", 3, 100);
+    jobMetrics.recordPurge("default", 2, 50);
+    jobMetrics.recordArchived(5);
+
+    assertEquals(
+        3.0, meterRegistry.get("jobs.retention.purged").tag("policy", "error").counter().count());
+    assertEquals(
+        50.0,
+        meterRegistry
+            .get("jobs.retention.reclaimed.bytes")
+            .tag("policy", "default")
+            .counter()
+            .count());
+    assertEquals(5.0, meterRegistry.get("jobs.retention.archived").counter().count());
+  }
+
+  @Test
+  public void job_type_tags_are_short_class_names() {
+    assertEquals("TestJob", JobMetrics.jobTypeTag("edu.ucsb.cs156.example.jobs.TestJob"));
+    assertEquals("TopLevel", JobMetrics.jobTypeTag("TopLevel"));
+    assertEquals(
+        "JobsController.lambda",
+        JobMetrics.jobTypeTag("a.b.JobsController$$Lambda/0x000001234"));
+    assertEquals("unknown", JobMetrics.jobTypeTag(null));
+  }
+
+  @Test
+  public void job_lifecycle_is_recorded_per_type_and_status() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    JobMetrics jobMetrics = new JobMetrics(meterRegistry);
+
+    jobMetrics.recordEnqueued("a.TestJob");
+    jobMetrics.recordStarted("a.TestJob", Duration.ofSeconds(2));
+    jobMetrics.recordFinished("a.TestJob", "error", Duration.ofSeconds(3));
+
+    assertEquals(
+        1.0, meterRegistry.get("jobs.enqueued").tag("type", "TestJob").counter().count());
+    assertEquals(
+        2.0,
+        meterRegistry.get("jobs.wait").tag("type", "TestJob").timer().totalTime(TimeUnit.SECONDS));
+    assertEquals(
+        3.0,
+        meterRegistry
+            .get("jobs.run")
+            .tags("type", "TestJob", "status", "error")
+            .timer()
+            .totalTime(TimeUnit.SECONDS));
+    assertEquals(
+        1.0,
+        meterRegistry
+            .get("jobs.finished")
+            .tags("type", "TestJob", "status", "error")
+            .counter()
+            .count());
+  }
+}
@@ -0,0 +1,187 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobDependenciesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobQueueTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobDependenciesRepository jobDependenciesRepository;
+
+  @InjectMocks private JobQueue jobQueue;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobQueue, "workerId", "worker-a");
+    ReflectionTestUtils.setField(jobQueue, "leaseMs", 60_000L);
+    ReflectionTestUtils.setField(jobQueue, "maxAttempts", 3);
+  }
+
+  @Test
+  void generated_worker_id_is_stable() {
+    ReflectionTestUtils.setField(jobQueue, "workerId", "");
+    String first = jobQueue.getWorkerId();
+    assertTrue(first.startsWith("worker-"));
+    assertEquals(first, jobQueue.getWorkerId());
+
+    ReflectionTestUtils.setField(jobQueue, "workerId", null);
+    assertNotEquals(first, jobQueue.getWorkerId());
+  }
+
+  @Test
+  void lease_marks_new_job_as_running_here() {
+    Job job = Job.builder().build();
+
+    jobQueue.lease(job);
+
+    assertEquals("running", job.getStatus());
+    assertEquals("worker-a", job.getLockedBy());
+    assertEquals(1, job.getAttempts());
+    assertTrue(job.getLeaseExpiresAt().isAfter(ZonedDateTime.now().plusSeconds(59)));
+  }
+
+  @Test
+  void claim_keeps_only_rows_this_worker_won() {
+    Job won = Job.builder().id(1L).build();
+    when(jobsRepository.failAbandoned(any(ZonedDateTime.class), eq(3))).thenReturn(2);
+    when(jobsRepository.skipAllBlocked(any(ZonedDateTime.class))).thenReturn(3, 1, 0);
+    when(jobsRepository.findClaimableIds(any(ZonedDateTime.class), eq(3), eq(5)))
+        .thenReturn(List.of(1L, 2L));
+    when(jobsRepository.claim(eq(1L), eq("worker-a"), any(), any())).thenReturn(1);
+    when(jobsRepository.claim(eq(2L), eq("worker-a"), any(), any())).thenReturn(0);
+    when(jobsRepository.findAllById(List.of(1L))).thenReturn(List.of(won));
+
+    List<Job> claimed = jobQueue.claim(5);
+
+    assertEquals(List.of(won), claimed);
+    verify(jobsRepository, never()).findClaimableIdsSkipLocked(any(), anyInt(), anyInt());
+    // dependents of the abandoned jobs are skipped, level by level
+    verify(jobsRepository, times(3)).skipAllBlocked(any(ZonedDateTime.class));
+  }
+
+  @Test
+  void claim_uses_skip_locked_when_enabled() {
+    ReflectionTestUtils.setField(jobQueue, "skipLocked", true);
+    when(jobsRepository.findClaimableIdsSkipLocked(any(ZonedDateTime.class), eq(3), eq(2)))
+        .thenReturn(List.of());
+    when(jobsRepository.findAllById(List.of())).thenReturn(List.of());
+
+    List<Job> claimed = jobQueue.claim(2);
+
+    assertEquals(List.of(), claimed);
+    verify(jobsRepository, never()).findClaimableIds(any(), anyInt(), anyInt());
+  }
+
+  @Test
+  void release_puts_job_back_in_queue() {
+    Job job = Job.builder().status("running").lockedBy("worker-a").build();
+    job.setLeaseExpiresAt(ZonedDateTime.now());
+
+    jobQueue.release(job);
+
+    assertEquals("queued", job.getStatus());
+    assertNull(job.getLockedBy());
+    assertNull(job.getLeaseExpiresAt());
+    verify(jobsRepository, times(1)).save(job);
+  }
+
+  @Test
+  void heartbeat_extends_leases_only_when_jobs_are_running() {
+    jobQueue.heartbeat(List.of());
+    verify(jobsRepository, never()).extendLeases(anyCollection(), anyString(), any());
+
+    jobQueue.heartbeat(List.of(4L, 5L));
+    verify(jobsRepository, times(1))
+        .extendLeases(eq(List.of(4L, 5L)), eq("worker-a"), any(ZonedDateTime.class));
+  }
+
+  @Test
+  void finish_releases_lease_whether_or_not_it_was_still_held() {
+    ZonedDateTime started = ZonedDateTime.now().minusMinutes(1);
+    ZonedDateTime finished = ZonedDateTime.now();
+    Job held =
+        Job.builder()
+            .id(1L)
+            .status("complete")
+            .lockedBy("worker-a")
+            .startedAt(started)
+            .finishedAt(finished)
+            .build();
+    Job lost = Job.builder().id(2L).status("error").lockedBy("worker-a").build();
+    when(jobsRepository.finish(eq(1L), eq("worker-a"), eq("complete"), eq(started), eq(finished)))
+        .thenReturn(1);
+    when(jobsRepository.finish(eq(2L), eq("worker-a"), eq("error"), eq(null), any()))
+        .thenReturn(0);
+
+    jobQueue.finish(held);
+    jobQueue.finish(lost);
+
+    assertNull(held.getLockedBy());
+    assertNull(lost.getLockedBy());
+    assertEquals(finished, held.getFinishedAt());
+    assertTrue(lost.getFinishedAt() != null);
+    verify(jobsRepository, times(2)).finish(anyLong(), anyString(), anyString(), any(), any());
+  }
+
+  @Test
+  void resolveDependents_does_nothing_for_jobs_without_dependents() {
+    when(jobDependenciesRepository.findJobIdsByParentIdIn(List.of(1L))).thenReturn(List.of());
+
+    assertEquals(0, jobQueue.resolveDependents(List.of(1L)));
+
+    verify(jobsRepository, never()).releaseReady(anyCollection(), any());
+    verify(jobsRepository, never()).skipBlocked(anyCollection(), any());
+  }
+
+  @Test
+  void resolveDependents_queues_ready_jobs() {
+    when(jobDependenciesRepository.findJobIdsByParentIdIn(List.of(1L)))
+        .thenReturn(List.of(2L, 3L));
+    when(jobsRepository.releaseReady(eq(List.of(2L, 3L)), any())).thenReturn(2);
+
+    assertEquals(2, jobQueue.resolveDependents(List.of(1L)));
+
+    verify(jobsRepository, times(1)).skipBlocked(eq(List.of(2L, 3L)), any());
+    verify(jobDependenciesRepository, times(1)).findJobIdsByParentIdIn(anyCollection());
+  }
+
+  @Test
+  void resolveDependents_skips_everything_downstream_of_a_failure() {
+    when(jobDependenciesRepository.findJobIdsByParentIdIn(List.of(1L))).thenReturn(List.of(2L));
+    when(jobDependenciesRepository.findJobIdsByParentIdIn(List.of(2L))).thenReturn(List.of(3L));
+    when(jobDependenciesRepository.findJobIdsByParentIdIn(List.of(3L))).thenReturn(List.of());
+    when(jobsRepository.skipBlocked(eq(List.of(2L)), any())).thenReturn(1);
+    when(jobsRepository.skipBlocked(eq(List.of(3L)), any())).thenReturn(1);
+
+    assertEquals(0, jobQueue.resolveDependents(List.of(1L)));
+
+    verify(jobsRepository, times(1)).skipBlocked(eq(List.of(3L)), any());
+    verify(jobsRepository, never()).skipBlocked(eq(List.of()), any());
+  }
+}
@@ -0,0 +1,194 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobRetentionTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobLogsRepository jobLogsRepository;
+
+  @Mock private JobService jobService;
+
+  @Mock private JobMetrics jobMetrics;
+
+  @InjectMocks private JobRetention jobRetention;
+
+  @TempDir Path tempDir;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobRetention, "enabled", true);
+    ReflectionTestUtils.setField(jobRetention, "maxAgeDays", 30);
+    ReflectionTestUtils.setField(jobRetention, "maxAgeDaysByStatus", "");
+    ReflectionTestUtils.setField(jobRetention, "batchSize", 2);
+    ReflectionTestUtils.setField(jobRetention, "pauseMs", 0L);
+    ReflectionTestUtils.setField(jobRetention, "archiveDir", "");
+  }
+
+  @Test
+  void disabled_retention_deletes_nothing() {
+    ReflectionTestUtils.setField(jobRetention, "enabled", false);
+
+    assertEquals(0, jobRetention.purgeExpiredJobs());
+    verify(jobsRepository, never()).deleteByIdIn(anyCollection());
+  }
+
+  @Test
+  void status_policies_are_parsed() {
+    ReflectionTestUtils.setField(jobRetention, "maxAgeDaysByStatus", "error:90, complete : 7,");
+
+    assertEquals(Map.of("error", 90, "complete", 7), jobRetention.statusPolicies());
+
+    ReflectionTestUtils.setField(jobRetention, "maxAgeDaysByStatus", "error");
+    assertThrows(IllegalArgumentException.class, () -> jobRetention.statusPolicies());
+  }
+
+  @Test
+  void default_policy_purges_in_batches_until_a_short_batch() {
+    when(jobsRepository.findIdsByStatusNotInCreatedBefore(
+            eq(Set.of("waiting", "queued", "running")),
+            any(ZonedDateTime.class),
+            eq(PageRequest.of(0, 2))))
+        .thenReturn(List.of(1L, 2L), List.of(3L));
+    when(jobLogsRepository.sumStoredLength(anyCollection())).thenReturn(10L);
+    when(jobLogLinesRepository.sumMessageBytes(anyCollection())).thenReturn(5L);
+    when(jobsRepository.deleteByIdIn(List.of(1L, 2L))).thenReturn(2);
+    when(jobsRepository.deleteByIdIn(List.of(3L))).thenReturn(1);
+
+    assertEquals(3, jobRetention.purgeExpiredJobs());
+
+    verify(jobMetrics).recordPurge("default", 2, 15L);
+    verify(jobMetrics).recordPurge("default", 1, 15L);
+  }
+
+  @Test
+  void status_policies_override_the_default_and_never_touch_active_jobs() {
+    ReflectionTestUtils.setField(
+        jobRetention, "maxAgeDaysByStatus", "error:90,complete:-1,running:1");
+    ReflectionTestUtils.setField(jobRetention, "maxAgeDays", -1);
+    when(jobsRepository.findIdsByStatusCreatedBefore(eq("error"), any(), any()))
+        .thenReturn(List.of());
+
+    assertEquals(0, jobRetention.purgeExpiredJobs());
+
+    verify(jobsRepository, times(1)).findIdsByStatusCreatedBefore(anyString(), any(), any());
+    verify(jobsRepository, never()).findIdsByStatusNotInCreatedBefore(any(), any(), any());
+  }
+
+  @Test
+  void statuses_with_a_policy_are_excluded_from_the_default() {
+    ReflectionTestUtils.setField(jobRetention, "maxAgeDaysByStatus", "error:90");
+    ZonedDateTime before = ZonedDateTime.now();
+    when(jobsRepository.findIdsByStatusCreatedBefore(eq("error"), any(), any()))
+        .thenReturn(List.of(4L));
+    when(jobsRepository.deleteByIdIn(List.of(4L))).thenReturn(1);
+    when(jobsRepository.findIdsByStatusNotInCreatedBefore(
+            eq(Set.of("waiting", "queued", "running", "error")), any(), any()))
+        .thenReturn(List.of());
+
+    assertEquals(1, jobRetention.purgeExpiredJobs());
+
+    verify(jobMetrics).recordPurge("error", 1, 0L);
+    verify(jobsRepository)
+        .findIdsByStatusCreatedBefore(
+            eq("error"),
+            argThat(
+                cutoff ->
+                    !cutoff.isBefore(before.minusDays(90))
+                        && cutoff.isBefore(before.minusDays(89))),
+            any());
+  }
+
+  @Test
+  void logs_are_archived_before_deletion() throws Exception {
+    ReflectionTestUtils.setField(jobRetention, "archiveDir", tempDir.resolve("a").toString());
+    when(jobsRepository.findIdsByStatusNotInCreatedBefore(any(), any(), any()))
+        .thenReturn(List.of(7L));
+    when(jobService.getJobLogs(7L)).thenReturn("hello\nworld");
+    when(jobsRepository.deleteByIdIn(List.of(7L))).thenReturn(1);
+
+    assertEquals(1, jobRetention.purgeExpiredJobs());
+
+    try (InputStream in =
+        new GZIPInputStream(Files.newInputStream(tempDir.resolve("a/job-7.log.gz")))) {
+      assertEquals("hello\nworld", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+    verify(jobMetrics).recordArchived(1);
+  }
+
+  @Test
+  void jobs_that_cannot_be_archived_are_kept() throws Exception {
+    Path notADirectory = Files.writeString(tempDir.resolve("file"), "x");
+    ReflectionTestUtils.setField(jobRetention, "archiveDir", notADirectory.toString());
+    when(jobsRepository.findIdsByStatusNotInCreatedBefore(any(), any(), any()))
+        .thenReturn(List.of(7L, 8L));
+
+    assertEquals(0, jobRetention.purgeExpiredJobs());
+
+    verify(jobsRepository, never()).deleteByIdIn(anyCollection());
+    verify(jobMetrics, never()).recordPurge(anyString(), anyInt(), anyLong());
+  }
+
+  @Test
+  void jobs_deleted_meanwhile_are_skipped_by_archive() {
+    ReflectionTestUtils.setField(jobRetention, "archiveDir", tempDir.toString());
+    when(jobService.getJobLogs(1L)).thenThrow(new IllegalArgumentException("Job not found"));
+    when(jobService.getJobLogs(2L)).thenReturn("");
+
+    assertEquals(List.of(2L), jobRetention.archive(List.of(1L, 2L)));
+  }
+
+  @Test
+  void interrupted_purge_stops_after_the_current_batch() {
+    when(jobsRepository.findIdsByStatusNotInCreatedBefore(any(), any(), any()))
+        .thenReturn(List.of(1L, 2L));
+    when(jobsRepository.deleteByIdIn(anyCollection())).thenReturn(2);
+    ReflectionTestUtils.setField(jobRetention, "pauseMs", 60_000L);
+
+    Thread.currentThread().interrupt();
+    try {
+      assertEquals(2, jobRetention.purgeExpiredJobs());
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+  }
+}
@@ -0,0 +1,826 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobDependency;
+import edu.ucsb.cs156.example.entities.JobLog;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobLogChunk;
+import edu.ucsb.cs156.example.repositories.JobDependenciesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogsRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class JobServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobLogsRepository jobLogsRepository;
+
+  @Mock private JobDependenciesRepository jobDependenciesRepository;
+
+  @Mock private CurrentUserService currentUserService;
+
+  @Mock private JobLogBroadcaster jobLogBroadcaster;
+
+  @Mock private JobQueue jobQueue;
+
+  @Mock private ThreadPoolTaskExecutor jobExecutor;
+
+  @Spy private ObjectMapper mapper = new ObjectMapper();
+
+  @Spy private JobMetrics jobMetrics = new JobMetrics(new SimpleMeterRegistry());
+
+  @Spy private JobIdempotencyCache jobIdempotencyCache = new JobIdempotencyCache();
+
+  @InjectMocks private JobService jobService;
+
+  private JobService self;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    ReflectionTestUtils.setField(jobService, "logBuffered", true);
+    ReflectionTestUtils.setField(jobService, "logFlushMaxLines", 100);
+    ReflectionTestUtils.setField(jobService, "logFlushIntervalMs", 60_000L);
+    ReflectionTestUtils.setField(jobService, "logMaxLinesPerRequest", 2);
+    ReflectionTestUtils.setField(jobService, "defaultTimeoutMs", 60_000L);
+    ReflectionTestUtils.setField(jobIdempotencyCache, "ttlMs", 60_000L);
+    ReflectionTestUtils.setField(jobIdempotencyCache, "maxEntries", 10);
+  }
+
+  @Test
+  void buffered_job_writes_its_log_once_on_completion() {
+    Job job = Job.builder().id(1L).status("running").build();
+
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.log("a");
+          ctx.log("b");
+          jobService.flushStaleJobLogs();
+          verify(jobLogLinesRepository, never()).saveAll(anyList());
+        });
+
+    assertEquals("complete", job.getStatus());
+    verify(jobLogLinesRepository, times(1)).saveAll(anyList());
+    verify(jobQueue, times(1)).finish(job);
+    verify(jobLogBroadcaster, times(1)).complete(1L, "complete");
+  }
+
+  @Test
+  void zero_flush_interval_writes_lines_as_they_are_logged() {
+    ReflectionTestUtils.setField(jobService, "logFlushIntervalMs", 0L);
+    Job job = Job.builder().id(2L).status("running").build();
+
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.log("a");
+          jobService.flushStaleJobLogs();
+          verify(jobLogLinesRepository, times(1)).saveAll(anyList());
+        });
+
+    assertEquals("complete", job.getStatus());
+  }
+
+  @Test
+  void unbuffered_job_writes_every_line_and_error() {
+    ReflectionTestUtils.setField(jobService, "logBuffered", false);
+    Job job = Job.builder().id(3L).status("running").build();
+
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.log("a");
+          throw new Exception("boom");
+        });
+
+    assertEquals("error", job.getStatus());
+    verify(jobLogLinesRepository, times(2)).saveAll(anyList());
+    verify(jobQueue, times(1)).finish(job);
+  }
+
+  @Test
+  void runAsJob_queues_stored_work_and_dispatches_it() {
+    when(jobExecutor.getMaxPoolSize()).thenReturn(1);
+    TestJob testJob = TestJob.builder().sleepMs(5).build();
+    Job claimed =
+        Job.builder()
+            .id(0L)
+            .status("running")
+            .jobType(TestJob.class.getName())
+            .params("{\"fail\":false,\"sleepMs\":5}")
+            .build();
+    when(jobQueue.claim(1)).thenReturn(List.of(claimed));
+    when(jobsRepository.findById(0L)).thenReturn(Optional.of(claimed));
+
+    Job job = jobService.runAsJob(testJob);
+
+    assertEquals(claimed, job);
+    ArgumentCaptor<Job> saved = ArgumentCaptor.forClass(Job.class);
+    verify(jobsRepository, times(1)).save(saved.capture());
+    assertEquals("queued", saved.getValue().getStatus());
+    assertEquals(TestJob.class.getName(), saved.getValue().getJobType());
+    assertEquals("{\"fail\":false,\"sleepMs\":5}", saved.getValue().getParams());
+    assertEquals(JobPriority.NORMAL.getValue(), saved.getValue().getPriority());
+    assertTrue(saved.getValue().getEnqueuedAt() != null);
+    verify(jobQueue, never()).lease(any());
+    verify(self, times(1)).runJobAsync(eq(claimed), any(TestJob.class));
+    verify(jobMetrics, times(1)).recordEnqueued(TestJob.class.getName());
+  }
+
+  @Test
+  void runAsJob_leaves_job_queued_when_no_thread_is_idle() {
+    Job job = jobService.runAsJob(TestJob.builder().build(), JobPriority.INTERACTIVE);
+
+    assertEquals("queued", job.getStatus());
+    assertEquals(20, job.getPriority());
+    verify(jobQueue, never()).claim(anyInt());
+  }
+
+  @Test
+  void runAsJob_with_new_idempotency_key_stores_the_key_and_remembers_the_job() {
+    User user = User.builder().id(7L).build();
+    when(currentUserService.getUser()).thenReturn(user);
+    when(jobsRepository.findByCreatedByAndIdempotencyKey(user, "k1")).thenReturn(Optional.empty());
+
+    Job job = jobService.runAsJob(TestJob.builder().build(), JobPriority.NORMAL, "k1");
+
+    assertEquals("k1", job.getIdempotencyKey());
+    assertEquals("queued", job.getStatus());
+    verify(jobsRepository, times(1)).save(job);
+    assertEquals(job, jobIdempotencyCache.get("7:k1"));
+  }
+
+  @Test
+  void runAsJob_with_known_idempotency_key_returns_existing_job() {
+    User user = User.builder().id(7L).build();
+    Job existing = Job.builder().id(3L).status("running").idempotencyKey("k2").build();
+    when(currentUserService.getUser()).thenReturn(user);
+    when(jobsRepository.findByCreatedByAndIdempotencyKey(user, "k2"))
+        .thenReturn(Optional.of(existing));
+
+    Job first = jobService.runAsJob(TestJob.builder().build(), JobPriority.NORMAL, "k2");
+    Job second = jobService.runAsJob(TestJob.builder().build(), JobPriority.NORMAL, "k2");
+
+    assertEquals(existing, first);
+    assertEquals(existing, second);
+    // the retry was answered from the cache
+    verify(jobsRepository, times(1)).findByCreatedByAndIdempotencyKey(user, "k2");
+    verify(jobsRepository, never()).save(any());
+    verify(jobMetrics, never()).recordEnqueued(any());
+  }
+
+  @Test
+  void runAsJob_returns_job_of_concurrent_request_with_same_key() {
+    User user = User.builder().id(7L).build();
+    Job winner = Job.builder().id(4L).status("queued").idempotencyKey("k3").build();
+    when(currentUserService.getUser()).thenReturn(user);
+    when(jobsRepository.findByCreatedByAndIdempotencyKey(user, "k3"))
+        .thenReturn(Optional.empty(), Optional.of(winner));
+    when(jobsRepository.findByCreatedByAndIdempotencyKey(user, "k5"))
+        .thenReturn(Optional.empty(), Optional.of(winner));
+    when(jobsRepository.save(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+    Job job = jobService.runAsJob(TestJob.builder().build(), JobPriority.NORMAL, "k3");
+    Job lambdaJob = jobService.runAsJob(ctx -> {}, JobPriority.NORMAL, "k5");
+
+    assertEquals(winner, job);
+    assertEquals(winner, lambdaJob);
+    verify(jobMetrics, never()).recordEnqueued(any());
+    verify(self, never()).runJobAsync(any(), any());
+  }
+
+  @Test
+  void runAsJob_rethrows_insert_failures_not_explained_by_the_key() {
+    User user = User.builder().id(7L).build();
+    when(currentUserService.getUser()).thenReturn(user);
+    when(jobsRepository.findByCreatedByAndIdempotencyKey(user, "k4")).thenReturn(Optional.empty());
+    when(jobsRepository.save(any())).thenThrow(new DataIntegrityViolationException("bad row"));
+
+    assertThrows(
+        DataIntegrityViolationException.class,
+        () -> jobService.runAsJob(TestJob.builder().build(), JobPriority.NORMAL, "k4"));
+    assertThrows(
+        DataIntegrityViolationException.class,
+        () -> jobService.runAsJob(TestJob.builder().build()));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  void runAsJobs_saves_all_jobs_together_for_one_user_lookup() {
+    when(jobsRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(jobExecutor.getMaxPoolSize()).thenReturn(2);
+
+    List<Job> jobs =
+        jobService.runAsJobs(
+            List.of(TestJob.builder().sleepMs(1).build(), TestJob.builder().sleepMs(2).build()),
+            JobPriority.BULK);
+
+    assertEquals(2, jobs.size());
+    assertEquals("{\"fail\":false,\"sleepMs\":2}", jobs.get(1).getParams());
+    for (Job job : jobs) {
+      assertEquals("queued", job.getStatus());
+      assertEquals(JobPriority.BULK.getValue(), job.getPriority());
+    }
+    assertEquals(jobs.get(0).getEnqueuedAt(), jobs.get(1).getEnqueuedAt());
+    verify(currentUserService, times(1)).getUser();
+    verify(jobsRepository, times(1)).saveAll(anyList());
+    verify(jobsRepository, never()).save(any());
+    verify(jobMetrics, times(2)).recordEnqueued(TestJob.class.getName());
+    verify(jobQueue, times(1)).claim(2);
+  }
+
+  @Test
+  void runAsJobs_rejects_work_that_cannot_be_queued() {
+    JobContextConsumer lambda = ctx -> {};
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> jobService.runAsJobs(List.of(lambda), JobPriority.NORMAL));
+    verify(jobsRepository, never()).saveAll(anyList());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  void runAsJobs_links_pipeline_jobs_before_queueing_them() {
+    when(jobsRepository.saveAll(anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Job> jobs = invocation.getArgument(0);
+              for (int i = 0; i < jobs.size(); i++) {
+                jobs.get(i).setId(100L + i);
+              }
+              return jobs;
+            });
+
+    // 0 -> 1, 0 -> 2, (1, 2) -> 3
+    List<Job> jobs =
+        jobService.runAsJobs(
+            List.of(
+                TestJob.builder().sleepMs(0).build(),
+                TestJob.builder().sleepMs(1).build(),
+                TestJob.builder().sleepMs(2).build(),
+                TestJob.builder().sleepMs(3).build()),
+            Map.of(1, List.of(0), 2, List.of(0), 3, List.of(1, 2)),
+            JobPriority.NORMAL);
+
+    assertEquals("queued", jobs.get(0).getStatus());
+    assertEquals("waiting", jobs.get(1).getStatus());
+    assertEquals("waiting", jobs.get(3).getStatus());
+    ArgumentCaptor<List<JobDependency>> links = ArgumentCaptor.forClass(List.class);
+    verify(jobDependenciesRepository, times(1)).saveAll(links.capture());
+    assertEquals(4, links.getValue().size());
+    assertTrue(
+        links.getValue().contains(JobDependency.builder().jobId(103L).parentId(102L).build()));
+    verify(jobsRepository, times(1)).releaseReady(eq(List.of(100L, 101L, 102L, 103L)), any());
+  }
+
+  @Test
+  void runAsJobs_dispatches_only_once_the_transaction_commits() {
+    when(jobsRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(jobExecutor.getMaxPoolSize()).thenReturn(2);
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      jobService.runAsJobs(List.of(TestJob.builder().build()), JobPriority.NORMAL);
+
+      verify(jobQueue, never()).claim(anyInt());
+      verify(jobMetrics, never()).recordEnqueued(any());
+      List<TransactionSynchronization> synchronizations =
+          TransactionSynchronizationManager.getSynchronizations();
+      assertEquals(1, synchronizations.size());
+      synchronizations.get(0).afterCommit();
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    verify(jobMetrics, times(1)).recordEnqueued(TestJob.class.getName());
+    verify(jobQueue, times(1)).claim(2);
+  }
+
+  @Test
+  void runAsJobs_rejects_dependencies_on_later_or_missing_jobs() {
+    List<TestJob> two = List.of(TestJob.builder().build(), TestJob.builder().build());
+
+    for (Map<Integer, List<Integer>> dependsOn :
+        List.of(Map.of(1, List.of(-1)), Map.of(0, List.of(1)), Map.of(2, List.of(0)))) {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> jobService.runAsJobs(two, dependsOn, JobPriority.NORMAL));
+    }
+    verify(jobsRepository, never()).saveAll(anyList());
+  }
+
+  @Test
+  void getJobLogLines_waiting_job_is_not_complete() {
+    Job job = Job.builder().id(8L).status("waiting").build();
+    when(jobsRepository.findById(8L)).thenReturn(Optional.of(job));
+
+    assertFalse(jobService.getJobLogLines(8L, 0).getComplete());
+  }
+
+  @Test
+  void finishing_job_hands_its_thread_to_the_next_job() {
+    when(jobExecutor.getMaxPoolSize()).thenReturn(1);
+    when(jobExecutor.getActiveCount()).thenReturn(1);
+    Job job = Job.builder().id(31L).build();
+
+    jobService.runJobAsync(job, ctx -> {});
+
+    verify(jobQueue, times(1)).resolveDependents(List.of(31L));
+    verify(jobQueue, times(1)).claim(1);
+  }
+
+  @Test
+  void job_lifecycle_is_timed() {
+    ZonedDateTime enqueuedAt = ZonedDateTime.now().minusSeconds(5);
+    Job job = Job.builder().id(30L).jobType("x.SlowJob").enqueuedAt(enqueuedAt).build();
+
+    jobService.runJobAsync(job, ctx -> {});
+
+    assertFalse(job.getStartedAt().isBefore(enqueuedAt.plusSeconds(5)));
+    assertFalse(job.getFinishedAt().isBefore(job.getStartedAt()));
+    verify(jobMetrics, times(1))
+        .recordStarted(eq("x.SlowJob"), argThat(wait -> wait.toSeconds() >= 5));
+    verify(jobMetrics, times(1)).recordFinished(eq("x.SlowJob"), eq("complete"), any());
+  }
+
+  @Test
+  void lambda_job_rejected_by_executor_is_marked_rejected() {
+    doThrow(new TaskRejectedException("full"))
+        .when(self)
+        .runJobAsync(any(Job.class), any(JobContextConsumer.class));
+
+    Job job = jobService.runAsJob(ctx -> ctx.log("never runs"));
+
+    assertNull(job.getParams());
+    assertEquals("rejected", job.getStatus());
+    verify(jobQueue, times(1)).finish(job);
+    verify(jobQueue, never()).release(job);
+    verify(jobMetrics, times(1)).recordRejected();
+  }
+
+  @Test
+  void job_that_cannot_be_serialized_is_not_stored() throws Exception {
+    JobContextConsumer unserializable = new TestJob();
+    doThrow(new JsonMappingException(null, "nope")).when(mapper).writeValueAsString(unserializable);
+
+    Job job = jobService.runAsJob(unserializable);
+
+    assertNull(job.getParams());
+  }
+
+  @Test
+  void pollQueue_does_nothing_when_executor_is_busy() {
+    when(jobExecutor.getMaxPoolSize()).thenReturn(2);
+    when(jobExecutor.getActiveCount()).thenReturn(1);
+    when(jobExecutor.getQueueSize()).thenReturn(1);
+
+    jobService.pollQueue();
+
+    verify(jobQueue, never()).claim(anyInt());
+  }
+
+  @Test
+  void pollQueue_runs_claimed_jobs() {
+    when(jobExecutor.getMaxPoolSize()).thenReturn(4);
+    when(jobExecutor.getActiveCount()).thenReturn(1);
+    Job stored =
+        Job.builder()
+            .id(8L)
+            .jobType(TestJob.class.getName())
+            .params("{\"fail\":true,\"sleepMs\":3}")
+            .build();
+    when(jobQueue.claim(3)).thenReturn(List.of(stored));
+
+    jobService.pollQueue();
+
+    ArgumentCaptor<JobContextConsumer> captor = ArgumentCaptor.forClass(JobContextConsumer.class);
+    verify(self, times(1)).runJobAsync(eq(stored), captor.capture());
+    TestJob restored = (TestJob) captor.getValue();
+    assertTrue(restored.getFail());
+    assertEquals(3, restored.getSleepMs());
+  }
+
+  @Test
+  void pollQueue_requeues_job_when_executor_fills_up() {
+    when(jobExecutor.getMaxPoolSize()).thenReturn(1);
+    Job stored = Job.builder().id(8L).jobType(TestJob.class.getName()).params("{}").build();
+    when(jobQueue.claim(1)).thenReturn(List.of(stored));
+    doThrow(new TaskRejectedException("full"))
+        .when(self)
+        .runJobAsync(any(Job.class), any(JobContextConsumer.class));
+
+    jobService.pollQueue();
+
+    verify(jobQueue, times(1)).release(stored);
+    verify(jobMetrics, times(1)).recordRejected();
+  }
+
+  @Test
+  void pollQueue_fails_jobs_that_cannot_be_restored() {
+    when(jobExecutor.getMaxPoolSize()).thenReturn(4);
+    Job noParams = Job.builder().id(1L).jobType(TestJob.class.getName()).attempts(1).build();
+    Job noType = Job.builder().id(2L).params("{}").attempts(1).build();
+    Job wrongType =
+        Job.builder().id(3L).jobType("java.lang.String").params("{}").attempts(1).build();
+    Job missingType = Job.builder().id(4L).jobType("no.such.Job").params("{}").attempts(2).build();
+    when(jobQueue.claim(4)).thenReturn(List.of(noParams, noType, wrongType, missingType));
+
+    jobService.pollQueue();
+
+    for (Job job : List.of(noParams, noType, wrongType, missingType)) {
+      assertEquals("error", job.getStatus());
+      verify(jobQueue, times(1)).finish(job);
+      verify(jobQueue, times(1)).resolveDependents(List.of(job.getId()));
+    }
+    verify(self, never()).runJobAsync(any(Job.class), any(JobContextConsumer.class));
+    verify(jobLogLinesRepository, times(4)).saveAll(anyList());
+  }
+
+  @Test
+  void heartbeat_renews_leases_of_running_jobs() {
+    Job job = Job.builder().id(12L).build();
+
+    jobService.runJobAsync(job, ctx -> jobService.heartbeat());
+
+    verify(jobQueue, times(1)).heartbeat(List.of(12L));
+  }
+
+  @Test
+  void heartbeat_without_running_jobs_checks_no_cancellations() {
+    jobService.heartbeat();
+
+    verify(jobQueue, times(1)).heartbeat(List.of());
+    verify(jobsRepository, never()).findCancelRequestedIds(any());
+  }
+
+  @Test
+  void heartbeat_stops_jobs_cancelled_elsewhere() {
+    Job job = Job.builder().id(20L).build();
+    when(jobsRepository.findCancelRequestedIds(List.of(20L))).thenReturn(List.of(20L, 99L));
+
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          jobService.heartbeat();
+          Thread.sleep(60_000);
+        });
+
+    assertEquals("cancelled", job.getStatus());
+    verify(jobLogBroadcaster, times(1)).complete(20L, "cancelled");
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  void overdue_job_is_stopped_as_timed_out() {
+    ReflectionTestUtils.setField(jobService, "defaultTimeoutMs", 0L);
+    Job job = Job.builder().id(21L).build();
+    JobContextConsumer slowJob =
+        new JobContextConsumer() {
+          @Override
+          public void accept(JobContext ctx) throws Exception {
+            jobService.enforceTimeouts();
+            assertFalse(ctx.isCancelled());
+            Thread.sleep(150);
+            jobService.enforceTimeouts();
+            ctx.log("never written");
+          }
+
+          @Override
+          public long timeoutMs() {
+            return 100;
+          }
+        };
+
+    jobService.runJobAsync(job, slowJob);
+
+    assertEquals("timed_out", job.getStatus());
+    ArgumentCaptor<Iterable<JobLogLine>> captor = ArgumentCaptor.forClass(Iterable.class);
+    verify(jobLogLinesRepository).saveAll(captor.capture());
+    JobLogLine line = captor.getValue().iterator().next();
+    assertEquals("Job timed out after 100 ms", line.getMessage());
+  }
+
+  @Test
+  void job_flagged_before_it_starts_is_cancelled_immediately() {
+    Job job = Job.builder().id(22L).attempts(2).cancelRequested(true).build();
+    when(jobLogLinesRepository.findFirstByJobIdOrderByLineNumberDesc(22L))
+        .thenReturn(Optional.empty());
+
+    jobService.runJobAsync(job, ctx -> ctx.log("never written"));
+
+    assertEquals("cancelled", job.getStatus());
+  }
+
+  @Test
+  void cancelJob_interrupts_job_running_here() {
+    Job job = Job.builder().id(23L).build();
+    List<String> messages = new ArrayList<>();
+
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          messages.add(jobService.cancelJob(23L));
+          assertTrue(ctx.isCancelled());
+        });
+
+    assertEquals(List.of("Cancelling job 23"), messages);
+    assertEquals("complete", job.getStatus()); // it finished anyway, without looking
+    verify(jobsRepository, never()).cancelQueued(eq(23L), any());
+  }
+
+  @Test
+  void cancelJob_cancels_queued_job() {
+    when(jobsRepository.cancelQueued(eq(24L), any())).thenReturn(1);
+
+    assertEquals("Job 24 cancelled", jobService.cancelJob(24L));
+    verify(jobsRepository, never()).requestCancel(24L);
+    verify(jobQueue, times(1)).resolveDependents(List.of(24L));
+  }
+
+  @Test
+  void cancelJob_flags_job_running_elsewhere() {
+    when(jobsRepository.requestCancel(25L)).thenReturn(1);
+
+    assertEquals("Cancelling job 25", jobService.cancelJob(25L));
+  }
+
+  @Test
+  void cancelJob_reports_finished_and_missing_jobs() {
+    when(jobsRepository.existsById(26L)).thenReturn(true);
+
+    assertEquals("Job 26 is not running", jobService.cancelJob(26L));
+    assertThrows(EntityNotFoundException.class, () -> jobService.cancelJob(27L));
+  }
+
+  @Test
+  void restarted_job_continues_line_numbers_after_earlier_attempt() {
+    Job job = Job.builder().id(13L).attempts(2).build();
+    when(jobLogLinesRepository.findFirstByJobIdOrderByLineNumberDesc(13L))
+        .thenReturn(Optional.of(JobLogLine.builder().jobId(13L).lineNumber(4).build()));
+
+    jobService.runJobAsync(job, ctx -> ctx.log("again"));
+
+    List<JobLogLine> saved = savedLines();
+    assertEquals("Restarting job (attempt 2)", saved.get(0).getMessage());
+    assertEquals(5, saved.get(0).getLineNumber());
+    assertEquals(6, saved.get(1).getLineNumber());
+  }
+
+  @Test
+  void restarted_job_without_earlier_lines_starts_at_zero() {
+    Job job = Job.builder().id(14L).attempts(2).build();
+    when(jobLogLinesRepository.findFirstByJobIdOrderByLineNumberDesc(14L))
+        .thenReturn(Optional.empty());
+
+    jobService.runJobAsync(job, ctx -> {});
+
+    assertEquals(0, savedLines().get(0).getLineNumber());
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<JobLogLine> savedLines() {
+    ArgumentCaptor<Iterable<JobLogLine>> captor = ArgumentCaptor.forClass(Iterable.class);
+    verify(jobLogLinesRepository, atLeastOnce()).saveAll(captor.capture());
+    List<JobLogLine> lines = new ArrayList<>();
+    captor.getAllValues().forEach(batch -> batch.forEach(lines::add));
+    return lines;
+  }
+
+  @Test
+  void getJobLogLines_returns_lines_after_cursor() {
+    Job job = Job.builder().id(4L).status("running").build();
+    when(jobsRepository.findById(4L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            4L, 5, Limit.of(2)))
+        .thenReturn(List.of(line(4L, 5), line(4L, 6)));
+
+    JobLogChunk chunk = jobService.getJobLogLines(4L, 5);
+
+    assertEquals(2, chunk.getLines().size());
+    assertEquals(7, chunk.getNextLine());
+    assertEquals("running", chunk.getStatus());
+    assertFalse(chunk.getComplete());
+  }
+
+  @Test
+  void getJobLogLines_finished_job_with_no_new_lines_is_complete() {
+    Job job = Job.builder().id(5L).status("complete").build();
+    when(jobsRepository.findById(5L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            5L, 3, Limit.of(2)))
+        .thenReturn(List.of());
+
+    JobLogChunk chunk = jobService.getJobLogLines(5L, 3);
+
+    assertEquals(3, chunk.getNextLine());
+    assertTrue(chunk.getComplete());
+  }
+
+  @Test
+  void getJobLogLines_finished_job_with_full_page_is_not_complete() {
+    Job job = Job.builder().id(6L).status("complete").build();
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            6L, 0, Limit.of(2)))
+        .thenReturn(List.of(line(6L, 0), line(6L, 1)));
+
+    JobLogChunk chunk = jobService.getJobLogLines(6L, 0);
+
+    assertEquals(2, chunk.getNextLine());
+    assertFalse(chunk.getComplete());
+  }
+
+  @Test
+  void getJobLogLines_cuts_the_lines_of_a_compacted_log_from_its_text() {
+    Job job = Job.builder().id(8L).status("complete").build();
+    when(jobsRepository.findById(8L)).thenReturn(Optional.of(job));
+    when(jobLogsRepository.findById(8L))
+        .thenReturn(Optional.of(JobLogCodec.encode(8L, "a\nb\nc", 1024)));
+
+    JobLogChunk chunk = jobService.getJobLogLines(8L, 1);
+
+    assertEquals(List.of("b", "c"), chunk.getLines().stream().map(JobLogLine::getMessage).toList());
+    assertEquals(1, chunk.getLines().get(0).getLineNumber());
+    assertEquals(3, chunk.getNextLine());
+    assertFalse(chunk.getComplete());
+  }
+
+  @Test
+  void getJobLogLines_keeps_the_line_numbers_of_compacted_lines() {
+    Job job = Job.builder().id(8L).status("complete").build();
+    when(jobsRepository.findById(8L)).thenReturn(Optional.of(job));
+    List<JobLogLine> compacted =
+        List.of(line(8L, 0, "first\nspans two lines"), line(8L, 1, "b"), line(8L, 2, "c"));
+    JobLog log = JobLogCodec.encode(8L, JobLogCodec.join("old output", compacted), 1024);
+    log.setLineIndex(JobLogCodec.index(compacted));
+    when(jobLogsRepository.findById(8L)).thenReturn(Optional.of(log));
+    ReflectionTestUtils.setField(jobService, "logMaxLinesPerRequest", 1);
+
+    JobLogChunk chunk = jobService.getJobLogLines(8L, 1);
+
+    // the cursor a client got before the compaction still points at "b"
+    assertEquals(List.of("b"), chunk.getLines().stream().map(JobLogLine::getMessage).toList());
+    assertEquals(1, chunk.getLines().get(0).getLineNumber());
+    assertEquals(2, chunk.getNextLine());
+  }
+
+  @Test
+  void getJobLogLines_compacted_empty_log_has_no_lines() {
+    Job job = Job.builder().id(9L).status("error").build();
+    when(jobsRepository.findById(9L)).thenReturn(Optional.of(job));
+    when(jobLogsRepository.findById(9L)).thenReturn(Optional.of(JobLogCodec.encode(9L, "", 1024)));
+
+    JobLogChunk chunk = jobService.getJobLogLines(9L, 0);
+
+    assertTrue(chunk.getLines().isEmpty());
+    assertTrue(chunk.getComplete());
+  }
+
+  @Test
+  void getJobLogLines_running_job_does_not_read_the_single_text_log() {
+    Job job = Job.builder().id(10L).status("running").build();
+    when(jobsRepository.findById(10L)).thenReturn(Optional.of(job));
+
+    JobLogChunk chunk = jobService.getJobLogLines(10L, 0);
+
+    assertTrue(chunk.getLines().isEmpty());
+    verify(jobLogsRepository, never()).findById(any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void pollJobLogStreams_sends_the_compacted_log_of_a_finished_job() {
+    when(jobLogBroadcaster.getSubscribedJobIds()).thenReturn(Set.of(11L));
+    when(jobLogBroadcaster.getNextLine(11L)).thenReturn(OptionalInt.of(0));
+    when(jobsRepository.findById(11L))
+        .thenReturn(Optional.of(Job.builder().id(11L).status("complete").build()));
+    when(jobLogsRepository.findById(11L))
+        .thenReturn(Optional.of(JobLogCodec.encode(11L, "a\nb", 1024)));
+
+    jobService.pollJobLogStreams();
+
+    ArgumentCaptor<List<JobLogLine>> lines = ArgumentCaptor.forClass(List.class);
+    verify(jobLogBroadcaster).publish(eq(11L), lines.capture());
+    assertEquals(List.of("a", "b"), lines.getValue().stream().map(JobLogLine::getMessage).toList());
+    verify(jobLogBroadcaster).complete(11L, "complete");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void pollJobLogStreams_sends_compacted_lines_with_their_numbers() {
+    when(jobLogBroadcaster.getSubscribedJobIds()).thenReturn(Set.of(12L));
+    when(jobLogBroadcaster.getNextLine(12L)).thenReturn(OptionalInt.of(1));
+    when(jobsRepository.findById(12L))
+        .thenReturn(Optional.of(Job.builder().id(12L).status("complete").build()));
+    List<JobLogLine> compacted = List.of(line(12L, 0, "a\nb"), line(12L, 1, "c"));
+    JobLog log = JobLogCodec.encode(12L, JobLogCodec.join(null, compacted), 1024);
+    log.setLineIndex(JobLogCodec.index(compacted));
+    when(jobLogsRepository.findById(12L)).thenReturn(Optional.of(log));
+
+    jobService.pollJobLogStreams();
+
+    ArgumentCaptor<List<JobLogLine>> lines = ArgumentCaptor.forClass(List.class);
+    verify(jobLogBroadcaster).publish(eq(12L), lines.capture());
+    assertEquals(List.of(compacted.get(1)), lines.getValue());
+  }
+
+  @Test
+  void getJobLogLines_throws_for_missing_job() {
+    when(jobsRepository.findById(7L)).thenReturn(Optional.empty());
+
+    assertThrows(EntityNotFoundException.class, () -> jobService.getJobLogLines(7L, 0));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void pollJobLogStreams_feeds_streams_of_jobs_running_elsewhere() {
+    Map<Long, JobContext> running =
+        (Map<Long, JobContext>) ReflectionTestUtils.getField(jobService, "runningContexts");
+    running.put(1L, mock(JobContext.class));
+    when(jobLogBroadcaster.getSubscribedJobIds()).thenReturn(Set.of(1L, 2L, 3L, 4L, 5L));
+    when(jobLogBroadcaster.getNextLine(anyLong())).thenReturn(OptionalInt.of(3));
+    when(jobLogBroadcaster.getNextLine(5L)).thenReturn(OptionalInt.empty());
+    when(jobsRepository.findById(2L))
+        .thenReturn(Optional.of(Job.builder().id(2L).status("running").build()));
+    when(jobsRepository.findById(3L))
+        .thenReturn(Optional.of(Job.builder().id(3L).status("complete").build()));
+    when(jobsRepository.findById(4L)).thenReturn(Optional.empty());
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            2L, 3, Limit.unlimited()))
+        .thenReturn(List.of(line(2L, 3), line(2L, 4)));
+
+    jobService.pollJobLogStreams();
+
+    // job 1 runs here and publishes its own lines; job 5's last subscriber just left
+    verify(jobsRepository, never()).findById(1L);
+    verify(jobsRepository, never()).findById(5L);
+    verify(jobLogBroadcaster, times(1)).publish(2L, List.of(line(2L, 3), line(2L, 4)));
+    verify(jobLogBroadcaster, never()).complete(eq(2L), any());
+    verify(jobLogBroadcaster, times(1)).publish(3L, List.of());
+    verify(jobLogBroadcaster, times(1)).complete(3L, "complete");
+    verify(jobLogBroadcaster, times(1)).complete(4L, "deleted");
+  }
+
+  private JobLogLine line(long jobId, int lineNumber) {
+    return line(jobId, lineNumber, "line " + lineNumber);
+  }
+
+  private JobLogLine line(long jobId, int lineNumber, String message) {
+    return JobLogLine.builder().jobId(jobId).lineNumber(lineNumber).message(message).build();
+  }
+}